@@ -0,0 +1,100 @@
+-- Compares the old OR-chain transactions filter with the "= any(?::bigint[])" form
+-- on a synthetic user with 100k transactions. Everything runs inside a transaction
+-- that is rolled back at the end, so it is safe to run against the dev database:
+--
+--   docker compose exec -T postgres psql -U finwave -d finwave < benchmarks/transactions_filter_any.sql
+
+\timing on
+
+begin;
+
+insert into users (username, password) values ('bench_filter_any', '-') returning id as user_id \gset
+
+insert into currencies (owner_id, code, symbol, decimals, description)
+select :user_id, 'B' || g, '$', 2, 'bench'
+from generate_series(1, 3) g;
+
+insert into accounts_folders (owner_id, name)
+values (:user_id, 'bench');
+
+insert into accounts (owner_id, folder_id, currency_id, amount, hidden, name)
+select :user_id,
+       (select id from accounts_folders where owner_id = :user_id),
+       (select min(id) from currencies where owner_id = :user_id) + g % 3,
+       0, false, 'bench ' || g
+from generate_series(1, 12) g;
+
+insert into categories (owner_id, type, parents_tree, name)
+select :user_id, g % 3 - 1, '', 'bench ' || g
+from generate_series(1, 40) g;
+
+select min(id) as first_category, min(id) + 39 as last_category from categories where owner_id = :user_id \gset
+select min(id) as first_account from accounts where owner_id = :user_id \gset
+
+insert into transactions (owner_id, category_id, account_id, currency_id, created_at, delta, description)
+select :user_id,
+       :first_category + (random() * 39)::int,
+       a.id,
+       a.currency_id,
+       now() - (g || ' minutes')::interval * 5,
+       round((random() * 2000 - 1000)::numeric, 2),
+       'bench transaction ' || g
+from generate_series(1, 100000) g
+join accounts a on a.owner_id = :user_id and a.id = :first_account + g % 12;
+
+analyze transactions;
+
+-- 8 categories and 3 accounts; the client list is unsorted and has a duplicate, the backend binds it sorted and distinct
+select array(
+           select distinct :first_category + o
+           from unnest(array[7, 1, 30, 12, 1, 22, 5, 17, 9]) o
+           order by 1
+       )::bigint[] as categories_sorted,
+       array[:first_account + 2, :first_account + 5, :first_account + 9]::bigint[] as accounts_sorted \gset
+
+-- old shape: one bind per id, statement text changes with the list length
+prepare or_chain(integer, bigint, bigint, bigint, bigint, bigint, bigint, bigint, bigint, bigint, bigint, bigint) as
+    select * from transactions
+    where owner_id = $1
+      and (category_id = $2 or category_id = $3 or category_id = $4 or category_id = $5
+           or category_id = $6 or category_id = $7 or category_id = $8 or category_id = $9)
+      and (account_id = $10 or account_id = $11 or account_id = $12)
+    order by created_at desc, id desc
+    limit 50;
+
+-- new shape: one array bind per list, same statement text for every list size
+prepare any_array(integer, bigint[], bigint[]) as
+    select * from transactions
+    where owner_id = $1
+      and category_id = any($2::bigint[])
+      and account_id = any($3::bigint[])
+    order by created_at desc, id desc
+    limit 50;
+
+select c[1] c1, c[2] c2, c[3] c3, c[4] c4, c[5] c5, c[6] c6, c[7] c7, c[8] c8,
+       a[1] a1, a[2] a2, a[3] a3
+from (select :'categories_sorted'::bigint[] c, :'accounts_sorted'::bigint[] a) s \gset
+
+explain (analyze, buffers)
+execute or_chain(:user_id, :c1, :c2, :c3, :c4, :c5, :c6, :c7, :c8, :a1, :a2, :a3);
+
+explain (analyze, buffers)
+execute any_array(:user_id, :'categories_sorted', :'accounts_sorted');
+
+-- the analytics queries scan the whole filtered range, which is where the OR chain hurts the most
+explain (analyze, buffers)
+select currency_id, category_id, date_trunc('day', created_at), sum(delta)
+from transactions
+where owner_id = :user_id
+  and (category_id = :c1 or category_id = :c2 or category_id = :c3 or category_id = :c4
+       or category_id = :c5 or category_id = :c6 or category_id = :c7 or category_id = :c8)
+group by 1, 2, 3;
+
+explain (analyze, buffers)
+select currency_id, category_id, date_trunc('day', created_at), sum(delta)
+from transactions
+where owner_id = :user_id
+  and category_id = any(:'categories_sorted'::bigint[])
+group by 1, 2, 3;
+
+rollback;
@@ -0,0 +1,123 @@
+package app.finwave.backend.api.analytics;
+
+import app.finwave.backend.api.analytics.result.CategorySummary;
+import app.finwave.backend.api.analytics.result.SummaryTable;
+import org.flywaydb.core.internal.util.Pair;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// build and merge time of the columnar analytics results against the map of boxed summaries they replaced:
+//   ./gradlew jmh
+// heap per entry of both is printed by main() (run with the jmh classpath, e.g. from the jmh jar)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyticsResultsBenchmark {
+    // roughly three years of days with a handful of categories in two currencies
+    @Param({"1000", "20000"})
+    public int rows;
+
+    protected Row[] data;
+    protected HashMap<LocalDate, ArrayList<CategorySummary>> legacy;
+    protected SummaryTable columnar;
+
+    record Row(LocalDate date, long currencyId, long categoryId, BigDecimal delta) {}
+
+    @Setup
+    public void setup() {
+        data = generate(rows);
+        legacy = buildLegacy(data);
+        columnar = buildColumnar(data);
+    }
+
+    @Benchmark
+    public Object buildLegacy() {
+        return buildLegacy(data);
+    }
+
+    @Benchmark
+    public Object buildColumnar() {
+        return buildColumnar(data);
+    }
+
+    @Benchmark
+    public Object mergeLegacy() {
+        return mergeLegacy(legacy);
+    }
+
+    @Benchmark
+    public Object mergeColumnar() {
+        return columnar.mergeAll();
+    }
+
+    static Row[] generate(int rows) {
+        Random random = new Random(42);
+        Row[] result = new Row[rows];
+        LocalDate start = LocalDate.of(2022, 1, 1);
+
+        for (int i = 0; i < rows; i++) {
+            result[i] = new Row(start.plusDays(i / 20),
+                    1 + (i % 2),
+                    1 + (i % 20) / 2,
+                    BigDecimal.valueOf(random.nextInt(1_000_000) - 500_000, 2));
+        }
+
+        return result;
+    }
+
+    // what AnalyticsByDays used to build from the query result
+    static HashMap<LocalDate, ArrayList<CategorySummary>> buildLegacy(Row[] data) {
+        HashMap<LocalDate, ArrayList<CategorySummary>> total = new HashMap<>();
+
+        for (Row row : data) {
+            total.computeIfAbsent(row.date(), (k) -> new ArrayList<>())
+                    .add(new CategorySummary(row.currencyId(), row.categoryId(), row.delta()));
+        }
+
+        return total;
+    }
+
+    // what AnalyticsByMonths.mergeAll used to do
+    static List<CategorySummary> mergeLegacy(Map<LocalDate, ? extends List<CategorySummary>> total) {
+        HashMap<Pair<Long, Long>, BigDecimal> mergedMap = new HashMap<>();
+
+        total.forEach((k, v) -> v.forEach((e) -> {
+            Pair<Long, Long> pair = Pair.of(e.currencyId(), e.categoryId());
+
+            mergedMap.put(pair, mergedMap.getOrDefault(pair, BigDecimal.ZERO).add(e.delta()));
+        }));
+
+        return mergedMap.entrySet().stream()
+                .map((e) -> new CategorySummary(e.getKey().getLeft(), e.getKey().getRight(), e.getValue()))
+                .toList();
+    }
+
+    static SummaryTable buildColumnar(Row[] data) {
+        SummaryTable.Builder builder = new SummaryTable.Builder();
+
+        for (Row row : data)
+            builder.add(row.date(), row.currencyId(), row.categoryId(), row.delta());
+
+        return builder.build();
+    }
+
+    public static void main(String[] args) {
+        for (int rows : new int[] {1000, 20000}) {
+            Row[] data = generate(rows);
+
+            long legacy = GraphLayout.parseInstance(buildLegacy(data)).totalSize();
+            long columnar = GraphLayout.parseInstance(buildColumnar(data)).totalSize();
+
+            System.out.printf("%d rows: legacy %d bytes (%.1f per entry), columnar %d bytes (%.1f per entry)%n",
+                    rows, legacy, (double) legacy / rows, columnar, (double) columnar / rows);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package app.finwave.backend.http;
+
+import app.finwave.backend.api.ApiResponse;
+import app.finwave.backend.api.transaction.TransactionApi;
+import app.finwave.backend.api.transaction.manager.data.TransactionEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// a transactions page written the way Spark does it (whole String, then its bytes) against streaming it:
+//   ./gradlew jmh, with profilers = ['gc'] in the jmh block
+// gc.alloc.rate.norm is the bytes allocated per response. Both grow with the response, Gson still allocates per element
+// (dates go through a JsonSerializer tree, decimals through their strings), but only the buffered one holds the whole
+// body at once, as a String and then as its bytes. With -prof gc, JDK 17:
+//   100 transactions     buffered 142 440 B/op   streamed 105 168 B/op
+//   10000 transactions   buffered 15 514 941 B/op   streamed 8 270 781 B/op
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonStreamingBenchmark {
+    @Param({"100", "10000"})
+    public int transactions;
+
+    protected ApiResponse response;
+
+    // stands in for the servlet stream, so only the serialization is measured
+    protected static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        OffsetDateTime start = OffsetDateTime.of(2024, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+        ArrayList<TransactionEntry<?>> entries = new ArrayList<>(transactions);
+
+        for (int i = 0; i < transactions; i++) {
+            entries.add(new TransactionEntry<>(i, 1 + i % 20, 1 + i % 3, 1,
+                    start.minusHours(i),
+                    BigDecimal.valueOf(random.nextInt(1_000_000) - 500_000, 2),
+                    i % 4 == 0 ? "Groceries and other things #" + i : null));
+        }
+
+        response = new TransactionApi.GetTransactionsListResponse(List.copyOf(entries));
+    }
+
+    @Benchmark
+    public void buffered() throws IOException {
+        DISCARD.write(response.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void streamed() throws IOException {
+        JsonStreaming.write(response, DISCARD, 8192);
+    }
+}
@@ -1,6 +1,8 @@
 package app.finwave.backend.api.account;
 
 import app.finwave.backend.api.accumulation.AccumulationApi;
+import app.finwave.backend.api.currency.excange.ExchangeManager;
+import app.finwave.backend.api.currency.excange.ExchangeRates;
 import app.finwave.backend.api.accumulation.AccumulationDatabase;
 import app.finwave.backend.api.event.WebSocketWorker;
 import app.finwave.backend.api.event.messages.response.NotifyUpdate;
@@ -20,6 +22,7 @@ import app.finwave.backend.database.DatabaseWorker;
 import app.finwave.backend.http.ApiMessage;
 import app.finwave.backend.jooq.tables.records.AccountsRecord;
 import app.finwave.backend.jooq.tables.records.UsersSessionsRecord;
+import app.finwave.backend.utils.params.InvalidParameterException;
 import app.finwave.backend.utils.params.ParamsValidator;
 
 import java.math.BigDecimal;
@@ -43,8 +46,10 @@ public class AccountApi {
     protected RecurringTransactionDatabase recurringTransactionDatabase;
     protected AccumulationDatabase accumulationDatabase;
 
+    protected ExchangeManager exchangeManager;
+
     @Inject
-    public AccountApi(DatabaseWorker databaseWorker, Configs configs, WebSocketWorker socketWorker, TransactionsManager manager) {
+    public AccountApi(DatabaseWorker databaseWorker, Configs configs, WebSocketWorker socketWorker, TransactionsManager manager, ExchangeManager exchangeManager) {
         this.database = databaseWorker.get(AccountDatabase.class);
         this.folderDatabase = databaseWorker.get(AccountFolderDatabase.class);
         this.currencyDatabase = databaseWorker.get(CurrencyDatabase.class);
@@ -55,6 +60,7 @@ public class AccountApi {
         this.transactionsManager = manager;
         this.recurringTransactionDatabase = databaseWorker.get(RecurringTransactionDatabase.class);
         this.accumulationDatabase = databaseWorker.get(AccumulationDatabase.class);
+        this.exchangeManager = exchangeManager;
     }
 
     public Object newAccount(Request request, Response response) {
@@ -101,9 +107,16 @@ public class AccountApi {
 
         List<AccountsRecord> records = database.getAccounts(sessionsRecord.getUserId());
 
+        ExchangeRates rates = ParamsValidator
+                .longV(request, "targetCurrencyId")
+                .optional()
+                .map((id) -> exchangeManager.getRates(sessionsRecord.getUserId(), id)
+                        .orElseThrow(() -> new InvalidParameterException("targetCurrencyId")))
+                .orElse(null);
+
         response.status(200);
 
-        return new GetAccountsListResponse(records);
+        return new GetAccountsListResponse(records, rates);
     }
 
     public Object hideAccount(Request request, Response response) {
@@ -243,7 +256,10 @@ public class AccountApi {
     static class GetAccountsListResponse extends ApiResponse {
         public final List<Entry> accounts;
 
-        public GetAccountsListResponse(List<AccountsRecord> records) {
+        // only with a target currency: the sum of the visible accounts that could be converted
+        public final BigDecimal total;
+
+        public GetAccountsListResponse(List<AccountsRecord> records, ExchangeRates rates) {
             this.accounts = records
                     .stream()
                     .map(v -> new Entry(
@@ -251,13 +267,19 @@ public class AccountApi {
                             v.getFolderId(),
                             v.getCurrencyId(),
                             v.getAmount(),
+                            rates != null ? rates.convert(v.getCurrencyId(), v.getAmount()) : null,
                             v.getHidden(),
                             v.getName(),
                             v.getDescription()))
                     .toList();
+
+            this.total = rates == null ? null : accounts.stream()
+                    .filter((a) -> !a.hidden() && a.convertedAmount() != null)
+                    .map(Entry::convertedAmount)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
         }
 
-        record Entry(long accountId, long folderId, long currencyId, BigDecimal amount, boolean hidden, String name, String description) {}
+        record Entry(long accountId, long folderId, long currencyId, BigDecimal amount, BigDecimal convertedAmount, boolean hidden, String name, String description) {}
     }
 
     static class NewAccountResponse extends ApiResponse {
@@ -6,8 +6,12 @@ import app.finwave.backend.api.accumulation.data.AccumulationData;
 import app.finwave.backend.database.AbstractDatabase;
 import org.jooq.Record1;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static app.finwave.backend.api.ApiResponse.GSON;
 import static app.finwave.backend.jooq.Tables.ACCUMULATION_SETTINGS;
@@ -54,6 +58,15 @@ public class AccumulationDatabase extends AbstractDatabase {
                 .map(AccumulationData::fromRecord);
     }
 
+    public Map<Long, AccumulationData> getAccumulationSettings(Collection<Long> sourceAccountsIds) {
+        return context.selectFrom(ACCUMULATION_SETTINGS)
+                .where(ACCUMULATION_SETTINGS.SOURCE_ACCOUNT_ID.in(sourceAccountsIds))
+                .fetch()
+                .map(AccumulationData::fromRecord)
+                .stream()
+                .collect(Collectors.toMap(AccumulationData::sourceAccountId, Function.identity()));
+    }
+
     public boolean accountAffected(long accountId) {
         return context.selectCount()
                 .from(ACCUMULATION_SETTINGS)
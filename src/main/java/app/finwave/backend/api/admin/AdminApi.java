@@ -7,11 +7,19 @@ import spark.Request;
 import spark.Response;
 import app.finwave.backend.api.ApiResponse;
 import app.finwave.backend.api.user.UserDatabase;
+import app.finwave.backend.api.analytics.AnalyticsManager;
 import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.PoolMetricsTracker;
+import app.finwave.backend.database.QueryProfiler;
+import app.finwave.backend.database.ReplicaSet;
 import app.finwave.backend.http.ApiMessage;
+import app.finwave.backend.http.ResponseCompression;
 import app.finwave.backend.jooq.tables.records.UsersRecord;
+import app.finwave.backend.metrics.MetricsExporter;
+import app.finwave.backend.metrics.PrometheusWriter;
 import app.finwave.backend.utils.params.ParamsValidator;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,12 +30,20 @@ public class AdminApi {
     protected AdminDatabase database;
     protected UserDatabase userDatabase;
     protected SessionManager sessionManager;
+    protected DatabaseWorker databaseWorker;
+    protected AnalyticsManager analyticsManager;
+    protected ResponseCompression compression;
+    protected MetricsExporter metricsExporter;
 
     @Inject
-    public AdminApi(DatabaseWorker databaseWorker, SessionManager sessionManager) {
+    public AdminApi(DatabaseWorker databaseWorker, SessionManager sessionManager, AnalyticsManager analyticsManager, ResponseCompression compression, MetricsExporter metricsExporter) {
         this.database = databaseWorker.get(AdminDatabase.class);
         this.userDatabase = databaseWorker.get(UserDatabase.class);
         this.sessionManager = sessionManager;
+        this.databaseWorker = databaseWorker;
+        this.analyticsManager = analyticsManager;
+        this.compression = compression;
+        this.metricsExporter = metricsExporter;
     }
 
     public Object getUsers(Request request, Response response) {
@@ -53,19 +69,94 @@ public class AdminApi {
     public Object getActiveUsersCount(Request request, Response response) {
         response.status(200);
 
-        return new GetCountResponse(database.getActiveUsersCount());
+        return new GetCountResponse(databaseWorker.getReadOnly(AdminDatabase.class).getActiveUsersCount());
     }
 
     public Object getUsersCount(Request request, Response response) {
         response.status(200);
 
-        return new GetCountResponse(database.getUsersCount());
+        return new GetCountResponse(databaseWorker.getReadOnly(AdminDatabase.class).getUsersCount());
     }
 
     public Object getTransactionsCount(Request request, Response response) {
         response.status(200);
 
-        return new GetCountResponse(database.getTransactionsCount());
+        return new GetCountResponse(databaseWorker.getReadOnly(AdminDatabase.class).getTransactionsCount());
+    }
+
+    public Object getDatabasePoolStats(Request request, Response response) {
+        response.status(200);
+
+        return new GetPoolStatsResponse(databaseWorker.getPoolMetrics(), databaseWorker.getReplicasStates());
+    }
+
+    public Object getAnalyticsCacheStats(Request request, Response response) {
+        response.status(200);
+
+        return new GetCacheStatsResponse(analyticsManager.getCachesStatistics());
+    }
+
+    public Object getCompressionStats(Request request, Response response) {
+        response.status(200);
+
+        return new GetCompressionStatsResponse(compression.stats());
+    }
+
+    public Object getMetrics(Request request, Response response) {
+        response.status(200);
+        response.type(PrometheusWriter.CONTENT_TYPE);
+
+        return metricsExporter.export();
+    }
+
+    public Object getQueryStats(Request request, Response response) {
+        Comparator<QueryProfiler.QueryStatistics> order = ParamsValidator
+                .string(request, "orderBy")
+                .matches((s) -> s.equals("total") || s.equals("count") || s.equals("mean") || s.equals("p99") || s.equals("rows"))
+                .mapOptional((s) -> switch (s) {
+                    case "count" -> Comparator.comparingLong(QueryProfiler.QueryStatistics::count);
+                    case "mean" -> Comparator.comparingDouble(QueryProfiler.QueryStatistics::meanMillis);
+                    case "p99" -> Comparator.comparingDouble(QueryProfiler.QueryStatistics::p99Millis);
+                    case "rows" -> Comparator.comparingLong(QueryProfiler.QueryStatistics::rows);
+                    default -> Comparator.comparingDouble(QueryProfiler.QueryStatistics::totalMillis);
+                })
+                .orElse(Comparator.comparingDouble(QueryProfiler.QueryStatistics::totalMillis));
+
+        int limit = ParamsValidator
+                .integer(request, "limit")
+                .range(1, 1000)
+                .optional()
+                .orElse(50);
+
+        response.status(200);
+
+        return new GetQueryStatsResponse(databaseWorker.getQueryProfiler().getStatistics(order.reversed(), limit));
+    }
+
+    public Object getSlowQueries(Request request, Response response) {
+        response.status(200);
+
+        return new GetSlowQueriesResponse(databaseWorker.getQueryProfiler().getSlowQueries());
+    }
+
+    public Object resetQueryStats(Request request, Response response) {
+        databaseWorker.getQueryProfiler().reset();
+
+        response.status(200);
+
+        return ApiMessage.of("Reset");
+    }
+
+    public Object rebuildAnalyticsRollup(Request request, Response response) {
+        Optional<Integer> userId = ParamsValidator
+                .integer(request, "userId")
+                .optional();
+
+        analyticsManager.rebuildRollup(userId.orElse(null));
+
+        response.status(200);
+
+        return ApiMessage.of("Rebuilt");
     }
 
     public Object changeUserPassword(Request request, Response response) {
@@ -112,6 +203,48 @@ public class AdminApi {
         }
     }
 
+    static final class GetPoolStatsResponse extends ApiResponse {
+        public final PoolMetricsTracker.PoolMetrics pool;
+        public final List<ReplicaSet.ReplicaState> replicas;
+
+        public GetPoolStatsResponse(PoolMetricsTracker.PoolMetrics pool, List<ReplicaSet.ReplicaState> replicas) {
+            this.pool = pool;
+            this.replicas = replicas;
+        }
+    }
+
+    static final class GetCacheStatsResponse extends ApiResponse {
+        public final List<AnalyticsManager.CacheStatistics> caches;
+
+        public GetCacheStatsResponse(List<AnalyticsManager.CacheStatistics> caches) {
+            this.caches = caches;
+        }
+    }
+
+    static final class GetCompressionStatsResponse extends ApiResponse {
+        public final ResponseCompression.CompressionStats compression;
+
+        public GetCompressionStatsResponse(ResponseCompression.CompressionStats compression) {
+            this.compression = compression;
+        }
+    }
+
+    static final class GetQueryStatsResponse extends ApiResponse {
+        public final List<QueryProfiler.QueryStatistics> queries;
+
+        public GetQueryStatsResponse(List<QueryProfiler.QueryStatistics> queries) {
+            this.queries = queries;
+        }
+    }
+
+    static final class GetSlowQueriesResponse extends ApiResponse {
+        public final List<QueryProfiler.SlowQuery> queries;
+
+        public GetSlowQueriesResponse(List<QueryProfiler.SlowQuery> queries) {
+            this.queries = queries;
+        }
+    }
+
     static final class GetUserListResponse extends ApiResponse {
         public final List<Entry> users;
 
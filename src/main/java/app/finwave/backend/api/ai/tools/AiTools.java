@@ -120,7 +120,8 @@ public class AiTools {
                 Parameter.of("currenciesIds", "array>integer", "Filter by currencies ids", false),
                 Parameter.of("fromTime", "string", "Filter by time: from what moment (example: 2022-12-03T10:15:30+01:00)", false),
                 Parameter.of("toTime", "string", "Filter by time: until when (format like in fromTime)", false),
-                Parameter.of("description", "string", "Filter by description", false)
+                Parameter.of("description", "string", "Filter by description", false),
+                Parameter.of("search", "string", "Fuzzy search by description, results sorted by relevance instead of date", false)
         );
 
         function("get_transactions_count", "Get user's transactions count", transactionApi::getTransactionsCount,
@@ -1,6 +1,12 @@
 package app.finwave.backend.api.analytics;
 
+import app.finwave.backend.api.analytics.pivot.PivotDimension;
+import app.finwave.backend.api.analytics.pivot.PivotMeasure;
+import app.finwave.backend.api.analytics.pivot.PivotQuery;
+import app.finwave.backend.api.analytics.pivot.PivotResult;
 import app.finwave.backend.api.analytics.result.*;
+import app.finwave.backend.api.currency.excange.ExchangeManager;
+import app.finwave.backend.api.currency.excange.ExchangeRates;
 import app.finwave.backend.utils.params.ParamsValidator;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -12,18 +18,33 @@ import app.finwave.backend.config.app.AnalyticsConfig;
 import app.finwave.backend.jooq.tables.records.UsersSessionsRecord;
 import app.finwave.backend.utils.params.InvalidParameterException;
 
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.List;
 
 @Singleton
 public class AnalyticsApi {
     protected AnalyticsManager manager;
     protected AnalyticsConfig config;
+    protected ExchangeManager exchangeManager;
 
     @Inject
-    public AnalyticsApi(Configs configs, AnalyticsManager manager) {
+    public AnalyticsApi(Configs configs, AnalyticsManager manager, ExchangeManager exchangeManager) {
         this.config = configs.getState(new AnalyticsConfig());
         this.manager = manager;
+        this.exchangeManager = exchangeManager;
+    }
+
+    // one snapshot per request when the client asks for totals in a single currency
+    protected ExchangeRates targetRates(Request request, int userId) {
+        return ParamsValidator
+                .longV(request, "targetCurrencyId")
+                .optional()
+                .map((id) -> exchangeManager.getRates(userId, id)
+                        .orElseThrow(() -> new InvalidParameterException("targetCurrencyId")))
+                .orElse(null);
     }
 
     public Object getCategoriesAnalytics(Request request, Response response) {
@@ -35,17 +56,18 @@ public class AnalyticsApi {
                 .map(OffsetDateTime::parse)
                 .orElseGet(OffsetDateTime::now);
 
-        List<CategorySummaryWithBudget> summaryList = manager.getCategoriesAnalytics(sessionsRecord.getUserId(), time);
+        CategoriesAnalytics analytics = manager.getCategoriesAnalytics(sessionsRecord.getUserId(), time);
 
         response.status(200);
 
-        return new CategoriesAnalytics(summaryList);
+        return analytics;
     }
 
     public Object getAnalyticsByMonths(Request request, Response response) {
         UsersSessionsRecord sessionsRecord = request.attribute("session");
 
         TransactionsFilter filter = new TransactionsFilter(request);
+        manager.rememberOffset(sessionsRecord.getUserId(), filter.getFromTime());
 
         if (filter.getFromTime() == null)
             filter = filter.setFromTime(OffsetDateTime.now().minusDays(config.maxTimeRangeDaysForMonths / 2));
@@ -56,7 +78,7 @@ public class AnalyticsApi {
         if (!filter.validateTime(config.maxTimeRangeDaysForMonths))
             throw new InvalidParameterException();
 
-        AnalyticsByMonths analytics = manager.getAnalyticsByMonths(sessionsRecord.getUserId(), filter);
+        AnalyticsByMonths analytics = manager.getAnalyticsByMonths(sessionsRecord.getUserId(), filter, targetRates(request, sessionsRecord.getUserId()));
 
         response.status(200);
 
@@ -67,6 +89,7 @@ public class AnalyticsApi {
         UsersSessionsRecord sessionsRecord = request.attribute("session");
 
         TransactionsFilter filter = new TransactionsFilter(request);
+        manager.rememberOffset(sessionsRecord.getUserId(), filter.getFromTime());
 
         if (filter.getFromTime() == null)
             filter.setFromTime(OffsetDateTime.now().minusDays(config.maxTimeRangeDaysForDays / 2));
@@ -77,10 +100,127 @@ public class AnalyticsApi {
         if (!filter.validateTime(config.maxTimeRangeDaysForDays))
             throw new IllegalArgumentException();
 
-        AnalyticsByDays analytics = manager.getAnalyticsByDays(sessionsRecord.getUserId(), filter);
+        AnalyticsByDays analytics = manager.getAnalyticsByDays(sessionsRecord.getUserId(), filter, targetRates(request, sessionsRecord.getUserId()));
+
+        response.status(200);
+
+        return analytics;
+    }
+
+    public Object getAnalyticsByPeriod(Request request, Response response) {
+        UsersSessionsRecord sessionsRecord = request.attribute("session");
+
+        TransactionsFilter filter = new TransactionsFilter(request);
+
+        // periods are summed from per-day totals, which know nothing about accounts or descriptions
+        if (filter.getAccountIds() != null || filter.getDescription() != null)
+            throw new InvalidParameterException();
+
+        PeriodGranularity granularity = ParamsValidator
+                .string(request, "granularity")
+                .map((s) -> parse(s, PeriodGranularity.class));
+
+        int window = granularity != PeriodGranularity.ROLLING ? 1 : ParamsValidator
+                .integer(request, "window")
+                .range(1, config.maxRollingWindowDays)
+                .require();
+
+        if (!filter.validateTime(config.maxTimeRangeDaysForPeriods))
+            throw new InvalidParameterException();
+
+        LocalDate from = filter.getFromTime().toLocalDate();
+        LocalDate to = filter.getToTime().toLocalDate();
+
+        // the coarser granularities can't get anywhere near the limit within the allowed range
+        boolean daily = granularity == PeriodGranularity.DAY || granularity == PeriodGranularity.ROLLING;
+
+        if (daily && ChronoUnit.DAYS.between(from, to) + 1 > config.maxPeriods)
+            throw new InvalidParameterException();
+
+        AnalyticsByPeriods analytics = manager.getAnalyticsByPeriods(sessionsRecord.getUserId(), filter, granularity, window, from, to,
+                targetRates(request, sessionsRecord.getUserId()));
 
         response.status(200);
 
         return analytics;
     }
+
+    // groupBy=category,period&measures=sum,count&period=month&categoryDepth=0&orderBy=sum&order=asc&limit=10
+    public Object getPivot(Request request, Response response) {
+        UsersSessionsRecord sessionsRecord = request.attribute("session");
+
+        TransactionsFilter filter = new TransactionsFilter(request);
+
+        if (!filter.validateTime(config.maxTimeRangeDaysForPivot))
+            throw new InvalidParameterException();
+
+        List<PivotDimension> dimensions = ParamsValidator
+                .string(request, "groupBy")
+                .optional()
+                .map((s) -> parseList(s, PivotDimension.class))
+                .orElse(List.of());
+
+        List<PivotMeasure> measures = ParamsValidator
+                .string(request, "measures")
+                .optional()
+                .map((s) -> parseList(s, PivotMeasure.class))
+                .orElse(List.of(PivotMeasure.SUM));
+
+        PeriodGranularity period = ParamsValidator
+                .string(request, "period")
+                .optional()
+                .map((s) -> parse(s, PeriodGranularity.class))
+                .orElse(PeriodGranularity.MONTH);
+
+        Integer categoryDepth = ParamsValidator
+                .integer(request, "categoryDepth")
+                .range(0, Integer.MAX_VALUE)
+                .optional()
+                .orElse(null);
+
+        PivotMeasure orderBy = ParamsValidator
+                .string(request, "orderBy")
+                .optional()
+                .map((s) -> parse(s, PivotMeasure.class))
+                .orElse(null);
+
+        boolean descending = ParamsValidator
+                .string(request, "order")
+                .matches((s) -> s.equals("asc") || s.equals("desc"))
+                .optional()
+                .map((s) -> s.equals("desc"))
+                .orElse(true);
+
+        int limit = ParamsValidator
+                .integer(request, "limit")
+                .range(1, config.maxPivotRows)
+                .optional()
+                .orElse(config.maxPivotRows);
+
+        if (measures.isEmpty() || period == PeriodGranularity.ROLLING)
+            throw new InvalidParameterException();
+
+        PivotResult result = manager.getPivot(sessionsRecord.getUserId(), filter,
+                new PivotQuery(dimensions, measures, period, categoryDepth, orderBy, descending, limit));
+
+        response.status(200);
+
+        return result;
+    }
+
+    protected static <T extends Enum<T>> T parse(String raw, Class<T> type) {
+        try {
+            return Enum.valueOf(type, raw.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidParameterException();
+        }
+    }
+
+    protected static <T extends Enum<T>> List<T> parseList(String raw, Class<T> type) {
+        return Arrays.stream(raw.split(","))
+                .filter((s) -> !s.isBlank())
+                .map((s) -> parse(s, type))
+                .distinct()
+                .toList();
+    }
 }
@@ -1,60 +1,318 @@
 package app.finwave.backend.api.analytics;
 
-import org.jooq.Condition;
-import org.jooq.DSLContext;
+import org.jooq.*;
 import app.finwave.backend.api.analytics.result.AnalyticsByDays;
 import app.finwave.backend.api.analytics.result.AnalyticsByMonths;
+import app.finwave.backend.api.analytics.pivot.PivotDimension;
+import app.finwave.backend.api.analytics.pivot.PivotMeasure;
+import app.finwave.backend.api.analytics.pivot.PivotQuery;
+import app.finwave.backend.api.analytics.pivot.PivotRow;
 import app.finwave.backend.api.transaction.TransactionDatabase;
 import app.finwave.backend.api.transaction.filter.TransactionsFilter;
 import app.finwave.backend.database.AbstractDatabase;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import static org.jooq.impl.DSL.*;
-import static app.finwave.backend.jooq.Tables.TRANSACTIONS;
+import static org.jooq.impl.SQLDataType.NUMERIC;
+import static app.finwave.backend.jooq.Tables.*;
 
 public class AnalyticsDatabase extends AbstractDatabase {
+    protected static final Field<LocalDate> TRANSACTION_DAY = TRANSACTIONS.CREATED_AT.cast(LocalDate.class);
 
     public AnalyticsDatabase(DSLContext context) {
         super(context);
     }
 
     public AnalyticsByMonths getAnalyticsByMonths(int userId, TransactionsFilter filter) {
-        Condition condition = TransactionDatabase.generateFilterCondition(userId, filter);
+        Table<?> source = source(userId, filter);
 
-        var result = context.select(TRANSACTIONS.CURRENCY_ID,
-                        TRANSACTIONS.CATEGORY_ID,
-                        month(TRANSACTIONS.CREATED_AT),
-                        year(TRANSACTIONS.CREATED_AT),
-                        sum(TRANSACTIONS.DELTA))
-                .from(TRANSACTIONS)
-                .where(condition)
-                .groupBy(TRANSACTIONS.CURRENCY_ID,
-                        TRANSACTIONS.CATEGORY_ID,
-                        month(TRANSACTIONS.CREATED_AT),
-                        year(TRANSACTIONS.CREATED_AT))
+        Field<Long> currencyId = source.field("currency_id", Long.class);
+        Field<Long> categoryId = source.field("category_id", Long.class);
+        Field<LocalDate> day = source.field("day", LocalDate.class);
+
+        var result = context.select(currencyId,
+                        categoryId,
+                        month(day),
+                        year(day),
+                        sum(source.field("delta", BigDecimal.class)))
+                .from(source)
+                .groupBy(currencyId,
+                        categoryId,
+                        month(day),
+                        year(day))
                 .fetch();
 
         return new AnalyticsByMonths(result);
     }
 
     public AnalyticsByDays getAnalyticsByDays(int userId, TransactionsFilter filter) {
-        Condition condition = TransactionDatabase.generateFilterCondition(userId, filter);
+        Table<?> source = source(userId, filter);
+
+        Field<Long> currencyId = source.field("currency_id", Long.class);
+        Field<Long> categoryId = source.field("category_id", Long.class);
+        Field<LocalDate> day = source.field("day", LocalDate.class);
+
+        var result = context.select(currencyId,
+                        categoryId,
+                        day(day),
+                        month(day),
+                        year(day),
+                        sum(source.field("delta", BigDecimal.class)))
+                .from(source)
+                .groupBy(currencyId,
+                        categoryId,
+                        day)
+                .fetch();
+
+        return new AnalyticsByDays(result);
+    }
+
+    // groups by the query's dimensions in the database, on the rollup whenever it has everything the query needs
+    public List<PivotRow> getPivotRows(int userId, TransactionsFilter filter, PivotQuery query) {
+        boolean rollup = query.rollupCompatible(filter);
+
+        Table<?> source = rollup ?
+                source(userId, filter) :
+                context.select(TRANSACTIONS.ACCOUNT_ID.as("account_id"),
+                                TRANSACTIONS.CURRENCY_ID.as("currency_id"),
+                                TRANSACTIONS.CATEGORY_ID.as("category_id"),
+                                TRANSACTION_DAY.as("day"),
+                                TRANSACTIONS.DELTA.as("delta"),
+                                inline(1).as("count"))
+                        .from(TRANSACTIONS)
+                        .where(TransactionDatabase.generateFilterCondition(userId, filter))
+                        .asTable("source");
+
+        Field<Long> accountId = query.groupsBy(PivotDimension.ACCOUNT) ? source.field("account_id", Long.class) : inline(0L);
+        Field<Long> categoryId = query.groupsBy(PivotDimension.CATEGORY) ? source.field("category_id", Long.class) : inline(0L);
+        Field<Long> currencyId = query.groupsBy(PivotDimension.CURRENCY) ? source.field("currency_id", Long.class) : inline(0L);
+        Field<LocalDate> period = query.groupsBy(PivotDimension.PERIOD) ?
+                period(source.field("day", LocalDate.class), query.period()) :
+                castNull(LocalDate.class);
+
+        ArrayList<Field<?>> groupBy = new ArrayList<>();
+
+        if (query.groupsBy(PivotDimension.ACCOUNT))
+            groupBy.add(accountId);
+
+        if (query.groupsBy(PivotDimension.CATEGORY))
+            groupBy.add(categoryId);
+
+        if (query.groupsBy(PivotDimension.CURRENCY))
+            groupBy.add(currencyId);
+
+        if (query.groupsBy(PivotDimension.PERIOD))
+            groupBy.add(period);
+
+        Field<BigDecimal> delta = source.field("delta", BigDecimal.class);
+        boolean extremes = !rollup && (query.computes(PivotMeasure.MIN) || query.computes(PivotMeasure.MAX));
+
+        return context.select(accountId,
+                        categoryId,
+                        currencyId,
+                        period,
+                        sum(delta),
+                        sum(source.field("count", Integer.class)).cast(Long.class),
+                        extremes ? min(delta) : castNull(NUMERIC),
+                        extremes ? max(delta) : castNull(NUMERIC))
+                .from(source)
+                .groupBy(groupBy)
+                .fetch(Records.mapping(PivotRow::new));
+    }
+
+    protected static Field<LocalDate> period(Field<LocalDate> day, PeriodGranularity granularity) {
+        if (granularity == PeriodGranularity.DAY)
+            return day;
+
+        // weeks start on monday, same as PeriodGranularity
+        return field("cast(date_trunc({0}, {1}) as date)", LocalDate.class, inline(granularity.name().toLowerCase()), day);
+    }
+
+    // (currency_id, category_id, day, delta, count) rows to aggregate. Whole days inside the filter range come
+    // from the rollup, the partial first and last days and the filters the rollup can't answer from transactions
+    protected Table<?> source(int userId, TransactionsFilter filter) {
+        if (filter.getAccountIds() != null || filter.getDescription() != null)
+            return rawSource(TransactionDatabase.generateFilterCondition(userId, filter)).asTable("source");
+
+        Condition rollupCondition = TRANSACTIONS_DAILY_ROLLUP.OWNER_ID.eq(userId);
+
+        if (filter.getCategoriesIds() != null)
+            rollupCondition = rollupCondition.and(TransactionDatabase.generateFilterAnyCondition(TRANSACTIONS_DAILY_ROLLUP.CATEGORY_ID, filter.getCategoriesIds()));
+
+        if (filter.getCurrenciesIds() != null)
+            rollupCondition = rollupCondition.and(TransactionDatabase.generateFilterAnyCondition(TRANSACTIONS_DAILY_ROLLUP.CURRENCY_ID, filter.getCurrenciesIds()));
+
+        Condition edges = null;
+
+        if (filter.getFromTime() != null) {
+            Field<LocalDate> fromDay = val(filter.getFromTime()).cast(LocalDate.class);
 
-        var result = context.select(TRANSACTIONS.CURRENCY_ID,
+            rollupCondition = rollupCondition.and(TRANSACTIONS_DAILY_ROLLUP.DAY.gt(fromDay));
+            edges = TRANSACTIONS.CREATED_AT.lt(fromDay.plus(1).cast(OffsetDateTime.class));
+        }
+
+        if (filter.getToTime() != null) {
+            Field<LocalDate> toDay = val(filter.getToTime()).cast(LocalDate.class);
+            Condition lastDay = TRANSACTIONS.CREATED_AT.ge(toDay.cast(OffsetDateTime.class));
+
+            rollupCondition = rollupCondition.and(TRANSACTIONS_DAILY_ROLLUP.DAY.lt(toDay));
+            edges = edges == null ? lastDay : edges.or(lastDay);
+        }
+
+        var rollup = context.select(TRANSACTIONS_DAILY_ROLLUP.CURRENCY_ID.as("currency_id"),
+                        TRANSACTIONS_DAILY_ROLLUP.CATEGORY_ID.as("category_id"),
+                        TRANSACTIONS_DAILY_ROLLUP.DAY.as("day"),
+                        TRANSACTIONS_DAILY_ROLLUP.SUM.as("delta"),
+                        TRANSACTIONS_DAILY_ROLLUP.COUNT.as("count"))
+                .from(TRANSACTIONS_DAILY_ROLLUP)
+                .where(rollupCondition);
+
+        if (edges == null)
+            return rollup.asTable("source");
+
+        return rollup
+                .unionAll(rawSource(TransactionDatabase.generateFilterCondition(userId, filter).and(edges)))
+                .asTable("source");
+    }
+
+    protected Select<Record5<Long, Long, LocalDate, BigDecimal, Integer>> rawSource(Condition condition) {
+        return context.select(TRANSACTIONS.CURRENCY_ID.as("currency_id"),
+                        TRANSACTIONS.CATEGORY_ID.as("category_id"),
+                        TRANSACTION_DAY.as("day"),
+                        TRANSACTIONS.DELTA.as("delta"),
+                        inline(1).as("count"))
+                .from(TRANSACTIONS)
+                .where(condition);
+    }
+
+    public List<TransactionChange> getChanges(Collection<Long> transactionsIds, boolean withLinked) {
+        if (transactionsIds.isEmpty())
+            return List.of();
+
+        return context.select(TRANSACTIONS.OWNER_ID,
                         TRANSACTIONS.CATEGORY_ID,
-                        day(TRANSACTIONS.CREATED_AT),
-                        month(TRANSACTIONS.CREATED_AT),
-                        year(TRANSACTIONS.CREATED_AT),
-                        sum(TRANSACTIONS.DELTA))
+                        TRANSACTIONS.ACCOUNT_ID,
+                        TRANSACTIONS.CURRENCY_ID,
+                        TRANSACTIONS.CREATED_AT,
+                        TRANSACTION_DAY,
+                        TRANSACTIONS.DELTA)
                 .from(TRANSACTIONS)
-                .where(condition)
-                .groupBy(
+                .where(transactionsCondition(transactionsIds, withLinked))
+                .fetch(Records.mapping(TransactionChange::new));
+    }
+
+    // for a row read before it was changed, the day still has to come from the database
+    public TransactionChange getChange(Record record) {
+        OffsetDateTime createdAt = record.get(TRANSACTIONS.CREATED_AT);
+
+        LocalDate day = context.select(val(createdAt).cast(LocalDate.class))
+                .fetchOne(Record1::component1);
+
+        return new TransactionChange(record.get(TRANSACTIONS.OWNER_ID),
+                record.get(TRANSACTIONS.CATEGORY_ID),
+                record.get(TRANSACTIONS.ACCOUNT_ID),
+                record.get(TRANSACTIONS.CURRENCY_ID),
+                createdAt,
+                day,
+                record.get(TRANSACTIONS.DELTA));
+    }
+
+    protected static Condition transactionsCondition(Collection<Long> transactionsIds, boolean withLinked) {
+        Condition condition = TRANSACTIONS.ID.in(transactionsIds);
+
+        if (!withLinked)
+            return condition;
+
+        return condition
+                .or(TRANSACTIONS.ID.in(select(INTERNAL_TRANSACTIONS_METADATA.TO_TRANSACTION_ID)
+                        .from(INTERNAL_TRANSACTIONS_METADATA)
+                        .where(INTERNAL_TRANSACTIONS_METADATA.FROM_TRANSACTION_ID.in(transactionsIds))))
+                .or(TRANSACTIONS.ID.in(select(INTERNAL_TRANSACTIONS_METADATA.FROM_TRANSACTION_ID)
+                        .from(INTERNAL_TRANSACTIONS_METADATA)
+                        .where(INTERNAL_TRANSACTIONS_METADATA.TO_TRANSACTION_ID.in(transactionsIds))));
+    }
+
+    // adds (or takes back) the given transactions to the rollup; withLinked also takes the other side of internal transfers
+    public void updateRollup(int userId, Collection<Long> transactionsIds, boolean withLinked, boolean subtract) {
+        if (transactionsIds.isEmpty())
+            return;
+
+        Condition condition = transactionsCondition(transactionsIds, withLinked);
+        Field<BigDecimal> sum = sum(TRANSACTIONS.DELTA);
+        Field<Integer> count = count();
+
+        context.insertInto(TRANSACTIONS_DAILY_ROLLUP,
+                        TRANSACTIONS_DAILY_ROLLUP.OWNER_ID,
+                        TRANSACTIONS_DAILY_ROLLUP.CURRENCY_ID,
+                        TRANSACTIONS_DAILY_ROLLUP.CATEGORY_ID,
+                        TRANSACTIONS_DAILY_ROLLUP.DAY,
+                        TRANSACTIONS_DAILY_ROLLUP.SUM,
+                        TRANSACTIONS_DAILY_ROLLUP.COUNT)
+                .select(select(TRANSACTIONS.OWNER_ID,
                         TRANSACTIONS.CURRENCY_ID,
                         TRANSACTIONS.CATEGORY_ID,
-                        day(TRANSACTIONS.CREATED_AT),
-                        month(TRANSACTIONS.CREATED_AT),
-                        year(TRANSACTIONS.CREATED_AT))
-                .fetch();
+                        TRANSACTION_DAY,
+                        subtract ? sum.neg() : sum,
+                        subtract ? count.neg() : count)
+                        .from(TRANSACTIONS)
+                        .where(TRANSACTIONS.OWNER_ID.eq(userId).and(condition))
+                        .groupBy(TRANSACTIONS.OWNER_ID,
+                                TRANSACTIONS.CURRENCY_ID,
+                                TRANSACTIONS.CATEGORY_ID,
+                                TRANSACTION_DAY))
+                .onConflict(TRANSACTIONS_DAILY_ROLLUP.OWNER_ID,
+                        TRANSACTIONS_DAILY_ROLLUP.DAY,
+                        TRANSACTIONS_DAILY_ROLLUP.CATEGORY_ID,
+                        TRANSACTIONS_DAILY_ROLLUP.CURRENCY_ID)
+                .doUpdate()
+                .set(TRANSACTIONS_DAILY_ROLLUP.SUM, TRANSACTIONS_DAILY_ROLLUP.SUM.plus(excluded(TRANSACTIONS_DAILY_ROLLUP.SUM)))
+                .set(TRANSACTIONS_DAILY_ROLLUP.COUNT, TRANSACTIONS_DAILY_ROLLUP.COUNT.plus(excluded(TRANSACTIONS_DAILY_ROLLUP.COUNT)))
+                .execute();
 
-        return new AnalyticsByDays(result);
+        if (subtract) {
+            context.deleteFrom(TRANSACTIONS_DAILY_ROLLUP)
+                    .where(TRANSACTIONS_DAILY_ROLLUP.OWNER_ID.eq(userId).and(TRANSACTIONS_DAILY_ROLLUP.COUNT.le(0)))
+                    .execute();
+        }
+    }
+
+    // userId null rebuilds the rollup of every user
+    public void rebuildRollup(Integer userId) {
+        context.transaction((configuration) -> {
+            DSLContext dsl = configuration.dsl();
+
+            dsl.execute("lock table transactions in share mode");
+
+            dsl.deleteFrom(TRANSACTIONS_DAILY_ROLLUP)
+                    .where(userId == null ? noCondition() : TRANSACTIONS_DAILY_ROLLUP.OWNER_ID.eq(userId))
+                    .execute();
+
+            dsl.insertInto(TRANSACTIONS_DAILY_ROLLUP,
+                            TRANSACTIONS_DAILY_ROLLUP.OWNER_ID,
+                            TRANSACTIONS_DAILY_ROLLUP.CURRENCY_ID,
+                            TRANSACTIONS_DAILY_ROLLUP.CATEGORY_ID,
+                            TRANSACTIONS_DAILY_ROLLUP.DAY,
+                            TRANSACTIONS_DAILY_ROLLUP.SUM,
+                            TRANSACTIONS_DAILY_ROLLUP.COUNT)
+                    .select(select(TRANSACTIONS.OWNER_ID,
+                            TRANSACTIONS.CURRENCY_ID,
+                            TRANSACTIONS.CATEGORY_ID,
+                            TRANSACTION_DAY,
+                            sum(TRANSACTIONS.DELTA),
+                            count())
+                            .from(TRANSACTIONS)
+                            .where(userId == null ? noCondition() : TRANSACTIONS.OWNER_ID.eq(userId))
+                            .groupBy(TRANSACTIONS.OWNER_ID,
+                                    TRANSACTIONS.CURRENCY_ID,
+                                    TRANSACTIONS.CATEGORY_ID,
+                                    TRANSACTION_DAY))
+                    .execute();
+        });
     }
 }
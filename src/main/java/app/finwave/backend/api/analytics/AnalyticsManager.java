@@ -1,63 +1,109 @@
 package app.finwave.backend.api.analytics;
 
+import app.finwave.backend.api.analytics.pivot.PivotQuery;
+import app.finwave.backend.api.analytics.pivot.PivotResult;
+import app.finwave.backend.api.analytics.pivot.PivotRow;
 import app.finwave.backend.api.analytics.result.AnalyticsByDays;
 import app.finwave.backend.api.analytics.result.AnalyticsByMonths;
+import app.finwave.backend.api.analytics.result.AnalyticsByPeriods;
+import app.finwave.backend.api.analytics.result.CategoriesAnalytics;
 import app.finwave.backend.api.analytics.result.CategorySummary;
 import app.finwave.backend.api.analytics.result.CategorySummaryWithBudget;
-import app.finwave.backend.api.category.CategoryDatabase;
+import app.finwave.backend.api.category.CategoryManager;
+import app.finwave.backend.api.category.CategoryTreeIndex;
+import app.finwave.backend.api.currency.excange.ExchangeRates;
+import app.finwave.backend.api.session.SessionManager;
 import app.finwave.backend.api.transaction.filter.TransactionsFilter;
 import app.finwave.backend.api.transaction.hook.TransactionActionsHook;
 import app.finwave.backend.api.transaction.manager.TransactionsManager;
-import app.finwave.backend.api.transaction.manager.records.TransactionNewInternalRecord;
-import app.finwave.backend.api.transaction.manager.records.TransactionNewRecord;
-import app.finwave.backend.api.category.BudgetTree;
 import app.finwave.backend.api.budget.CategoryBudgetManager;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.general.CachingConfig;
 import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.UnitOfWork;
 import app.finwave.backend.jooq.tables.records.CategoriesBudgetsRecord;
-import app.finwave.backend.jooq.tables.records.CategoriesRecord;
+import app.finwave.backend.jooq.tables.records.UsersSessionsRecord;
+import app.finwave.backend.metrics.MetricsRegistry;
 import app.finwave.backend.utils.CacheHandyBuilder;
+import app.finwave.backend.utils.CacheRevalidator;
 import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalCause;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.flywaydb.core.internal.util.Pair;
-import org.jooq.DSLContext;
 import org.jooq.Record;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.Month;
 import java.time.OffsetDateTime;
 import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-
-import static app.finwave.backend.jooq.Tables.TRANSACTIONS;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Singleton
 public class AnalyticsManager {
+    protected static final Logger log = LoggerFactory.getLogger(AnalyticsManager.class);
+
     protected CachingConfig cachingConfig;
-    protected AnalyticsDatabase database;
-    protected CategoryDatabase categoryDatabase;
+    protected DatabaseWorker databaseWorker;
+    protected CategoryManager categoryManager;
 
     protected CategoryBudgetManager categoryBudgetManager;
 
     protected LoadingCache<Pair<Integer, TransactionsFilter>, AnalyticsByDays> daysCache;
     protected LoadingCache<Pair<Integer, TransactionsFilter>, AnalyticsByMonths> monthsCache;
 
-    protected LoadingCache<Pair<Integer, OffsetDateTime>, List<CategorySummaryWithBudget>> categoriesSummariesCache;
-    protected Cache<Integer, HashSet<OffsetDateTime>> loadedCategoriesSummaries;
+    protected LoadingCache<Pair<Integer, YearMonth>, List<CategorySummaryWithBudget>> categoriesSummariesCache;
+    protected Cache<Integer, Set<YearMonth>> loadedCategoriesSummaries;
+
+    protected Cache<Integer, Set<TransactionsFilter>> loadedDays;
+    protected Cache<Integer, Set<TransactionsFilter>> loadedMonths;
+
+    // user -> its whole day-level history, for queries at any granularity
+    protected LoadingCache<Integer, DailyPrefixSums> prefixSumsCache;
+
+    protected Set<Pair<Integer, TransactionsFilter>> patchedDays = ConcurrentHashMap.newKeySet();
+    protected Set<Pair<Integer, TransactionsFilter>> patchedMonths = ConcurrentHashMap.newKeySet();
+    protected Set<Integer> patchedPrefixSums = ConcurrentHashMap.newKeySet();
+
+    protected Counters daysCounters = new Counters();
+    protected Counters monthsCounters = new Counters();
+    protected Counters categoriesSummariesCounters = new Counters();
+    protected Counters prefixSumsCounters = new Counters();
 
-    protected Cache<Integer, HashSet<TransactionsFilter>> loadedDays;
-    protected Cache<Integer, HashSet<TransactionsFilter>> loadedMonths;
+    protected ThreadPoolExecutor refreshExecutor;
+
+    protected CacheRevalidator<Pair<Integer, TransactionsFilter>, AnalyticsByDays> daysRevalidator;
+    protected CacheRevalidator<Pair<Integer, TransactionsFilter>, AnalyticsByMonths> monthsRevalidator;
+    protected CacheRevalidator<Pair<Integer, YearMonth>, List<CategorySummaryWithBudget>> categoriesSummariesRevalidator;
+    protected CacheRevalidator<Integer, DailyPrefixSums> prefixSumsRevalidator;
+
+    // (cache, key, target currency) -> a converted result, valid while both its source entry and the rates are the same
+    protected Cache<ConvertedKey, Converted> convertedCache;
+
+    // user -> when its default views were warmed last
+    protected Cache<Integer, Long> warmedUsers;
+
+    // user -> the offset its analytics requests come in, so warm-up builds the same ranges the client will ask for
+    protected Cache<Integer, ZoneOffset> clientOffsets;
 
     @Inject
-    public AnalyticsManager(DatabaseWorker databaseWorker, Configs configs, TransactionsManager transactionsManager, CategoryBudgetManager categoryBudgetManager) {
-        this.database = databaseWorker.get(AnalyticsDatabase.class);
-        this.categoryDatabase = databaseWorker.get(CategoryDatabase.class);
+    public AnalyticsManager(DatabaseWorker databaseWorker, Configs configs, TransactionsManager transactionsManager, CategoryBudgetManager categoryBudgetManager, CategoryManager categoryManager, SessionManager sessionManager) {
+        this.databaseWorker = databaseWorker;
+        this.categoryManager = categoryManager;
 
         this.categoryBudgetManager = categoryBudgetManager;
 
@@ -73,7 +119,7 @@ public class AnalyticsManager {
                 cachingConfig.analytics.maxCategoriesSummingEntries,
                 (p) -> {
                     try {
-                        loadedCategoriesSummaries.get(p.getLeft(), HashSet::new).add(p.getRight());
+                        loadedCategoriesSummaries.get(p.getLeft(), ConcurrentHashMap::newKeySet).add(p.getRight());
                     } catch (ExecutionException e) {
                         e.printStackTrace();
                     }
@@ -81,7 +127,7 @@ public class AnalyticsManager {
                     return calculateCategoriesSummary(p.getLeft(), p.getRight());
                 },
                 (entry) -> {
-                    HashSet<OffsetDateTime> loaded = loadedCategoriesSummaries.getIfPresent(entry.getKey().getLeft());
+                    Set<YearMonth> loaded = loadedCategoriesSummaries.getIfPresent(entry.getKey().getLeft());
                     if (loaded == null)
                         return;
 
@@ -104,15 +150,20 @@ public class AnalyticsManager {
                 cachingConfig.analytics.maxDaysEntries,
                 (p) -> {
                     try {
-                        loadedDays.get(p.getLeft(), HashSet::new).add(p.getRight());
+                        loadedDays.get(p.getLeft(), ConcurrentHashMap::newKeySet).add(p.getRight());
                     } catch (ExecutionException e) {
                         e.printStackTrace();
                     }
 
-                    return database.getAnalyticsByDays(p.getLeft(), p.getRight());
+                    return databaseWorker.getReadOnly(AnalyticsDatabase.class, p.getLeft()).getAnalyticsByDays(p.getLeft(), p.getRight());
                 },
                 (entry) -> {
-                    HashSet<TransactionsFilter> loaded = loadedDays.getIfPresent(entry.getKey().getLeft());
+                    if (entry.getCause() == RemovalCause.REPLACED)
+                        return;
+
+                    patchedDays.remove(entry.getKey());
+
+                    Set<TransactionsFilter> loaded = loadedDays.getIfPresent(entry.getKey().getLeft());
                     if (loaded == null)
                         return;
 
@@ -125,45 +176,185 @@ public class AnalyticsManager {
                 cachingConfig.analytics.maxMonthsEntries,
                 (p) -> {
                     try {
-                        loadedMonths.get(p.getLeft(), HashSet::new).add(p.getRight());
+                        loadedMonths.get(p.getLeft(), ConcurrentHashMap::newKeySet).add(p.getRight());
                     } catch (ExecutionException e) {
                         e.printStackTrace();
                     }
 
-                    return database.getAnalyticsByMonths(p.getLeft(), p.getRight());
+                    return databaseWorker.getReadOnly(AnalyticsDatabase.class, p.getLeft()).getAnalyticsByMonths(p.getLeft(), p.getRight());
                 },
                 (entry) -> {
+                    if (entry.getCause() == RemovalCause.REPLACED)
+                        return;
+
+                    patchedMonths.remove(entry.getKey());
+
                     int userId = entry.getKey().getLeft();
 
                     categoriesSummariesCache.invalidate(userId);
 
-                    HashSet<TransactionsFilter> loaded = loadedMonths.getIfPresent(userId);
+                    Set<TransactionsFilter> loaded = loadedMonths.getIfPresent(userId);
                     if (loaded == null)
                         return;
 
                     loaded.remove(entry.getKey().getRight());
                 }
         );
-        transactionsManager.getDefaultActionsWorker().addHook(new Hook<>(this));
-        transactionsManager.getInternalActionsWorker().addHook(new Hook<>(this));
-        transactionsManager.getRecurringActionsWorker().addHook(new Hook<>(this));
-        transactionsManager.getAccumulationActionsWorker().addHook(new Hook<>(this));
 
-        categoryBudgetManager.addInvalidationListener((userId) -> {
-            HashSet<OffsetDateTime> loaded = loadedCategoriesSummaries.getIfPresent(userId);
+        this.prefixSumsCache = CacheHandyBuilder.loading(
+                1, TimeUnit.DAYS,
+                cachingConfig.analytics.maxPrefixSumsEntries,
+                this::loadPrefixSums
+        );
 
-            if (loaded == null)
-                return;
+        // bounded on both ends: a burst of writes makes entries fall back to plain invalidation instead of piling up
+        AtomicInteger threadsCounter = new AtomicInteger();
 
-            loadedCategoriesSummaries.invalidate(userId);
-            loaded.stream()
-                    .map((d) -> Pair.of(userId, d))
-                    .forEach(categoriesSummariesCache::invalidate);
+        this.refreshExecutor = MetricsRegistry.executor("analyticsRefresh", new ThreadPoolExecutor(
+                cachingConfig.analytics.refreshThreads,
+                cachingConfig.analytics.refreshThreads,
+                1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(cachingConfig.analytics.refreshQueueSize),
+                (r) -> {
+                    Thread thread = new Thread(r, "analytics-refresh-" + threadsCounter.incrementAndGet());
+                    thread.setDaemon(true);
+
+                    return thread;
+                }
+        ));
+        this.refreshExecutor.allowCoreThreadTimeOut(true);
+
+        this.daysRevalidator = new CacheRevalidator<>(daysCache,
+                (k) -> databaseWorker.getReadOnly(AnalyticsDatabase.class, k.getLeft()).getAnalyticsByDays(k.getLeft(), k.getRight()),
+                refreshExecutor);
+
+        this.monthsRevalidator = new CacheRevalidator<>(monthsCache,
+                (k) -> databaseWorker.getReadOnly(AnalyticsDatabase.class, k.getLeft()).getAnalyticsByMonths(k.getLeft(), k.getRight()),
+                refreshExecutor);
+
+        this.categoriesSummariesRevalidator = new CacheRevalidator<>(categoriesSummariesCache,
+                (k) -> calculateCategoriesSummary(k.getLeft(), k.getRight()),
+                refreshExecutor);
+
+        this.prefixSumsRevalidator = new CacheRevalidator<>(prefixSumsCache, this::loadPrefixSums, refreshExecutor);
+
+        this.convertedCache = CacheHandyBuilder.cache(
+                1, TimeUnit.HOURS,
+                cachingConfig.analytics.maxConvertedEntries
+        );
+
+        this.warmedUsers = CacheHandyBuilder.cache(
+                1, TimeUnit.DAYS,
+                cachingConfig.analytics.maxDaysEntries
+        );
+
+        this.clientOffsets = CacheHandyBuilder.cache(
+                7, TimeUnit.DAYS,
+                cachingConfig.analytics.maxDaysEntries
+        );
+
+        transactionsManager.getDefaultActionsWorker().addHook(new RollupHook<>(false));
+        transactionsManager.getInternalActionsWorker().addHook(new RollupHook<>(true));
+        transactionsManager.getRecurringActionsWorker().addHook(new RollupHook<>(false));
+        transactionsManager.getAccumulationActionsWorker().addHook(new RollupHook<>(false));
+
+        transactionsManager.getDefaultActionsWorker().addHook(new Hook<>(this, false));
+        transactionsManager.getInternalActionsWorker().addHook(new Hook<>(this, true));
+        transactionsManager.getRecurringActionsWorker().addHook(new Hook<>(this, false));
+        transactionsManager.getAccumulationActionsWorker().addHook(new Hook<>(this, false));
+
+        categoryBudgetManager.addInvalidationListener(this::invalidateCategoriesSummaries);
+        categoryManager.addInvalidationListener(this::invalidateCategoriesSummaries);
+
+        sessionManager.addAuthListener(this::warmUp);
+    }
+
+    protected void invalidateCategoriesSummaries(int userId) {
+        Set<YearMonth> loaded = loadedCategoriesSummaries.getIfPresent(userId);
+
+        if (loaded == null)
+            return;
+
+        List.copyOf(loaded).forEach((d) -> revalidate(categoriesSummariesCache, categoriesSummariesRevalidator,
+                categoriesSummariesCounters, Pair.of(userId, d)));
+    }
 
+    // keeps serving the entry while it's recomputed in the background, or just drops it with revalidation turned off
+    protected <K, V> void revalidate(LoadingCache<K, V> cache, CacheRevalidator<K, V> revalidator, Counters counters, K key) {
+        if (cachingConfig.analytics.staleWhileRevalidate && revalidator.revalidate(key)) {
+            counters.revalidations.increment();
+
+            return;
+        }
+
+        cache.invalidate(key);
+        counters.invalidations.increment();
+    }
+
+    // precomputes what the dashboard asks for first: this month by days, this month and quarter by months and the
+    // budgets summary. Runs on the refresh executor at most once per warmUpIntervalMinutes for a user, and is skipped
+    // when the executor is busy with revalidations
+    protected void warmUp(UsersSessionsRecord session) {
+        if (!cachingConfig.analytics.warmUpOnAuth)
+            return;
+
+        int userId = session.getUserId();
+        long now = System.currentTimeMillis();
+        long interval = TimeUnit.MINUTES.toMillis(cachingConfig.analytics.warmUpIntervalMinutes);
+
+        AtomicBoolean due = new AtomicBoolean();
+
+        warmedUsers.asMap().compute(userId, (k, last) -> {
+            if (last != null && now - last < interval)
+                return last;
+
+            due.set(true);
+
+            return now;
         });
+
+        if (!due.get())
+            return;
+
+        try {
+            refreshExecutor.execute(() -> {
+                ZoneOffset offset = clientOffsets.getIfPresent(userId);
+                OffsetDateTime reference = offset == null ? OffsetDateTime.now() : OffsetDateTime.now(offset);
+
+                TransactionsFilter monthFilter = rangeFilter((short) 0, reference);
+                TransactionsFilter quarterFilter = rangeFilter((short) 1, reference);
+
+                getAnalyticsByDays(userId, monthFilter);
+                getAnalyticsByMonths(userId, monthFilter);
+                getAnalyticsByMonths(userId, quarterFilter);
+                getCategoriesAnalytics(userId, reference);
+            });
+        } catch (RejectedExecutionException e) {
+            warmedUsers.invalidate(userId);
+        }
     }
 
-    protected Pair<OffsetDateTime, OffsetDateTime> dateTypeToRange(short type, OffsetDateTime referenceDate) {
+    // remembers the offset of the ranges a client asks for, cached filters are only shared by requests in the same one
+    public void rememberOffset(int userId, OffsetDateTime time) {
+        if (time != null && !time.getOffset().equals(clientOffsets.getIfPresent(userId)))
+            clientOffsets.put(userId, time.getOffset());
+    }
+
+    protected static TransactionsFilter rangeFilter(short type, OffsetDateTime referenceDate) {
+        Pair<OffsetDateTime, OffsetDateTime> range = dateTypeToRange(type, referenceDate);
+
+        return TransactionsFilter.EMPTY
+                .setFromTime(range.getLeft())
+                .setToTime(range.getRight());
+    }
+
+    // a summary is computed over its month in UTC, like canonical filters, whatever offset the request came with.
+    // Days are bucketed by the database anyway, so an offset would only move the edges of the first and last day
+    protected static OffsetDateTime monthReference(YearMonth month) {
+        return month.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+    }
+
+    protected static Pair<OffsetDateTime, OffsetDateTime> dateTypeToRange(short type, OffsetDateTime referenceDate) {
         OffsetDateTime thisMonthStart = referenceDate
                 .withDayOfMonth(1)
                 .withHour(0)
@@ -192,7 +383,9 @@ public class AnalyticsManager {
         );
     }
 
-    protected List<CategorySummaryWithBudget> calculateCategoriesSummary(int userId, OffsetDateTime referenceDate) {
+    protected List<CategorySummaryWithBudget> calculateCategoriesSummary(int userId, YearMonth month) {
+        OffsetDateTime referenceDate = monthReference(month);
+
         List<CategoriesBudgetsRecord> settings = categoryBudgetManager.getSettings(userId);
 
         HashSet<Long> categories = new HashSet<>();
@@ -209,26 +402,11 @@ public class AnalyticsManager {
 
         Pair<OffsetDateTime, OffsetDateTime> dateRange = dateTypeToRange(maxType, referenceDate);
 
+        CategoryTreeIndex tree = categoryManager.getTree(userId);
         HashSet<Long> categoriesToRequest = new HashSet<>(categories);
-        HashMap<Long, ArrayList<Long>> parentToChildren = new HashMap<>();
 
-        List<CategoriesRecord> usersCategories = categoryDatabase.getCategories(userId);
-
-        usersCategories.forEach(t -> {
-            BudgetTree tree = BudgetTree.of(t.getParentsTree());
-
-            for (Long categoryId : categories) {
-                if (tree.contains(categoryId)) {
-                    categoriesToRequest.add(t.getId());
-
-                    ArrayList<Long> children = parentToChildren.computeIfAbsent(categoryId, k -> new ArrayList<>());
-
-                    children.add(t.getId());
-
-                    break;
-                }
-            }
-        });
+        for (Long categoryId : categories)
+            categoriesToRequest.addAll(tree.subtree(categoryId));
 
         TransactionsFilter filter = new TransactionsFilter(
                 categoriesToRequest.stream().toList(), null,
@@ -240,7 +418,6 @@ public class AnalyticsManager {
 
         AnalyticsByMonths analyticsResult = getAnalyticsByMonths(userId, filter);
         List<CategorySummary> merged = analyticsResult.mergeAll();
-        Map<LocalDate, List<CategorySummary>> analytics = analyticsResult.getTotal();
 
         ArrayList<CategorySummaryWithBudget> result = new ArrayList<>();
 
@@ -252,11 +429,11 @@ public class AnalyticsManager {
             long categoryId = record.getCategoryId();
             short dateType = record.getDateType();
 
-            List<CategorySummary> entries = Optional.ofNullable(dateType == 0 ? analytics.get(date) : merged).orElse(List.of());
+            List<CategorySummary> entries = Optional.ofNullable(dateType == 0 ? analyticsResult.get(date) : merged).orElse(List.of());
             List<BigDecimal> toAdd = entries
                     .stream()
                     .filter((e) -> e.currencyId() == currencyId &&
-                            (e.categoryId() == categoryId || parentToChildren.getOrDefault(categoryId, new ArrayList<>()).contains(e.categoryId())))
+                            (e.categoryId() == categoryId || tree.inSubtree(e.categoryId(), categoryId)))
                     .map(CategorySummary::delta)
                     .toList();
 
@@ -269,19 +446,35 @@ public class AnalyticsManager {
         return Collections.unmodifiableList(result);
     }
 
-    public List<CategorySummaryWithBudget> getCategoriesAnalytics(int userId, OffsetDateTime referenceDate) {
+    // concurrent misses on the same key wait for the single load the cache runs for it. The summary only depends on
+    // the month of the reference date, so that's the key, not the instant or the offset every request comes with
+    public CategoriesAnalytics getCategoriesAnalytics(int userId, OffsetDateTime referenceDate) {
+        Pair<Integer, YearMonth> key = Pair.of(userId, YearMonth.from(referenceDate));
+
         try {
-            return categoriesSummariesCache.get(Pair.of(userId, referenceDate));
+            return new CategoriesAnalytics(categoriesSummariesCache.get(key), categoriesSummariesRevalidator.isStale(key));
         } catch (ExecutionException e) {
             e.printStackTrace();
         }
 
-        return List.of();
+        return new CategoriesAnalytics(List.of());
     }
 
     public AnalyticsByMonths getAnalyticsByMonths(int userId, TransactionsFilter filter) {
+        return getAnalyticsByMonths(userId, filter, null);
+    }
+
+    // with rates the amounts come converted into their target currency, otherwise each stays in its own
+    public AnalyticsByMonths getAnalyticsByMonths(int userId, TransactionsFilter filter, ExchangeRates rates) {
+        Pair<Integer, TransactionsFilter> key = Pair.of(userId, filter.canonical());
+
         try {
-            return monthsCache.get(Pair.of(userId, filter));
+            AnalyticsByMonths result = monthsCache.get(key);
+
+            if (rates != null)
+                result = converted("months", key, result, rates, AnalyticsByMonths::convert);
+
+            return monthsRevalidator.isStale(key) ? result.asStale() : result;
         } catch (ExecutionException e) {
             e.printStackTrace();
         }
@@ -289,9 +482,67 @@ public class AnalyticsManager {
         return AnalyticsByMonths.EMPTY;
     }
 
+    public void rebuildRollup(Integer userId) {
+        databaseWorker.get(AnalyticsDatabase.class).rebuildRollup(userId);
+
+        daysCache.invalidateAll();
+        monthsCache.invalidateAll();
+        categoriesSummariesCache.invalidateAll();
+        prefixSumsCache.invalidateAll();
+    }
+
+    protected DailyPrefixSums loadPrefixSums(int userId) {
+        return new DailyPrefixSums(databaseWorker.getReadOnly(AnalyticsDatabase.class, userId)
+                .getAnalyticsByDays(userId, TransactionsFilter.EMPTY)
+                .getTable());
+    }
+
+    // any bucketing of [from, to] answered from the cached running totals, only the first request of a user
+    // (or one after the entry was dropped) goes to the database
+    public AnalyticsByPeriods getAnalyticsByPeriods(int userId, TransactionsFilter filter, PeriodGranularity granularity, int window, LocalDate from, LocalDate to, ExchangeRates rates) {
+        DailyPrefixSums sums;
+
+        try {
+            sums = prefixSumsCache.get(userId);
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+
+            sums = DailyPrefixSums.EMPTY;
+        }
+
+        Set<Long> currencies = filter.getCurrenciesIds() == null ? null : new HashSet<>(filter.getCurrenciesIds());
+        Set<Long> categories = filter.getCategoriesIds() == null ? null : new HashSet<>(filter.getCategoriesIds());
+
+        List<LocalDate[]> periods = granularity.periods(from, to, window);
+        List<List<CategorySummary>> totals = sums.sums(periods,
+                (id) -> currencies == null || currencies.contains(id),
+                (id) -> categories == null || categories.contains(id));
+
+        ArrayList<AnalyticsByPeriods.Period> result = new ArrayList<>(periods.size());
+
+        for (int i = 0; i < periods.size(); i++) {
+            List<CategorySummary> total = rates == null ? totals.get(i) : convert(totals.get(i), rates);
+
+            result.add(new AnalyticsByPeriods.Period(periods.get(i)[0], periods.get(i)[1], total));
+        }
+
+        return new AnalyticsByPeriods(result, prefixSumsRevalidator.isStale(userId));
+    }
+
     public AnalyticsByDays getAnalyticsByDays(int userId, TransactionsFilter filter) {
+        return getAnalyticsByDays(userId, filter, null);
+    }
+
+    public AnalyticsByDays getAnalyticsByDays(int userId, TransactionsFilter filter, ExchangeRates rates) {
+        Pair<Integer, TransactionsFilter> key = Pair.of(userId, filter.canonical());
+
         try {
-            return daysCache.get(Pair.of(userId, filter));
+            AnalyticsByDays result = daysCache.get(key);
+
+            if (rates != null)
+                result = converted("days", key, result, rates, AnalyticsByDays::convert);
+
+            return daysRevalidator.isStale(key) ? result.asStale() : result;
         } catch (ExecutionException e) {
             e.printStackTrace();
         }
@@ -299,82 +550,299 @@ public class AnalyticsManager {
         return AnalyticsByDays.EMPTY;
     }
 
-    protected static class Hook<T, Y> implements TransactionActionsHook<T, Y> {
-        protected AnalyticsManager manager;
+    // the cached instance of an entry changes whenever it's patched or reloaded, so comparing it with the one a
+    // conversion was made from is enough to tell whether that conversion is still good
+    @SuppressWarnings("unchecked")
+    protected <V> V converted(String cache, Object key, V source, ExchangeRates rates, BiFunction<V, ExchangeRates, V> converter) {
+        ConvertedKey convertedKey = new ConvertedKey(cache, key, rates.targetCurrencyId());
+        Converted cached = convertedCache.getIfPresent(convertedKey);
 
-        public Hook(AnalyticsManager manager) {
-            this.manager = manager;
+        if (cached != null && cached.source() == source && cached.rates().equals(rates))
+            return (V) cached.result();
+
+        V result = converter.apply(source, rates);
+        convertedCache.put(convertedKey, new Converted(source, rates, result));
+
+        return result;
+    }
+
+    protected static List<CategorySummary> convert(List<CategorySummary> summaries, ExchangeRates rates) {
+        LinkedHashMap<Pair<Long, Long>, BigDecimal> merged = new LinkedHashMap<>();
+
+        for (CategorySummary summary : summaries) {
+            BigDecimal converted = rates.convert(summary.currencyId(), summary.delta());
+            long currencyId = converted == null ? summary.currencyId() : rates.targetCurrencyId();
+
+            merged.merge(Pair.of(currencyId, summary.categoryId()), converted == null ? summary.delta() : converted, BigDecimal::add);
+        }
+
+        return merged.entrySet().stream()
+                .filter((e) -> e.getValue().signum() != 0)
+                .map((e) -> new CategorySummary(e.getKey().getLeft(), e.getKey().getRight(), e.getValue()))
+                .toList();
+    }
+
+    protected record ConvertedKey(String cache, Object key, long targetCurrencyId) {}
+
+    protected record Converted(Object source, ExchangeRates rates, Object result) {}
+
+    // not cached, a pivot is one grouped query for whatever the client would otherwise assemble from several.
+    // With a categories depth the categories filter means whole subtrees, like the grouping does
+    public PivotResult getPivot(int userId, TransactionsFilter filter, PivotQuery query) {
+        CategoryTreeIndex tree = categoryManager.getTree(userId);
+
+        query = query.separateCurrencies(filter);
+
+        if (query.categoryDepth() != null && filter.getCategoriesIds() != null) {
+            filter = filter.setCategoriesIds(filter.getCategoriesIds().stream()
+                    .flatMap((id) -> tree.subtree(id).stream())
+                    .toList());
         }
 
-        protected void invalidate(int userId) {
-            var daysLoaded = manager.loadedDays.getIfPresent(userId);
+        List<PivotRow> rows = databaseWorker.getReadOnly(AnalyticsDatabase.class, userId).getPivotRows(userId, filter, query);
+
+        return PivotResult.of(rows, query, tree);
+    }
+
+    // brings the cached results a change to these transactions could affect up to date: entries that can be
+    // patched get the deltas applied to a copy, the rest is revalidated. Runs after the commit, under the user's lock
+    protected void applyChanges(int userId, List<TransactionChange> changes) {
+        if (changes.isEmpty())
+            return;
+
+        applyChanges(userId, changes, daysCache, daysRevalidator, loadedDays.getIfPresent(userId), patchedDays, daysCounters, AnalyticsByDays::patch);
+        applyChanges(userId, changes, monthsCache, monthsRevalidator, loadedMonths.getIfPresent(userId), patchedMonths, monthsCounters, AnalyticsByMonths::patch);
 
-            if (daysLoaded != null) {
-                manager.daysCache.invalidateAll(
-                        daysLoaded.stream()
-                                .map((f) -> Pair.of(userId, f))
-                                .toList()
-                );
+        DailyPrefixSums sums = prefixSumsCache.getIfPresent(userId);
 
-                manager.loadedDays.invalidate(userId);
+        if (sums != null) {
+            if (cachingConfig.analytics.patchOnChanges && !prefixSumsRevalidator.isStale(userId) &&
+                    prefixSumsCache.asMap().replace(userId, sums, sums.patch(changes))) {
+                patchedPrefixSums.add(userId);
+                prefixSumsCounters.patches.increment();
+            }else {
+                revalidate(prefixSumsCache, prefixSumsRevalidator, prefixSumsCounters, userId);
             }
+        }
+
+        Set<YearMonth> categories = loadedCategoriesSummaries.getIfPresent(userId);
+
+        if (categories != null) {
+            // a summary never looks further than the quarter around its reference date
+            categories.stream()
+                    .filter((d) -> {
+                        Pair<OffsetDateTime, OffsetDateTime> range = dateTypeToRange((short) 1, monthReference(d));
+
+                        return changes.stream().anyMatch((c) -> !c.createdAt().isBefore(range.getLeft()) &&
+                                !c.createdAt().isAfter(range.getRight()));
+                    })
+                    .map((d) -> Pair.of(userId, d))
+                    .toList()
+                    .forEach((k) -> revalidate(categoriesSummariesCache, categoriesSummariesRevalidator, categoriesSummariesCounters, k));
+        }
+    }
+
+    protected <V> void applyChanges(int userId,
+                                    List<TransactionChange> changes,
+                                    LoadingCache<Pair<Integer, TransactionsFilter>, V> cache,
+                                    CacheRevalidator<Pair<Integer, TransactionsFilter>, V> revalidator,
+                                    Set<TransactionsFilter> loaded,
+                                    Set<Pair<Integer, TransactionsFilter>> patched,
+                                    Counters counters,
+                                    BiFunction<V, List<TransactionChange>, V> patcher) {
+        if (loaded == null)
+            return;
+
+        for (TransactionsFilter filter : List.copyOf(loaded)) {
+            List<TransactionChange> matching = changes.stream()
+                    .filter((c) -> filter.mayMatch(c.categoryId(), c.accountId(), c.currencyId(), c.createdAt()))
+                    .toList();
 
-            var months = manager.loadedMonths.getIfPresent(userId);
+            if (matching.isEmpty())
+                continue;
 
-            if (months != null) {
-                manager.monthsCache.invalidateAll(
-                        months.stream()
-                                .map((f) -> Pair.of(userId, f))
-                                .toList()
-                );
+            Pair<Integer, TransactionsFilter> key = Pair.of(userId, filter);
 
-                manager.loadedMonths.invalidate(userId);
+            // mayMatch doesn't check the description, so those entries can't be patched. Neither can the ones being
+            // recomputed, the running load may or may not see this change, so it has to run once more
+            if (cachingConfig.analytics.patchOnChanges && filter.getDescription() == null && !revalidator.isStale(key)) {
+                V current = cache.getIfPresent(key);
+
+                // readers keep whatever instance they got, a concurrent reload makes the replace fail
+                if (current != null && cache.asMap().replace(key, current, patcher.apply(current, matching))) {
+                    patched.add(key);
+                    counters.patches.increment();
+
+                    continue;
+                }
             }
 
-           var categories = manager.loadedCategoriesSummaries.getIfPresent(userId);
+            revalidate(cache, revalidator, counters, key);
+        }
+    }
+
+    // compares a sample of the patched entries with a fresh query on the primary and drops the ones that diverged
+    public void checkConsistency(int samples) {
+        checkConsistency(daysCache, patchedDays, daysCounters, samples,
+                (k) -> databaseWorker.get(AnalyticsDatabase.class).getAnalyticsByDays(k.getLeft(), k.getRight()),
+                AnalyticsByDays::sameAs, Pair::getLeft);
+
+        checkConsistency(monthsCache, patchedMonths, monthsCounters, samples,
+                (k) -> databaseWorker.get(AnalyticsDatabase.class).getAnalyticsByMonths(k.getLeft(), k.getRight()),
+                AnalyticsByMonths::sameAs, Pair::getLeft);
+
+        checkConsistency(prefixSumsCache, patchedPrefixSums, prefixSumsCounters, samples,
+                (k) -> new DailyPrefixSums(databaseWorker.get(AnalyticsDatabase.class)
+                        .getAnalyticsByDays(k, TransactionsFilter.EMPTY)
+                        .getTable()),
+                DailyPrefixSums::sameAs, (k) -> k);
+    }
+
+    protected <K, V> void checkConsistency(LoadingCache<K, V> cache,
+                                           Set<K> patched,
+                                           Counters counters,
+                                           int samples,
+                                           Function<K, V> fresh,
+                                           BiPredicate<V, V> same,
+                                           Function<K, Integer> userId) {
+        ArrayList<K> keys = new ArrayList<>(patched);
+        Collections.shuffle(keys);
 
-            if (categories != null) {
-                manager.categoriesSummariesCache.invalidateAll(
-                        categories.stream()
-                        .map((d) -> Pair.of(userId, d))
-                        .toList());
+        for (K key : keys.subList(0, Math.min(samples, keys.size()))) {
+            V current = cache.getIfPresent(key);
 
-                manager.loadedCategoriesSummaries.invalidate(userId);
+            if (current == null) {
+                patched.remove(key);
+
+                continue;
             }
+
+            V expected = fresh.apply(key);
+
+            // patched again or reloaded while querying, nothing to compare against
+            if (cache.getIfPresent(key) != current)
+                continue;
+
+            counters.checks.increment();
+            patched.remove(key);
+
+            if (same.test(current, expected))
+                continue;
+
+            counters.mismatches.increment();
+            cache.invalidate(key);
+
+            log.warn("Patched analytics of user #{} diverged from the database, dropped", userId.apply(key));
+        }
+    }
+
+    public List<CacheStatistics> getCachesStatistics() {
+        return List.of(
+                CacheStatistics.of("days", daysCache, daysRevalidator, daysCounters),
+                CacheStatistics.of("months", monthsCache, monthsRevalidator, monthsCounters),
+                CacheStatistics.of("categoriesSummaries", categoriesSummariesCache, categoriesSummariesRevalidator, categoriesSummariesCounters),
+                CacheStatistics.of("prefixSums", prefixSumsCache, prefixSumsRevalidator, prefixSumsCounters)
+        );
+    }
+
+    protected static class Counters {
+        protected final LongAdder invalidations = new LongAdder();
+        protected final LongAdder revalidations = new LongAdder();
+        protected final LongAdder patches = new LongAdder();
+        protected final LongAdder checks = new LongAdder();
+        protected final LongAdder mismatches = new LongAdder();
+    }
+
+    public record CacheStatistics(String name,
+                                  long size,
+                                  long hits,
+                                  long misses,
+                                  double hitRate,
+                                  long evictions,
+                                  long invalidations,
+                                  long revalidations,
+                                  long stale,
+                                  long patches,
+                                  long consistencyChecks,
+                                  long consistencyMismatches) {
+        static CacheStatistics of(String name, Cache<?, ?> cache, CacheRevalidator<?, ?> revalidator, Counters counters) {
+            CacheStats stats = cache.stats();
+
+            return new CacheStatistics(name,
+                    cache.size(),
+                    stats.hitCount(),
+                    stats.missCount(),
+                    stats.hitRate(),
+                    stats.evictionCount(),
+                    counters.invalidations.sum(),
+                    counters.revalidations.sum(),
+                    revalidator.staleCount(),
+                    counters.patches.sum(),
+                    counters.checks.sum(),
+                    counters.mismatches.sum());
+        }
+    }
+
+    protected static class Hook<T, Y> implements TransactionActionsHook<T, Y> {
+        protected AnalyticsManager manager;
+        protected final boolean pairs;
+
+        public Hook(AnalyticsManager manager, boolean pairs) {
+            this.manager = manager;
+            this.pairs = pairs;
+        }
+
+        protected void afterCommit(UnitOfWork work, List<TransactionChange> changes) {
+            if (changes.isEmpty())
+                return;
+
+            work.afterCommit(() -> changes.stream()
+                    .collect(Collectors.groupingBy(TransactionChange::ownerId))
+                    .forEach(manager::applyChanges));
         }
 
         @Override
-        public void apply(DSLContext context, T newRecord) {
+        public void apply(UnitOfWork work, T newRecord) {
 
         }
 
         @Override
-        public void edit(DSLContext context, Record record, Y editRecord, long transactionId) {
+        public void edit(UnitOfWork work, Record record, Y editRecord, long transactionId) {
 
         }
 
         @Override
-        public void cancel(DSLContext context, Record record, long transactionId) {
+        public void cancel(UnitOfWork work, Record record, long transactionId) {
+            List<TransactionChange> canceled = work.get(AnalyticsDatabase.class).getChanges(List.of(transactionId), pairs);
 
+            afterCommit(work, canceled.stream().map(TransactionChange::negate).toList());
         }
 
         @Override
-        public void applied(DSLContext context, T newRecord, long transactionId) {
-            if (newRecord instanceof TransactionNewRecord r) {
-                invalidate(r.userId());
-            }else if (newRecord instanceof TransactionNewInternalRecord r) {
-                invalidate(r.userId());
-            }
+        public void applied(UnitOfWork work, T newRecord, long transactionId) {
+            afterCommit(work, work.get(AnalyticsDatabase.class).getChanges(List.of(transactionId), pairs));
         }
 
         @Override
-        public void edited(DSLContext context, Record record, Y editRecord, long transactionId) {
-            invalidate(record.get(TRANSACTIONS.OWNER_ID));
+        public void appliedBulk(UnitOfWork work, List<T> newRecords, List<Long> transactionsIds) {
+            afterCommit(work, work.get(AnalyticsDatabase.class).getChanges(transactionsIds, pairs));
         }
 
         @Override
-        public void canceled(DSLContext context, Record record, long transactionId) {
-            invalidate(record.get(TRANSACTIONS.OWNER_ID));
+        public void edited(UnitOfWork work, Record record, Y editRecord, long transactionId) {
+            AnalyticsDatabase database = work.get(AnalyticsDatabase.class);
+
+            // record is the version before the edit; both sides go in one patch so readers never see half of it
+            ArrayList<TransactionChange> changes = new ArrayList<>();
+            changes.add(database.getChange(record).negate());
+            changes.addAll(database.getChanges(List.of(transactionId), false));
+
+            afterCommit(work, changes);
+        }
+
+        @Override
+        public void canceled(UnitOfWork work, Record record, long transactionId) {
+
         }
     }
 }
@@ -0,0 +1,358 @@
+package app.finwave.backend.api.analytics;
+
+import app.finwave.backend.api.analytics.result.CategorySummary;
+import app.finwave.backend.api.analytics.result.SummaryTable;
+import app.finwave.backend.utils.IndexSort;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.LongPredicate;
+
+// a user's whole day-level history as running totals, one series per (currency, category). A series only keeps the
+// days it has rows at, the total up to any day is a binary search away, so the sum over a range of days is two lookups
+// and a subtraction no matter how long the range is
+public final class DailyPrefixSums {
+    public static final DailyPrefixSums EMPTY = new DailyPrefixSums(SummaryTable.EMPTY);
+
+    protected final long[] currencies;
+    protected final long[] categories;
+
+    // per series: days with rows (epoch days, ascending) and the running total up to and including each of them.
+    // Totals are unscaled longs at the series' scale, bigTotals is used instead for series that don't fit
+    protected final int[][] days;
+    protected final long[][] totals;
+    protected final int[] scales;
+    protected final BigDecimal[][] bigTotals;
+
+    public DailyPrefixSums(SummaryTable table) {
+        int size = table.size();
+
+        // the table is sorted by day first, a stable sort by series keeps the days ascending inside each series
+        int[] order = IndexSort.order(size, (a, b) -> {
+            int result = Long.compare(table.currencyId(a), table.currencyId(b));
+
+            return result != 0 ? result : Long.compare(table.categoryId(a), table.categoryId(b));
+        });
+
+        int[] seriesStarts = new int[size + 1];
+        int count = 0;
+
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || table.currencyId(order[i]) != table.currencyId(order[i - 1]) || table.categoryId(order[i]) != table.categoryId(order[i - 1]))
+                seriesStarts[count++] = i;
+        }
+
+        seriesStarts[count] = size;
+
+        this.currencies = new long[count];
+        this.categories = new long[count];
+        this.days = new int[count][];
+        this.totals = new long[count][];
+        this.scales = new int[count];
+        this.bigTotals = new BigDecimal[count][];
+
+        for (int s = 0; s < count; s++) {
+            int from = seriesStarts[s];
+            int to = seriesStarts[s + 1];
+
+            currencies[s] = table.currencyId(order[from]);
+            categories[s] = table.categoryId(order[from]);
+            days[s] = new int[to - from];
+
+            BigDecimal[] running = new BigDecimal[to - from];
+            BigDecimal total = BigDecimal.ZERO;
+            int scale = 0;
+
+            for (int i = from; i < to; i++) {
+                days[s][i - from] = (int) table.date(order[i]).toEpochDay();
+                total = total.add(table.delta(order[i]));
+                running[i - from] = total;
+                scale = Math.max(scale, total.scale());
+            }
+
+            scales[s] = scale;
+            totals[s] = toLongs(running, scale);
+
+            if (totals[s] == null)
+                bigTotals[s] = running;
+        }
+    }
+
+    protected DailyPrefixSums(long[] currencies, long[] categories, int[][] days, long[][] totals, int[] scales, BigDecimal[][] bigTotals) {
+        this.currencies = currencies;
+        this.categories = categories;
+        this.days = days;
+        this.totals = totals;
+        this.scales = scales;
+        this.bigTotals = bigTotals;
+    }
+
+    protected static long[] toLongs(BigDecimal[] values, int scale) {
+        long[] result = new long[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            BigDecimal scaled = values[i].setScale(scale);
+
+            if (scaled.unscaledValue().bitLength() >= Long.SIZE)
+                return null;
+
+            result[i] = scaled.unscaledValue().longValue();
+        }
+
+        return result;
+    }
+
+    public int seriesCount() {
+        return currencies.length;
+    }
+
+    // index of the series, or -(insertion point) - 1 like Arrays.binarySearch. Series are ordered by currency, then category
+    protected int find(long currencyId, long categoryId) {
+        int low = 0;
+        int high = currencies.length - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int result = Long.compare(currencies[middle], currencyId);
+
+            if (result == 0)
+                result = Long.compare(categories[middle], categoryId);
+
+            if (result < 0) {
+                low = middle + 1;
+            }else if (result > 0) {
+                high = middle - 1;
+            }else {
+                return middle;
+            }
+        }
+
+        return -low - 1;
+    }
+
+    // index of the last row of the series at or before the day, -1 if the series starts later
+    protected int rank(int series, int day) {
+        int index = Arrays.binarySearch(days[series], day);
+
+        return index >= 0 ? index : -index - 2;
+    }
+
+    // the running total up to and including the day
+    protected BigDecimal totalAt(int series, int day) {
+        int index = rank(series, day);
+
+        return index < 0 ? BigDecimal.ZERO : total(series, index);
+    }
+
+    protected BigDecimal total(int series, int index) {
+        return bigTotals[series] != null ? bigTotals[series][index] : BigDecimal.valueOf(totals[series][index], scales[series]);
+    }
+
+    // the series' total over [from, to], both inclusive
+    public BigDecimal sum(int series, LocalDate from, LocalDate to) {
+        int upper = rank(series, (int) to.toEpochDay());
+        int lower = rank(series, (int) from.toEpochDay() - 1);
+
+        if (upper <= lower)
+            return BigDecimal.ZERO;
+
+        if (bigTotals[series] != null)
+            return lower < 0 ? bigTotals[series][upper] : bigTotals[series][upper].subtract(bigTotals[series][lower]);
+
+        long result = lower < 0 ? totals[series][upper] : totals[series][upper] - totals[series][lower];
+
+        return BigDecimal.valueOf(result, scales[series]);
+    }
+
+    // totals of every series passing the filters over each of the ranges, zero totals left out
+    public List<List<CategorySummary>> sums(List<LocalDate[]> ranges, LongPredicate currencyFilter, LongPredicate categoryFilter) {
+        ArrayList<List<CategorySummary>> result = new ArrayList<>(ranges.size());
+
+        for (int r = 0; r < ranges.size(); r++)
+            result.add(new ArrayList<>());
+
+        for (int s = 0; s < seriesCount(); s++) {
+            if (!currencyFilter.test(currencies[s]) || !categoryFilter.test(categories[s]))
+                continue;
+
+            for (int r = 0; r < ranges.size(); r++) {
+                BigDecimal sum = sum(s, ranges.get(r)[0], ranges.get(r)[1]);
+
+                if (sum.signum() != 0)
+                    result.get(r).add(new CategorySummary(currencies[s], categories[s], sum));
+            }
+        }
+
+        return result;
+    }
+
+    // copy-on-write: the series the changes touch get new arrays, with each delta added to the totals from its day on,
+    // the others are shared with this instance. Costs the length of the touched series, not of the whole history
+    public DailyPrefixSums patch(List<TransactionChange> changes) {
+        TreeMap<Long, TreeMap<Long, TreeMap<Integer, BigDecimal>>> deltas = new TreeMap<>();
+
+        for (TransactionChange change : changes) {
+            deltas.computeIfAbsent(change.currencyId(), (k) -> new TreeMap<>())
+                    .computeIfAbsent(change.categoryId(), (k) -> new TreeMap<>())
+                    .merge((int) change.day().toEpochDay(), change.delta(), BigDecimal::add);
+        }
+
+        int count = seriesCount();
+
+        for (Map.Entry<Long, TreeMap<Long, TreeMap<Integer, BigDecimal>>> currency : deltas.entrySet()) {
+            for (Long category : currency.getValue().keySet()) {
+                if (find(currency.getKey(), category) < 0)
+                    count++;
+            }
+        }
+
+        DailyPrefixSums result = new DailyPrefixSums(new long[count], new long[count], new int[count][], new long[count][], new int[count], new BigDecimal[count][]);
+
+        int source = 0;
+        int target = 0;
+
+        for (Map.Entry<Long, TreeMap<Long, TreeMap<Integer, BigDecimal>>> currency : deltas.entrySet()) {
+            for (Map.Entry<Long, TreeMap<Integer, BigDecimal>> category : currency.getValue().entrySet()) {
+                int index = find(currency.getKey(), category.getKey());
+                int before = index >= 0 ? index : -index - 1;
+
+                while (source < before)
+                    copySeries(source++, result, target++);
+
+                patchSeries(index >= 0 ? source++ : -1, currency.getKey(), category.getKey(), category.getValue(), result, target++);
+            }
+        }
+
+        while (source < seriesCount())
+            copySeries(source++, result, target++);
+
+        return result;
+    }
+
+    protected void copySeries(int series, DailyPrefixSums result, int target) {
+        result.currencies[target] = currencies[series];
+        result.categories[target] = categories[series];
+        result.days[target] = days[series];
+        result.totals[target] = totals[series];
+        result.scales[target] = scales[series];
+        result.bigTotals[target] = bigTotals[series];
+    }
+
+    // series -1 is a new one
+    protected void patchSeries(int series, long currencyId, long categoryId, TreeMap<Integer, BigDecimal> deltas, DailyPrefixSums result, int target) {
+        int[] oldDays = series < 0 ? new int[0] : days[series];
+
+        int[] newDays = new int[oldDays.length + deltas.size()];
+        int size = 0;
+        int i = 0;
+
+        for (int day : deltas.keySet()) {
+            while (i < oldDays.length && oldDays[i] < day)
+                newDays[size++] = oldDays[i++];
+
+            if (i < oldDays.length && oldDays[i] == day)
+                i++;
+
+            newDays[size++] = day;
+        }
+
+        while (i < oldDays.length)
+            newDays[size++] = oldDays[i++];
+
+        newDays = Arrays.copyOf(newDays, size);
+
+        result.currencies[target] = currencyId;
+        result.categories[target] = categoryId;
+        result.days[target] = newDays;
+
+        int scale = series < 0 ? 0 : scales[series];
+
+        for (BigDecimal delta : deltas.values())
+            scale = Math.max(scale, delta.scale());
+
+        if (series < 0 || bigTotals[series] == null) {
+            try {
+                result.totals[target] = patchedLongs(series, newDays, deltas, scale);
+                result.scales[target] = scale;
+
+                return;
+            } catch (ArithmeticException ignored) {
+                // doesn't fit anymore, the totals go on as decimals
+            }
+        }
+
+        result.bigTotals[target] = patchedDecimals(series, newDays, deltas);
+    }
+
+    protected long[] patchedLongs(int series, int[] newDays, TreeMap<Integer, BigDecimal> deltas, int scale) {
+        long multiplier = series < 0 ? 1 : BigDecimal.ONE.scaleByPowerOfTen(scale - scales[series]).longValueExact();
+        long[] result = new long[newDays.length];
+
+        Iterator<Map.Entry<Integer, BigDecimal>> changes = deltas.entrySet().iterator();
+        Map.Entry<Integer, BigDecimal> next = changes.next();
+
+        int i = 0;
+        long base = 0;
+        long added = 0;
+
+        for (int d = 0; d < newDays.length; d++) {
+            if (series >= 0 && i < days[series].length && days[series][i] == newDays[d])
+                base = Math.multiplyExact(totals[series][i++], multiplier);
+
+            if (next != null && next.getKey() == newDays[d]) {
+                added = Math.addExact(added, next.getValue().setScale(scale).unscaledValue().longValueExact());
+                next = changes.hasNext() ? changes.next() : null;
+            }
+
+            result[d] = Math.addExact(base, added);
+        }
+
+        return result;
+    }
+
+    protected BigDecimal[] patchedDecimals(int series, int[] newDays, TreeMap<Integer, BigDecimal> deltas) {
+        BigDecimal[] result = new BigDecimal[newDays.length];
+
+        Iterator<Map.Entry<Integer, BigDecimal>> changes = deltas.entrySet().iterator();
+        Map.Entry<Integer, BigDecimal> next = changes.next();
+
+        int i = 0;
+        BigDecimal base = BigDecimal.ZERO;
+        BigDecimal added = BigDecimal.ZERO;
+
+        for (int d = 0; d < newDays.length; d++) {
+            if (series >= 0 && i < days[series].length && days[series][i] == newDays[d])
+                base = total(series, i++);
+
+            if (next != null && next.getKey() == newDays[d]) {
+                added = added.add(next.getValue());
+                next = changes.hasNext() ? changes.next() : null;
+            }
+
+            result[d] = base.add(added);
+        }
+
+        return result;
+    }
+
+    // the same running totals at every day either of them has one, whatever the days kept and the scales
+    public boolean sameAs(DailyPrefixSums other) {
+        return covers(other) && other.covers(this);
+    }
+
+    protected boolean covers(DailyPrefixSums other) {
+        for (int series = 0; series < seriesCount(); series++) {
+            int otherSeries = other.find(currencies[series], categories[series]);
+
+            for (int i = 0; i < days[series].length; i++) {
+                BigDecimal otherTotal = otherSeries < 0 ? BigDecimal.ZERO : other.totalAt(otherSeries, days[series][i]);
+
+                if (total(series, i).compareTo(otherTotal) != 0)
+                    return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,56 @@
+package app.finwave.backend.api.analytics;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public enum PeriodGranularity {
+    DAY,
+    WEEK,
+    MONTH,
+    QUARTER,
+    YEAR,
+    ROLLING;
+
+    // [from, to] pairs covering the range, calendar buckets are clipped to it. A rolling window ends at every day
+    // of the range and reaches back before it when needed
+    public List<LocalDate[]> periods(LocalDate from, LocalDate to, int window) {
+        ArrayList<LocalDate[]> result = new ArrayList<>();
+
+        if (this == ROLLING) {
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1))
+                result.add(new LocalDate[] {day.minusDays(window - 1), day});
+
+            return result;
+        }
+
+        for (LocalDate start = start(from); !start.isAfter(to); start = next(start)) {
+            LocalDate end = next(start).minusDays(1);
+
+            result.add(new LocalDate[] {start.isBefore(from) ? from : start, end.isAfter(to) ? to : end});
+        }
+
+        return result;
+    }
+
+    protected LocalDate start(LocalDate date) {
+        return switch (this) {
+            case DAY, ROLLING -> date;
+            case WEEK -> date.with(DayOfWeek.MONDAY);
+            case MONTH -> date.withDayOfMonth(1);
+            case QUARTER -> date.withMonth((date.getMonthValue() - 1) / 3 * 3 + 1).withDayOfMonth(1);
+            case YEAR -> date.withDayOfYear(1);
+        };
+    }
+
+    protected LocalDate next(LocalDate start) {
+        return switch (this) {
+            case DAY, ROLLING -> start.plusDays(1);
+            case WEEK -> start.plusWeeks(1);
+            case MONTH -> start.plusMonths(1);
+            case QUARTER -> start.plusMonths(3);
+            case YEAR -> start.plusYears(1);
+        };
+    }
+}
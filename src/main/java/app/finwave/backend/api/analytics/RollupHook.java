@@ -0,0 +1,67 @@
+package app.finwave.backend.api.analytics;
+
+import app.finwave.backend.api.transaction.hook.TransactionActionsHook;
+import app.finwave.backend.api.transaction.manager.records.TransactionNewInternalRecord;
+import app.finwave.backend.api.transaction.manager.records.TransactionNewRecord;
+import app.finwave.backend.database.UnitOfWork;
+import org.jooq.Record;
+
+import java.util.List;
+
+import static app.finwave.backend.jooq.Tables.TRANSACTIONS;
+
+// keeps transactions_daily_rollup in sync inside the same database transaction as the change itself
+public class RollupHook<T, Y> implements TransactionActionsHook<T, Y> {
+    // internal transfers are created and canceled in pairs, so the other side goes with them
+    protected final boolean pairs;
+
+    public RollupHook(boolean pairs) {
+        this.pairs = pairs;
+    }
+
+    protected int userId(T newRecord) {
+        if (newRecord instanceof TransactionNewInternalRecord r)
+            return r.userId();
+
+        return ((TransactionNewRecord) newRecord).userId();
+    }
+
+    @Override
+    public void apply(UnitOfWork work, T newRecord) {
+
+    }
+
+    @Override
+    public void edit(UnitOfWork work, Record record, Y editRecord, long transactionId) {
+        work.get(AnalyticsDatabase.class).updateRollup(record.get(TRANSACTIONS.OWNER_ID), List.of(transactionId), false, true);
+    }
+
+    @Override
+    public void cancel(UnitOfWork work, Record record, long transactionId) {
+        work.get(AnalyticsDatabase.class).updateRollup(record.get(TRANSACTIONS.OWNER_ID), List.of(transactionId), pairs, true);
+    }
+
+    @Override
+    public void applied(UnitOfWork work, T newRecord, long transactionId) {
+        work.get(AnalyticsDatabase.class).updateRollup(userId(newRecord), List.of(transactionId), pairs, false);
+    }
+
+    @Override
+    public void appliedBulk(UnitOfWork work, List<T> newRecords, List<Long> transactionsIds) {
+        if (newRecords.isEmpty())
+            return;
+
+        // bulk records always belong to a single user
+        work.get(AnalyticsDatabase.class).updateRollup(userId(newRecords.get(0)), transactionsIds, pairs, false);
+    }
+
+    @Override
+    public void edited(UnitOfWork work, Record record, Y editRecord, long transactionId) {
+        work.get(AnalyticsDatabase.class).updateRollup(record.get(TRANSACTIONS.OWNER_ID), List.of(transactionId), false, false);
+    }
+
+    @Override
+    public void canceled(UnitOfWork work, Record record, long transactionId) {
+
+    }
+}
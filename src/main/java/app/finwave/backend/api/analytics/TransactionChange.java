@@ -0,0 +1,13 @@
+package app.finwave.backend.api.analytics;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+// what cached analytics need to know about an applied, edited or canceled transaction. The day is
+// computed by the database, so it agrees with the grouping of the analytics queries
+public record TransactionChange(int ownerId, long categoryId, long accountId, long currencyId, OffsetDateTime createdAt, LocalDate day, BigDecimal delta) {
+    public TransactionChange negate() {
+        return new TransactionChange(ownerId, categoryId, accountId, currencyId, createdAt, day, delta.negate());
+    }
+}
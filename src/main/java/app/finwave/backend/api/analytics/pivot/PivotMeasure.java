@@ -0,0 +1,8 @@
+package app.finwave.backend.api.analytics.pivot;
+
+public enum PivotMeasure {
+    SUM,
+    COUNT,
+    MIN,
+    MAX
+}
@@ -0,0 +1,48 @@
+package app.finwave.backend.api.analytics.pivot;
+
+import app.finwave.backend.api.analytics.PeriodGranularity;
+import app.finwave.backend.api.transaction.filter.TransactionsFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// categoryDepth groups categories by their ancestor at that depth (0 is the roots), categories above it stay as they are.
+// orderBy null keeps the rows ordered by the dimensions
+public record PivotQuery(List<PivotDimension> dimensions,
+                         List<PivotMeasure> measures,
+                         PeriodGranularity period,
+                         Integer categoryDepth,
+                         PivotMeasure orderBy,
+                         boolean descending,
+                         int limit) {
+    public boolean groupsBy(PivotDimension dimension) {
+        return dimensions.contains(dimension);
+    }
+
+    public boolean computes(PivotMeasure measure) {
+        return measures.contains(measure) || measure == orderBy;
+    }
+
+    // amounts in different currencies can't be added up, unless the filter leaves just one the currency is grouped by
+    // too, and shows up in the result's dimensions
+    public PivotQuery separateCurrencies(TransactionsFilter filter) {
+        List<Long> currencies = filter.getCurrenciesIds();
+
+        if (groupsBy(PivotDimension.CURRENCY) || currencies != null && currencies.stream().distinct().count() == 1)
+            return this;
+
+        ArrayList<PivotDimension> separated = new ArrayList<>(dimensions);
+        separated.add(PivotDimension.CURRENCY);
+
+        return new PivotQuery(separated, measures, period, categoryDepth, orderBy, descending, limit);
+    }
+
+    // the daily rollup has neither accounts nor the amounts of single transactions
+    public boolean rollupCompatible(TransactionsFilter filter) {
+        return !groupsBy(PivotDimension.ACCOUNT) &&
+                !computes(PivotMeasure.MIN) &&
+                !computes(PivotMeasure.MAX) &&
+                filter.getAccountIds() == null &&
+                filter.getDescription() == null;
+    }
+}
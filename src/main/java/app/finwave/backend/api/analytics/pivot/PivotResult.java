@@ -0,0 +1,151 @@
+package app.finwave.backend.api.analytics.pivot;
+
+import app.finwave.backend.api.ApiResponse;
+import app.finwave.backend.api.category.CategoryTreeIndex;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+// {"dimensions": ["category"], "measures": ["sum"], "size": 2, "total": 12, "columns": {"category": [1, 4], "sum": [-10.00, 5]}}
+// one array per dimension and measure, the n-th row is the n-th element of each. total counts the groups before the limit
+public class PivotResult extends ApiResponse {
+    public final List<String> dimensions;
+    public final List<String> measures;
+    public final int size;
+    public final int total;
+    public final Map<String, Object> columns;
+
+    protected PivotResult(List<String> dimensions, List<String> measures, int size, int total, Map<String, Object> columns) {
+        this.dimensions = dimensions;
+        this.measures = measures;
+        this.size = size;
+        this.total = total;
+        this.columns = columns;
+    }
+
+    // folds the rows into the requested categories depth, then orders and limits them. Every measure can be merged
+    // from partial groups, so grouping by an ancestor after the database did by category gives the same result
+    public static PivotResult of(List<PivotRow> rows, PivotQuery query, CategoryTreeIndex tree) {
+        LinkedHashMap<Key, Group> groups = new LinkedHashMap<>();
+
+        for (PivotRow row : rows) {
+            long categoryId = row.categoryId();
+
+            if (query.groupsBy(PivotDimension.CATEGORY) && query.categoryDepth() != null) {
+                List<Long> ancestors = tree.ancestors(categoryId);
+
+                if (query.categoryDepth() < ancestors.size())
+                    categoryId = ancestors.get(query.categoryDepth());
+            }
+
+            groups.computeIfAbsent(new Key(row.accountId(), categoryId, row.currencyId(), row.period()), (k) -> new Group())
+                    .add(row);
+        }
+
+        ArrayList<Map.Entry<Key, Group>> entries = new ArrayList<>(groups.entrySet());
+
+        Comparator<Map.Entry<Key, Group>> order = query.orderBy() == null ?
+                Map.Entry.comparingByKey(Key.ORDER) :
+                Comparator.comparing((Map.Entry<Key, Group> e) -> e.getValue().get(query.orderBy()),
+                        Comparator.nullsLast(query.descending() ? Comparator.<BigDecimal>reverseOrder() : Comparator.<BigDecimal>naturalOrder()));
+
+        entries.sort(order);
+
+        List<Map.Entry<Key, Group>> limited = entries.subList(0, Math.min(query.limit(), entries.size()));
+        int size = limited.size();
+
+        LinkedHashMap<String, Object> columns = new LinkedHashMap<>();
+
+        for (PivotDimension dimension : query.dimensions()) {
+            if (dimension == PivotDimension.PERIOD) {
+                LocalDate[] column = new LocalDate[size];
+
+                for (int i = 0; i < size; i++)
+                    column[i] = limited.get(i).getKey().period();
+
+                columns.put(name(dimension), column);
+
+                continue;
+            }
+
+            long[] column = new long[size];
+
+            for (int i = 0; i < size; i++) {
+                Key key = limited.get(i).getKey();
+
+                column[i] = switch (dimension) {
+                    case ACCOUNT -> key.accountId();
+                    case CATEGORY -> key.categoryId();
+                    default -> key.currencyId();
+                };
+            }
+
+            columns.put(name(dimension), column);
+        }
+
+        for (PivotMeasure measure : query.measures()) {
+            if (measure == PivotMeasure.COUNT) {
+                long[] column = new long[size];
+
+                for (int i = 0; i < size; i++)
+                    column[i] = limited.get(i).getValue().count;
+
+                columns.put(name(measure), column);
+
+                continue;
+            }
+
+            BigDecimal[] column = new BigDecimal[size];
+
+            for (int i = 0; i < size; i++)
+                column[i] = limited.get(i).getValue().get(measure);
+
+            columns.put(name(measure), column);
+        }
+
+        return new PivotResult(query.dimensions().stream().map(PivotResult::name).toList(),
+                query.measures().stream().map(PivotResult::name).toList(),
+                size,
+                entries.size(),
+                columns);
+    }
+
+    protected static String name(Enum<?> value) {
+        return value.name().toLowerCase();
+    }
+
+    protected record Key(long accountId, long categoryId, long currencyId, LocalDate period) {
+        static final Comparator<Key> ORDER = Comparator.comparingLong(Key::accountId)
+                .thenComparingLong(Key::categoryId)
+                .thenComparingLong(Key::currencyId)
+                .thenComparing(Key::period, Comparator.nullsFirst(Comparator.<LocalDate>naturalOrder()));
+    }
+
+    protected static class Group {
+        protected BigDecimal sum = BigDecimal.ZERO;
+        protected long count;
+        protected BigDecimal min;
+        protected BigDecimal max;
+
+        protected void add(PivotRow row) {
+            sum = sum.add(row.sum());
+            count += row.count();
+
+            if (row.min() != null && (min == null || row.min().compareTo(min) < 0))
+                min = row.min();
+
+            if (row.max() != null && (max == null || row.max().compareTo(max) > 0))
+                max = row.max();
+        }
+
+        protected BigDecimal get(PivotMeasure measure) {
+            return switch (measure) {
+                case SUM -> sum;
+                case COUNT -> BigDecimal.valueOf(count);
+                case MIN -> min;
+                case MAX -> max;
+            };
+        }
+    }
+}
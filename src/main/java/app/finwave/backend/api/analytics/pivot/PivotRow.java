@@ -0,0 +1,9 @@
+package app.finwave.backend.api.analytics.pivot;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// one group as the database returns it, dimensions that aren't grouped by are 0 (or null for the period),
+// min and max are null when they weren't requested
+public record PivotRow(long accountId, long categoryId, long currencyId, LocalDate period, BigDecimal sum, long count, BigDecimal min, BigDecimal max) {
+}
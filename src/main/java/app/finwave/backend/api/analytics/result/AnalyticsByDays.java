@@ -1,28 +1,101 @@
 package app.finwave.backend.api.analytics.result;
 
+import app.finwave.backend.api.analytics.TransactionChange;
+import app.finwave.backend.api.currency.excange.ExchangeRates;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import org.jooq.Record6;
 import app.finwave.backend.api.ApiResponse;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.*;
 
+@JsonAdapter(AnalyticsByDays.Adapter.class)
 public class AnalyticsByDays extends ApiResponse {
-    protected HashMap<LocalDate, ArrayList<CategorySummary>> total = new HashMap<>();
+    protected final SummaryTable table;
+    protected final boolean stale;
 
-    public static final AnalyticsByDays EMPTY = new AnalyticsByDays(List.of());
+    public static final AnalyticsByDays EMPTY = new AnalyticsByDays(SummaryTable.EMPTY);
 
     public AnalyticsByDays(List<Record6<Long, Long, Integer, Integer, Integer, BigDecimal>> result) {
-        result.forEach((r) -> {
-            LocalDate date = LocalDate.of(r.component5(), r.component4(), r.component3());
+        SummaryTable.Builder builder = new SummaryTable.Builder();
 
-            if (!total.containsKey(date))
-                total.put(date, new ArrayList<>());
+        result.forEach((r) -> builder.add(LocalDate.of(r.component5(), r.component4(), r.component3()),
+                r.component1(), r.component2(), r.component6()));
 
-            total.get(date)
-                    .add(new CategorySummary(r.component1(), r.component2(), r.component6()));
-        });
+        this.table = builder.build();
+        this.stale = false;
+    }
+
+    public AnalyticsByDays(Map<LocalDate, List<CategorySummary>> total) {
+        SummaryTable.Builder builder = new SummaryTable.Builder();
+
+        total.forEach((date, summaries) -> summaries.forEach((s) -> builder.add(date, s.currencyId(), s.categoryId(), s.delta())));
+
+        this.table = builder.build();
+        this.stale = false;
+    }
+
+    public AnalyticsByDays(SummaryTable table) {
+        this(table, false);
+    }
+
+    public AnalyticsByDays(SummaryTable table, boolean stale) {
+        this.table = table;
+        this.stale = stale;
+    }
+
+    // same rows, flagged as served while a fresh result is being computed
+    public AnalyticsByDays asStale() {
+        return stale ? this : new AnalyticsByDays(table, true);
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public SummaryTable getTable() {
+        return table;
+    }
+
+    public List<CategorySummary> get(LocalDate date) {
+        return table.get(date);
+    }
+
+    public Map<LocalDate, List<CategorySummary>> getTotal() {
+        return table.toMap();
+    }
+
+    public AnalyticsByDays patch(List<TransactionChange> changes) {
+        return new AnalyticsByDays(table.patch(changes, TransactionChange::day));
+    }
+
+    public AnalyticsByDays convert(ExchangeRates rates) {
+        return new AnalyticsByDays(table.convert(rates));
+    }
+
+    public boolean sameAs(AnalyticsByDays other) {
+        return table.sameAs(other.table);
+    }
+
+    public static class Adapter extends TypeAdapter<AnalyticsByDays> {
+        @Override
+        public void write(JsonWriter out, AnalyticsByDays value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+
+            value.table.write(out, value.stale);
+        }
+
+        @Override
+        public AnalyticsByDays read(JsonReader in) throws IOException {
+            return new AnalyticsByDays(SummaryTable.read(in));
+        }
     }
 }
@@ -1,52 +1,105 @@
 package app.finwave.backend.api.analytics.result;
 
-import org.flywaydb.core.internal.util.Pair;
+import app.finwave.backend.api.analytics.TransactionChange;
+import app.finwave.backend.api.currency.excange.ExchangeRates;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import org.jooq.Record5;
 import app.finwave.backend.api.ApiResponse;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.*;
 
+@JsonAdapter(AnalyticsByMonths.Adapter.class)
 public class AnalyticsByMonths extends ApiResponse {
-    protected Map<LocalDate, List<CategorySummary>> total;
+    protected final SummaryTable table;
+    protected final boolean stale;
 
-    public static final AnalyticsByMonths EMPTY = new AnalyticsByMonths(List.of());
+    public static final AnalyticsByMonths EMPTY = new AnalyticsByMonths(SummaryTable.EMPTY);
 
     public AnalyticsByMonths(List<Record5<Long, Long, Integer, Integer, BigDecimal>> result) {
-        HashMap<LocalDate, ArrayList<CategorySummary>> tempMap = new HashMap<>();
+        SummaryTable.Builder builder = new SummaryTable.Builder();
 
-        result.forEach((r) -> {
-            LocalDate date = LocalDate.of(r.component4(), r.component3(), 1);
+        result.forEach((r) -> builder.add(LocalDate.of(r.component4(), r.component3(), 1),
+                r.component1(), r.component2(), r.component5()));
 
-            if (!tempMap.containsKey(date))
-                tempMap.put(date, new ArrayList<>());
+        this.table = builder.build();
+        this.stale = false;
+    }
+
+    public AnalyticsByMonths(Map<LocalDate, List<CategorySummary>> total) {
+        SummaryTable.Builder builder = new SummaryTable.Builder();
+
+        total.forEach((date, summaries) -> summaries.forEach((s) -> builder.add(date, s.currencyId(), s.categoryId(), s.delta())));
+
+        this.table = builder.build();
+        this.stale = false;
+    }
+
+    public AnalyticsByMonths(SummaryTable table) {
+        this(table, false);
+    }
+
+    public AnalyticsByMonths(SummaryTable table, boolean stale) {
+        this.table = table;
+        this.stale = stale;
+    }
+
+    // same rows, flagged as served while a fresh result is being computed
+    public AnalyticsByMonths asStale() {
+        return stale ? this : new AnalyticsByMonths(table, true);
+    }
 
-            tempMap.get(date)
-                    .add(new CategorySummary(r.component1(), r.component2(), r.component5()));
-        });
+    public boolean isStale() {
+        return stale;
+    }
 
-        HashMap<LocalDate, List<CategorySummary>> resultMap = new HashMap<>();
-        tempMap.forEach((k, v) -> resultMap.put(k, Collections.unmodifiableList(v)));
+    public SummaryTable getTable() {
+        return table;
+    }
 
-        this.total = Collections.unmodifiableMap(resultMap);
+    public List<CategorySummary> get(LocalDate month) {
+        return table.get(month.withDayOfMonth(1));
     }
 
     public Map<LocalDate, List<CategorySummary>> getTotal() {
-        return total;
+        return table.toMap();
+    }
+
+    public AnalyticsByMonths patch(List<TransactionChange> changes) {
+        return new AnalyticsByMonths(table.patch(changes, (c) -> c.day().withDayOfMonth(1)));
+    }
+
+    public AnalyticsByMonths convert(ExchangeRates rates) {
+        return new AnalyticsByMonths(table.convert(rates));
+    }
+
+    public boolean sameAs(AnalyticsByMonths other) {
+        return table.sameAs(other.table);
     }
 
     public List<CategorySummary> mergeAll() {
-        HashMap<Pair<Long, Long>, BigDecimal> mergedMap = new HashMap<>();
+        return table.mergeAll();
+    }
 
-        total.forEach((k, v) -> v.forEach((e) -> {
-            Pair<Long, Long> pair = Pair.of(e.currencyId(), e.categoryId());
+    public static class Adapter extends TypeAdapter<AnalyticsByMonths> {
+        @Override
+        public void write(JsonWriter out, AnalyticsByMonths value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
 
-            mergedMap.put(pair, mergedMap.getOrDefault(pair, BigDecimal.ZERO).add(e.delta()));
-        }));
+            value.table.write(out, value.stale);
+        }
 
-        return mergedMap.entrySet().stream()
-                .map((e) -> new CategorySummary(e.getKey().getLeft(), e.getKey().getRight(), e.getValue()))
-                .toList();
+        @Override
+        public AnalyticsByMonths read(JsonReader in) throws IOException {
+            return new AnalyticsByMonths(SummaryTable.read(in));
+        }
     }
 }
@@ -0,0 +1,18 @@
+package app.finwave.backend.api.analytics.result;
+
+import app.finwave.backend.api.ApiResponse;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class AnalyticsByPeriods extends ApiResponse {
+    public final List<Period> periods;
+    public final Boolean stale;
+
+    public AnalyticsByPeriods(List<Period> periods, boolean stale) {
+        this.periods = periods;
+        this.stale = stale ? true : null;
+    }
+
+    public record Period(LocalDate from, LocalDate to, List<CategorySummary> total) {}
+}
@@ -6,8 +6,16 @@ import java.util.List;
 
 public class CategoriesAnalytics extends ApiResponse {
     public final List<CategorySummaryWithBudget> result;
+    public final Boolean stale;
 
     public CategoriesAnalytics(List<CategorySummaryWithBudget> result) {
+        this(result, false);
+    }
+
+    public CategoriesAnalytics(List<CategorySummaryWithBudget> result, boolean stale) {
         this.result = result;
+
+        // left out of the json unless set
+        this.stale = stale ? true : null;
     }
 }
@@ -0,0 +1,457 @@
+package app.finwave.backend.api.analytics.result;
+
+import app.finwave.backend.api.analytics.TransactionChange;
+import app.finwave.backend.api.currency.excange.ExchangeRates;
+import app.finwave.backend.utils.IndexSort;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+
+// (date, currency, category) -> delta rows kept in primitive columns, sorted by date, currency and category
+// with one row per key. A delta is stored as its unscaled long plus its scale, the ones that don't fit
+// go to the overflow column, which isn't allocated at all while every delta fits
+public final class SummaryTable {
+    public static final SummaryTable EMPTY = new Builder().build();
+
+    protected static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+            10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+            1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    protected final int[] days;
+    protected final long[] currencies;
+    protected final long[] categories;
+    protected final long[] amounts;
+    protected final byte[] scales;
+    protected final BigDecimal[] overflow;
+
+    // distinct days and the row each of them starts at, dayStarts ends with the rows count
+    protected final int[] dayKeys;
+    protected final int[] dayStarts;
+
+    protected SummaryTable(int[] days, long[] currencies, long[] categories, long[] amounts, byte[] scales, BigDecimal[] overflow) {
+        this.days = days;
+        this.currencies = currencies;
+        this.categories = categories;
+        this.amounts = amounts;
+        this.scales = scales;
+        this.overflow = overflow;
+
+        int distinct = 0;
+
+        for (int i = 0; i < days.length; i++) {
+            if (i == 0 || days[i] != days[i - 1])
+                distinct++;
+        }
+
+        this.dayKeys = new int[distinct];
+        this.dayStarts = new int[distinct + 1];
+
+        for (int i = 0, d = 0; i < days.length; i++) {
+            if (i == 0 || days[i] != days[i - 1]) {
+                dayKeys[d] = days[i];
+                dayStarts[d] = i;
+                d++;
+            }
+        }
+
+        dayStarts[distinct] = days.length;
+    }
+
+    public int size() {
+        return days.length;
+    }
+
+    public int daysCount() {
+        return dayKeys.length;
+    }
+
+    public LocalDate day(int dayIndex) {
+        return LocalDate.ofEpochDay(dayKeys[dayIndex]);
+    }
+
+    public int rowsFrom(int dayIndex) {
+        return dayStarts[dayIndex];
+    }
+
+    public int rowsTo(int dayIndex) {
+        return dayStarts[dayIndex + 1];
+    }
+
+    // index for day(), rowsFrom() and rowsTo(), or a negative value when there are no rows at that date
+    public int indexOf(LocalDate date) {
+        return Arrays.binarySearch(dayKeys, (int) date.toEpochDay());
+    }
+
+    public LocalDate date(int row) {
+        return LocalDate.ofEpochDay(days[row]);
+    }
+
+    public long currencyId(int row) {
+        return currencies[row];
+    }
+
+    public long categoryId(int row) {
+        return categories[row];
+    }
+
+    public BigDecimal delta(int row) {
+        if (overflow != null && overflow[row] != null)
+            return overflow[row];
+
+        return BigDecimal.valueOf(amounts[row], scales[row]);
+    }
+
+    protected int signum(int row) {
+        if (overflow != null && overflow[row] != null)
+            return overflow[row].signum();
+
+        return Long.signum(amounts[row]);
+    }
+
+    public CategorySummary summary(int row) {
+        return new CategorySummary(currencies[row], categories[row], delta(row));
+    }
+
+    public List<CategorySummary> get(LocalDate date) {
+        int index = indexOf(date);
+
+        if (index < 0)
+            return null;
+
+        ArrayList<CategorySummary> result = new ArrayList<>(rowsTo(index) - rowsFrom(index));
+
+        for (int row = rowsFrom(index); row < rowsTo(index); row++)
+            result.add(summary(row));
+
+        return Collections.unmodifiableList(result);
+    }
+
+    public Map<LocalDate, List<CategorySummary>> toMap() {
+        HashMap<LocalDate, List<CategorySummary>> result = new HashMap<>();
+
+        for (int d = 0; d < dayKeys.length; d++)
+            result.put(day(d), get(day(d)));
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    // sums of every (currency, category) over all the dates, walking the columns in (currency, category) order.
+    // A sum is kept as an unscaled long at the largest scale of its rows, a decimal is made once it's done, or as
+    // soon as it doesn't fit
+    public List<CategorySummary> mergeAll() {
+        int[] order = IndexSort.order(days.length, (a, b) -> {
+            int result = Long.compare(currencies[a], currencies[b]);
+
+            return result != 0 ? result : Long.compare(categories[a], categories[b]);
+        });
+
+        ArrayList<CategorySummary> result = new ArrayList<>();
+
+        for (int i = 0; i < order.length; ) {
+            int row = order[i];
+
+            long sum = 0;
+            int scale = overflow != null && overflow[row] != null ? 0 : scales[row];
+            BigDecimal bigSum = null;
+
+            int j = i;
+
+            for (; j < order.length && currencies[order[j]] == currencies[row] && categories[order[j]] == categories[row]; j++) {
+                int next = order[j];
+
+                if (bigSum == null) {
+                    try {
+                        if (overflow != null && overflow[next] != null)
+                            throw new ArithmeticException();
+
+                        long amount = amounts[next];
+
+                        if (scales[next] > scale) {
+                            sum = Math.multiplyExact(sum, powerOfTen(scales[next] - scale));
+                            scale = scales[next];
+                        }else if (scales[next] < scale) {
+                            amount = Math.multiplyExact(amount, powerOfTen(scale - scales[next]));
+                        }
+
+                        sum = Math.addExact(sum, amount);
+
+                        continue;
+                    } catch (ArithmeticException e) {
+                        bigSum = BigDecimal.valueOf(sum, scale);
+                    }
+                }
+
+                bigSum = bigSum.add(delta(next));
+            }
+
+            result.add(new CategorySummary(currencies[row], categories[row], bigSum != null ? bigSum : BigDecimal.valueOf(sum, scale)));
+            i = j;
+        }
+
+        return Collections.unmodifiableList(result);
+    }
+
+    protected static long powerOfTen(int exponent) {
+        if (exponent >= POWERS_OF_TEN.length)
+            throw new ArithmeticException();
+
+        return POWERS_OF_TEN[exponent];
+    }
+
+    // copy-on-write: this table is left untouched. Groups whose sum drops to zero are removed, they compare as absent anyway
+    public SummaryTable patch(List<TransactionChange> changes, Function<TransactionChange, LocalDate> key) {
+        Builder builder = toBuilder();
+
+        for (TransactionChange change : changes)
+            builder.add(key.apply(change), change.currencyId(), change.categoryId(), change.delta());
+
+        return builder.build(true);
+    }
+
+    // rows in the target currency, merged per (date, category). Currencies without a rate keep their rows as they are
+    public SummaryTable convert(ExchangeRates rates) {
+        Builder builder = new Builder();
+
+        for (int row = 0; row < size(); row++) {
+            BigDecimal converted = rates.convert(currencies[row], delta(row));
+
+            if (converted == null) {
+                builder.add(days[row], currencies[row], categories[row], delta(row));
+
+                continue;
+            }
+
+            builder.add(days[row], rates.targetCurrencyId(), categories[row], converted);
+        }
+
+        return builder.build();
+    }
+
+    // zero sums and the scale of the decimals don't matter when comparing results
+    public boolean sameAs(SummaryTable other) {
+        int i = 0;
+        int j = 0;
+
+        while (true) {
+            while (i < size() && signum(i) == 0)
+                i++;
+
+            while (j < other.size() && other.signum(j) == 0)
+                j++;
+
+            if (i == size() || j == other.size())
+                return i == size() && j == other.size();
+
+            if (days[i] != other.days[j] || currencies[i] != other.currencies[j] || categories[i] != other.categories[j])
+                return false;
+
+            if (delta(i).compareTo(other.delta(j)) != 0)
+                return false;
+
+            i++;
+            j++;
+        }
+    }
+
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+
+        for (int row = 0; row < size(); row++)
+            builder.add(days[row], currencies[row], categories[row], delta(row));
+
+        return builder;
+    }
+
+    // {"total": {"2024-05-10": [{"currencyId": 1, "categoryId": 2, "delta": -10.00}, ...], ...}}
+    public void write(JsonWriter out) throws IOException {
+        write(out, false);
+    }
+
+    // a stale result also gets "stale": true next to the total
+    public void write(JsonWriter out, boolean stale) throws IOException {
+        out.beginObject();
+        out.name("total");
+        out.beginObject();
+
+        for (int d = 0; d < dayKeys.length; d++) {
+            out.name(day(d).toString());
+            out.beginArray();
+
+            for (int row = rowsFrom(d); row < rowsTo(d); row++) {
+                out.beginObject();
+                out.name("currencyId").value(currencies[row]);
+                out.name("categoryId").value(categories[row]);
+                out.name("delta").value(delta(row));
+                out.endObject();
+            }
+
+            out.endArray();
+        }
+
+        out.endObject();
+
+        if (stale)
+            out.name("stale").value(true);
+
+        out.endObject();
+    }
+
+    public static SummaryTable read(JsonReader in) throws IOException {
+        Builder builder = new Builder();
+
+        in.beginObject();
+
+        while (in.hasNext()) {
+            if (!in.nextName().equals("total") || in.peek() == JsonToken.NULL) {
+                in.skipValue();
+                continue;
+            }
+
+            in.beginObject();
+
+            while (in.hasNext()) {
+                LocalDate date = LocalDate.parse(in.nextName());
+
+                in.beginArray();
+
+                while (in.hasNext()) {
+                    long currencyId = 0;
+                    long categoryId = 0;
+                    BigDecimal delta = BigDecimal.ZERO;
+
+                    in.beginObject();
+
+                    while (in.hasNext()) {
+                        switch (in.nextName()) {
+                            case "currencyId" -> currencyId = in.nextLong();
+                            case "categoryId" -> categoryId = in.nextLong();
+                            case "delta" -> delta = new BigDecimal(in.nextString());
+                            default -> in.skipValue();
+                        }
+                    }
+
+                    in.endObject();
+
+                    builder.add(date, currencyId, categoryId, delta);
+                }
+
+                in.endArray();
+            }
+
+            in.endObject();
+        }
+
+        in.endObject();
+
+        return builder.build();
+    }
+
+    public static class Builder {
+        protected int size;
+        protected int[] days = new int[16];
+        protected long[] currencies = new long[16];
+        protected long[] categories = new long[16];
+        protected BigDecimal[] deltas = new BigDecimal[16];
+
+        public Builder add(LocalDate date, long currencyId, long categoryId, BigDecimal delta) {
+            return add((int) date.toEpochDay(), currencyId, categoryId, delta);
+        }
+
+        protected Builder add(int day, long currencyId, long categoryId, BigDecimal delta) {
+            if (size == days.length) {
+                int capacity = size * 2;
+
+                days = Arrays.copyOf(days, capacity);
+                currencies = Arrays.copyOf(currencies, capacity);
+                categories = Arrays.copyOf(categories, capacity);
+                deltas = Arrays.copyOf(deltas, capacity);
+            }
+
+            days[size] = day;
+            currencies[size] = currencyId;
+            categories[size] = categoryId;
+            deltas[size] = delta;
+            size++;
+
+            return this;
+        }
+
+        public SummaryTable build() {
+            return build(false);
+        }
+
+        // rows with the same key are summed up
+        public SummaryTable build(boolean dropZeros) {
+            int[] order = IndexSort.order(size, (a, b) -> {
+                int result = Integer.compare(days[a], days[b]);
+
+                if (result == 0)
+                    result = Long.compare(currencies[a], currencies[b]);
+
+                return result != 0 ? result : Long.compare(categories[a], categories[b]);
+            });
+
+            int[] outDays = new int[size];
+            long[] outCurrencies = new long[size];
+            long[] outCategories = new long[size];
+            BigDecimal[] outDeltas = new BigDecimal[size];
+            int count = 0;
+
+            for (int i = 0; i < size; ) {
+                int row = order[i];
+                BigDecimal sum = deltas[row];
+
+                int j = i + 1;
+
+                for (; j < size && days[order[j]] == days[row] && currencies[order[j]] == currencies[row] && categories[order[j]] == categories[row]; j++)
+                    sum = sum.add(deltas[order[j]]);
+
+                i = j;
+
+                if (dropZeros && sum.signum() == 0)
+                    continue;
+
+                outDays[count] = days[row];
+                outCurrencies[count] = currencies[row];
+                outCategories[count] = categories[row];
+                outDeltas[count] = sum;
+                count++;
+            }
+
+            long[] amounts = new long[count];
+            byte[] scales = new byte[count];
+            BigDecimal[] overflow = null;
+
+            for (int i = 0; i < count; i++) {
+                BigDecimal delta = outDeltas[i];
+
+                if (delta.scale() >= Byte.MIN_VALUE && delta.scale() <= Byte.MAX_VALUE && delta.unscaledValue().bitLength() < Long.SIZE) {
+                    amounts[i] = delta.unscaledValue().longValue();
+                    scales[i] = (byte) delta.scale();
+
+                    continue;
+                }
+
+                if (overflow == null)
+                    overflow = new BigDecimal[count];
+
+                overflow[i] = delta;
+            }
+
+            return new SummaryTable(Arrays.copyOf(outDays, count),
+                    Arrays.copyOf(outCurrencies, count),
+                    Arrays.copyOf(outCategories, count),
+                    amounts,
+                    scales,
+                    overflow);
+        }
+    }
+}
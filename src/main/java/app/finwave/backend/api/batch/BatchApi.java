@@ -0,0 +1,173 @@
+package app.finwave.backend.api.batch;
+
+import app.finwave.backend.api.ApiResponse;
+import app.finwave.backend.api.ai.tools.FakeRequest;
+import app.finwave.backend.api.ai.tools.FakeResponse;
+import app.finwave.backend.api.auth.AuthenticationFailException;
+import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.general.HttpConfig;
+import app.finwave.backend.database.QuerySource;
+import app.finwave.backend.http.ApiMessage;
+import app.finwave.backend.jooq.tables.records.UsersSessionsRecord;
+import app.finwave.backend.metrics.MetricsRegistry;
+import app.finwave.backend.utils.params.InvalidParameterException;
+import app.finwave.backend.utils.params.ParamsValidator;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spark.HaltException;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// several GET routes in one request, authenticated once. Sub-requests are dispatched in-process the way the AI tools
+// do it, with a FakeRequest carrying the session, and run concurrently. Only reads are registered here, so their
+// order doesn't matter and none of them needs the primary afterwards
+@Singleton
+public class BatchApi {
+    protected static final Logger log = LoggerFactory.getLogger(BatchApi.class);
+
+    protected HttpConfig.BatchConfig config;
+    protected ThreadPoolExecutor executor;
+
+    protected final ConcurrentHashMap<String, Route> routes = new ConcurrentHashMap<>();
+
+    @Inject
+    public BatchApi(Configs configs) {
+        this(configs.getState(new HttpConfig()).batch);
+    }
+
+    protected BatchApi(HttpConfig.BatchConfig config) {
+        this.config = config;
+
+        AtomicInteger threadsCounter = new AtomicInteger();
+
+        this.executor = MetricsRegistry.executor("batch", new ThreadPoolExecutor(
+                config.threads,
+                config.threads,
+                1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(config.queueSize),
+                (r) -> {
+                    Thread thread = new Thread(r, "batch-" + threadsCounter.incrementAndGet());
+                    thread.setDaemon(true);
+
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        ));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    // the handler itself, without ETags or streaming, both of which need the real response
+    public void register(String path, Route route) {
+        routes.put(path, route);
+    }
+
+    public Object batch(Request request, Response response) {
+        UsersSessionsRecord session = request.attribute("session");
+
+        BatchRequest batchRequest = ParamsValidator.bodyObject(request, BatchRequest.class)
+                .matches((r) -> r.requests != null && !r.requests.isEmpty() && r.requests.size() <= config.maxRequests)
+                .matches((r) -> r.requests.stream().allMatch((s) -> s != null && s.route != null))
+                .require();
+
+        // nothing was written, the user's next reads can still go to replicas
+        request.attribute("readOnly", true);
+
+        List<SubRequest> requests = batchRequest.requests;
+        List<CompletableFuture<Result>> futures = new ArrayList<>(requests.size());
+
+        // sub-requests run here too, each one under its own source
+        String source = QuerySource.current();
+
+        // the last one runs on this thread, which would be waiting anyway
+        for (int i = 0; i < requests.size() - 1; i++) {
+            SubRequest subRequest = requests.get(i);
+
+            futures.add(CompletableFuture.supplyAsync(() -> run(session, subRequest), executor));
+        }
+
+        Result last = run(session, requests.get(requests.size() - 1));
+
+        QuerySource.set(source);
+
+        List<Result> results = new ArrayList<>(requests.size());
+
+        for (CompletableFuture<Result> future : futures)
+            results.add(future.join());
+
+        results.add(last);
+
+        return new BatchResponse(results);
+    }
+
+    // errors are mapped like HttpWorker does for whole requests, one failed sub-request doesn't fail the others
+    protected Result run(UsersSessionsRecord session, SubRequest subRequest) {
+        Route route = routes.get(subRequest.route);
+
+        if (route == null)
+            return new Result(subRequest.route, 404, ApiMessage.of("Unknown route"));
+
+        FakeRequest request = new FakeRequest(subRequest.params == null ? Map.of() : subRequest.params);
+        request.attribute("session", session);
+
+        FakeResponse response = new FakeResponse();
+
+        QuerySource.set("batch " + subRequest.route);
+
+        try {
+            Object body = route.handle(request, response);
+
+            return new Result(subRequest.route, response.status() == 0 ? 200 : response.status(), body);
+        } catch (HaltException e) {
+            return new Result(subRequest.route, e.statusCode(), e.body() == null ? null : ApiMessage.of(e.body()));
+        } catch (InvalidParameterException e) {
+            return new Result(subRequest.route, 400, ApiMessage.of(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return new Result(subRequest.route, 400, ApiMessage.of("Illegal arguments"));
+        } catch (AuthenticationFailException e) {
+            return new Result(subRequest.route, 401, ApiMessage.of("Authentication fail"));
+        } catch (Exception e) {
+            log.error(subRequest.route + " (batch) - 500: ", e);
+
+            return new Result(subRequest.route, 500, ApiMessage.of("Server error"));
+        } finally {
+            QuerySource.clear();
+        }
+    }
+
+    record BatchRequest(List<SubRequest> requests) {}
+
+    record SubRequest(String route, Map<String, String> params) {}
+
+    static class Result {
+        public final String route;
+        public final int status;
+        public final Object body;
+
+        public Result(String route, int status, Object body) {
+            this.route = route;
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    static class BatchResponse extends ApiResponse {
+        public final List<Result> results;
+
+        public BatchResponse(List<Result> results) {
+            this.results = results;
+        }
+    }
+}
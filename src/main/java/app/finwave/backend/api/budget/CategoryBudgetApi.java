@@ -1,7 +1,7 @@
 package app.finwave.backend.api.budget;
 
 import app.finwave.backend.api.ApiResponse;
-import app.finwave.backend.api.category.CategoryDatabase;
+import app.finwave.backend.api.category.CategoryManager;
 import app.finwave.backend.api.currency.CurrencyDatabase;
 import app.finwave.backend.api.event.WebSocketWorker;
 import app.finwave.backend.api.event.messages.response.NotifyUpdate;
@@ -26,14 +26,14 @@ import static spark.Spark.halt;
 public class CategoryBudgetApi {
     protected CategoryBudgetManager manager;
     protected WebSocketWorker socketWorker;
-    protected CategoryDatabase categoryDatabase;
+    protected CategoryManager categoryManager;
     protected CurrencyDatabase currencyDatabase;
 
     @Inject
-    public CategoryBudgetApi(CategoryBudgetManager manager, WebSocketWorker socketWorker, DatabaseWorker databaseWorker) {
+    public CategoryBudgetApi(CategoryBudgetManager manager, WebSocketWorker socketWorker, DatabaseWorker databaseWorker, CategoryManager categoryManager) {
         this.manager = manager;
         this.socketWorker = socketWorker;
-        this.categoryDatabase = databaseWorker.get(CategoryDatabase.class);
+        this.categoryManager = categoryManager;
         this.currencyDatabase = databaseWorker.get(CurrencyDatabase.class);
     }
 
@@ -42,7 +42,7 @@ public class CategoryBudgetApi {
 
         long categoryId = ParamsValidator
                 .longV(request, "categoryId")
-                .matches((id) -> categoryDatabase.userOwnCategory(sessionsRecord.getUserId(), id))
+                .matches((id) -> categoryManager.getTree(sessionsRecord.getUserId()).contains(id))
                 .require();
 
         long currencyId = ParamsValidator
@@ -88,7 +88,7 @@ public class CategoryBudgetApi {
 
         long categoryId = ParamsValidator
                 .longV(request, "categoryId")
-                .matches((id) -> categoryDatabase.userOwnCategory(sessionsRecord.getUserId(), id))
+                .matches((id) -> categoryManager.getTree(sessionsRecord.getUserId()).contains(id))
                 .require();
 
         long currencyId = ParamsValidator
@@ -142,6 +142,8 @@ public class CategoryBudgetApi {
         if (!result)
             halt(500);
 
+        socketWorker.sendToUser(sessionsRecord.getUserId(), new NotifyUpdate("categoryBudget"));
+
         response.status(200);
 
         return ApiMessage.of("Category budget removed");
@@ -25,11 +25,13 @@ public class CategoryApi {
     protected CategoryDatabase database;
     protected TransactionConfig config;
     protected WebSocketWorker socketWorker;
+    protected CategoryManager manager;
 
     @Inject
-    public CategoryApi(DatabaseWorker databaseWorker, Configs configs, WebSocketWorker socketWorker) {
+    public CategoryApi(DatabaseWorker databaseWorker, Configs configs, WebSocketWorker socketWorker, CategoryManager manager) {
         this.database = databaseWorker.get(CategoryDatabase.class);
         this.config = configs.getState(new TransactionConfig());
+        this.manager = manager;
 
         this.socketWorker = socketWorker;
     }
@@ -70,6 +72,8 @@ public class CategoryApi {
         if (categoryId.isEmpty())
             halt(500);
 
+        manager.invalidate(sessionsRecord.getUserId());
+
         socketWorker.sendToUser(sessionsRecord.getUserId(), new NotifyUpdate("categories"));
 
         response.status(201);
@@ -101,6 +105,7 @@ public class CategoryApi {
                 .require();
 
         database.editCategoryType(categoryId, (short) type);
+        manager.invalidate(sessionsRecord.getUserId());
 
         socketWorker.sendToUser(sessionsRecord.getUserId(), new NotifyUpdate("categories"));
 
@@ -136,6 +141,7 @@ public class CategoryApi {
             }
 
             database.setParentToRoot(categoryId);
+            manager.invalidate(sessionsRecord.getUserId());
 
             socketWorker.sendToUser(sessionsRecord.getUserId(), new NotifyUpdate("categories"));
 
@@ -145,6 +151,9 @@ public class CategoryApi {
         }
 
         database.editCategoryParentId(categoryId, parentId.get());
+        manager.invalidate(sessionsRecord.getUserId());
+
+        socketWorker.sendToUser(sessionsRecord.getUserId(), new NotifyUpdate("categories"));
 
         response.status(200);
 
@@ -165,6 +174,7 @@ public class CategoryApi {
                 .require();
 
         database.editCategoryName(categoryId, name);
+        manager.invalidate(sessionsRecord.getUserId());
 
         socketWorker.sendToUser(sessionsRecord.getUserId(), new NotifyUpdate("categories"));
 
@@ -1,4 +1,59 @@
 package app.finwave.backend.api.category;
 
+import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.general.CachingConfig;
+import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.utils.CacheHandyBuilder;
+import com.google.common.cache.LoadingCache;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@Singleton
 public class CategoryManager {
+    protected CategoryDatabase database;
+
+    protected CachingConfig cachingConfig;
+
+    protected LoadingCache<Integer, CategoryTreeIndex> treeCache;
+
+    protected ArrayList<Consumer<Integer>> cacheInvalidationListeners = new ArrayList<>();
+
+    @Inject
+    public CategoryManager(DatabaseWorker worker, Configs configs) {
+        this.database = worker.get(CategoryDatabase.class);
+
+        this.cachingConfig = configs.getState(new CachingConfig());
+
+        this.treeCache = CacheHandyBuilder.loading(
+                1, TimeUnit.DAYS,
+                cachingConfig.categories.maxTrees,
+                (userId) -> new CategoryTreeIndex(database.getCategories(userId))
+        );
+    }
+
+    public void addInvalidationListener(Consumer<Integer> listener) {
+        cacheInvalidationListeners.add(listener);
+    }
+
+    public CategoryTreeIndex getTree(int userId) {
+        try {
+            return treeCache.get(userId);
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+
+        return CategoryTreeIndex.EMPTY;
+    }
+
+    // called after every change of the user's categories
+    public void invalidate(int userId) {
+        treeCache.invalidate(userId);
+
+        cacheInvalidationListeners.forEach((listener) -> listener.accept(userId));
+    }
 }
@@ -0,0 +1,181 @@
+package app.finwave.backend.api.category;
+
+import app.finwave.backend.jooq.tables.records.CategoriesRecord;
+
+import java.util.*;
+
+// immutable view of one user's categories hierarchy. Categories are numbered in pre-order, so a subtree is
+// the interval [enter, exit] of its root and membership is two comparisons
+public class CategoryTreeIndex {
+    public static final CategoryTreeIndex EMPTY = new CategoryTreeIndex(List.of());
+
+    protected final Map<Long, CategoriesRecord> records;
+    protected final Map<Long, Integer> enter = new HashMap<>();
+    protected final Map<Long, Integer> exit = new HashMap<>();
+    protected final long[] preOrder;
+
+    protected final Map<Long, List<Long>> ancestors = new HashMap<>();
+    protected final Map<Long, String> fullPaths = new HashMap<>();
+
+    public CategoryTreeIndex(List<CategoriesRecord> categories) {
+        HashMap<Long, CategoriesRecord> records = new HashMap<>();
+        categories.forEach((c) -> records.put(c.getId(), c));
+
+        this.records = Collections.unmodifiableMap(records);
+
+        HashMap<Long, ArrayList<Long>> children = new HashMap<>();
+        ArrayList<Long> roots = new ArrayList<>();
+
+        for (CategoriesRecord category : categories) {
+            List<Long> parents = parents(category);
+
+            ancestors.put(category.getId(), parents);
+
+            // a parent that's gone (or a broken tree) makes the category a root rather than losing it
+            Long parent = parents.isEmpty() ? null : parents.get(parents.size() - 1);
+
+            if (parent == null || !records.containsKey(parent)) {
+                roots.add(category.getId());
+            }else {
+                children.computeIfAbsent(parent, (k) -> new ArrayList<>()).add(category.getId());
+            }
+        }
+
+        this.preOrder = new long[categories.size()];
+
+        int position = 0;
+
+        for (Long root : roots) {
+            position = visit(root, children, position);
+        }
+
+        // cycles never reach a root, keep them reachable as standalone nodes
+        for (CategoriesRecord category : categories) {
+            if (!enter.containsKey(category.getId()))
+                position = visit(category.getId(), Map.of(), position);
+        }
+    }
+
+    protected int visit(long root, Map<Long, ? extends List<Long>> children, int position) {
+        ArrayDeque<long[]> stack = new ArrayDeque<>();
+        stack.push(new long[] {root, 0});
+
+        // iterative pre-order, deep trees shouldn't be able to blow the stack
+        while (!stack.isEmpty()) {
+            long[] frame = stack.peek();
+            long id = frame[0];
+
+            if (frame[1] == 0) {
+                if (enter.containsKey(id)) {
+                    stack.pop();
+                    continue;
+                }
+
+                enter.put(id, position);
+                preOrder[position++] = id;
+                fullPaths.put(id, buildPath(id));
+            }
+
+            List<Long> next = children.getOrDefault(id, List.of());
+
+            if (frame[1] < next.size()) {
+                stack.push(new long[] {next.get((int) frame[1]++), 0});
+                continue;
+            }
+
+            exit.put(id, position - 1);
+            stack.pop();
+        }
+
+        return position;
+    }
+
+    // pre-order visits parents first, so their paths are already there
+    protected String buildPath(long id) {
+        CategoriesRecord record = records.get(id);
+        List<Long> parents = ancestors.get(id);
+
+        if (parents.isEmpty())
+            return record.getName();
+
+        Long parent = parents.get(parents.size() - 1);
+        String parentPath = fullPaths.get(parent);
+
+        if (parentPath == null) {
+            StringJoiner joiner = new StringJoiner(" > ");
+
+            for (Long p : parents) {
+                CategoriesRecord parentRecord = records.get(p);
+
+                if (parentRecord != null)
+                    joiner.add(parentRecord.getName());
+            }
+
+            parentPath = joiner.toString();
+        }
+
+        return parentPath.isEmpty() ? record.getName() : parentPath + " > " + record.getName();
+    }
+
+    protected static List<Long> parents(CategoriesRecord record) {
+        if (record.getParentsTree() == null || record.getParentsTree().data().isBlank())
+            return List.of();
+
+        return Arrays.stream(record.getParentsTree().data().split("\\."))
+                .map(Long::parseLong)
+                .toList();
+    }
+
+    public boolean contains(long id) {
+        return records.containsKey(id);
+    }
+
+    public Optional<CategoriesRecord> get(long id) {
+        return Optional.ofNullable(records.get(id));
+    }
+
+    public Collection<CategoriesRecord> getAll() {
+        return records.values();
+    }
+
+    // true for the category itself too
+    public boolean inSubtree(long id, long rootId) {
+        Integer position = enter.get(id);
+        Integer from = enter.get(rootId);
+
+        if (position == null || from == null)
+            return false;
+
+        return position >= from && position <= exit.get(rootId);
+    }
+
+    // the category followed by all of its descendants, in pre-order
+    public List<Long> subtree(long rootId) {
+        Integer from = enter.get(rootId);
+
+        if (from == null)
+            return List.of();
+
+        ArrayList<Long> result = new ArrayList<>(exit.get(rootId) - from + 1);
+
+        for (int i = from; i <= exit.get(rootId); i++)
+            result.add(preOrder[i]);
+
+        return result;
+    }
+
+    public List<Long> descendants(long rootId) {
+        List<Long> subtree = subtree(rootId);
+
+        return subtree.isEmpty() ? subtree : subtree.subList(1, subtree.size());
+    }
+
+    // from the root down to the direct parent
+    public List<Long> ancestors(long id) {
+        return ancestors.getOrDefault(id, List.of());
+    }
+
+    public Optional<String> fullPath(long id) {
+        return Optional.ofNullable(fullPaths.get(id));
+    }
+}
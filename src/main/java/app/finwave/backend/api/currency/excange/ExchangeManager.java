@@ -1,9 +1,11 @@
 package app.finwave.backend.api.currency.excange;
 
-import app.finwave.backend.api.ai.tools.AiTools;
+import app.finwave.backend.api.currency.CurrencyDatabase;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.app.CurrencyConfig;
 import app.finwave.backend.config.general.ExchangesConfig;
+import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.jooq.tables.records.CurrenciesRecord;
 import app.finwave.backend.utils.CacheHandyBuilder;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
@@ -27,51 +29,85 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Singleton
 public class ExchangeManager {
-    protected Cache<Pair<String, String>, BigDecimal> exchangeRateCache;
+    // base currency code -> rates of every other currency against it, as one fetch returns them
+    protected Cache<String, Map<String, BigDecimal>> ratesTablesCache;
     protected ExchangesConfig.Fawazahmed0Exchanges config;
+    protected DatabaseWorker databaseWorker;
     protected Gson gson = new Gson();
 
     protected static final Logger log = LoggerFactory.getLogger(ExchangeManager.class);
 
     @Inject
-    public ExchangeManager(Configs configs) {
+    public ExchangeManager(Configs configs, DatabaseWorker databaseWorker) {
         this.config = configs.getState(new ExchangesConfig()).fawazahmed0Exchanges;
+        this.databaseWorker = databaseWorker;
 
-        this.exchangeRateCache = CacheBuilder
+        this.ratesTablesCache = CacheBuilder
                 .newBuilder()
                 .expireAfterWrite(config.hoursCaching, TimeUnit.HOURS)
                 .build();
     }
 
-    public BigDecimal getExchangeRate(String fromCode, String toCode) {
+    // concurrent lookups of the same base wait for one fetch; a failed fetch isn't cached
+    protected Optional<Map<String, BigDecimal>> getRatesTable(String code) {
         if (!config.enabled)
-            return BigDecimal.valueOf(-1);
+            return Optional.empty();
 
-        BigDecimal rate = exchangeRateCache.getIfPresent(Pair.of(fromCode, toCode));
+        try {
+            return Optional.of(ratesTablesCache.get(code, () -> {
+                Map<String, BigDecimal> result = fawazahmed0Fetch(code, 0);
 
-        if (rate != null)
-            return rate;
+                if (result == null)
+                    throw new IOException("No server returned rates for " + code);
 
-        Map<String, BigDecimal> result = fawazahmed0Fetch(fromCode, 0);
+                return Collections.unmodifiableMap(result);
+            }));
+        } catch (ExecutionException e) {
+            return Optional.empty();
+        }
+    }
 
-        if (result == null)
-            return BigDecimal.valueOf(-1);
+    public BigDecimal getExchangeRate(String fromCode, String toCode) {
+        return getRatesTable(fromCode)
+                .map((t) -> t.get(toCode))
+                .orElse(BigDecimal.valueOf(-1));
+    }
 
-        Map<Pair<String, String>, BigDecimal> toLoad = result.entrySet().stream()
-                .collect(Collectors.toMap(
-                        e -> Pair.of(fromCode, e.getKey()),
-                        Map.Entry::getValue
-                ));
+    // every pair comes from the target's table: one (usually cached) fetch however many currencies the user has.
+    // Empty if the target isn't a currency the user can read
+    public Optional<ExchangeRates> getRates(int userId, long targetCurrencyId) {
+        List<CurrenciesRecord> currencies = databaseWorker.getReadOnly(CurrencyDatabase.class, userId).getUserCurrenciesWithRoot(userId);
 
-        exchangeRateCache.putAll(toLoad);
+        CurrenciesRecord target = currencies.stream()
+                .filter((c) -> c.getId() == targetCurrencyId)
+                .findAny()
+                .orElse(null);
+
+        if (target == null)
+            return Optional.empty();
+
+        Map<String, BigDecimal> table = getRatesTable(target.getCode().toLowerCase()).orElse(Map.of());
+        HashMap<Long, BigDecimal> rates = new HashMap<>();
+
+        for (CurrenciesRecord currency : currencies) {
+            BigDecimal rate = table.get(currency.getCode().toLowerCase());
+
+            if (rate != null && rate.signum() > 0)
+                rates.put(currency.getId(), rate);
+        }
 
-        return result.getOrDefault(toCode, BigDecimal.valueOf(-1));
+        return Optional.of(new ExchangeRates(targetCurrencyId, target.getDecimals(), Map.copyOf(rates)));
     }
 
     protected Map<String, BigDecimal> fawazahmed0Fetch(String currencyCode, int serverIndex) {
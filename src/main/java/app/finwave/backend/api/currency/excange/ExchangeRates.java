@@ -0,0 +1,27 @@
+package app.finwave.backend.api.currency.excange;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+
+// rates of a user's currencies against one target currency, taken once and used for a whole request so every
+// amount in a response is converted the same way. A rate is how much of the currency one unit of the target buys,
+// currencies without a known rate are left out
+public record ExchangeRates(long targetCurrencyId, int scale, Map<Long, BigDecimal> rates) {
+    public boolean canConvert(long currencyId) {
+        return currencyId == targetCurrencyId || rates.containsKey(currencyId);
+    }
+
+    // rounded to the target's decimals, null when there's no rate for the currency
+    public BigDecimal convert(long currencyId, BigDecimal amount) {
+        if (currencyId == targetCurrencyId)
+            return amount;
+
+        BigDecimal rate = rates.get(currencyId);
+
+        if (rate == null)
+            return null;
+
+        return amount.divide(rate, scale, RoundingMode.HALF_EVEN);
+    }
+}
@@ -7,6 +7,7 @@ import app.finwave.backend.api.event.messages.requests.NewNotificationPointBody;
 import app.finwave.backend.api.event.messages.requests.SubscribeNotificationsBody;
 import app.finwave.backend.api.event.messages.response.auth.AuthStatus;
 import app.finwave.backend.api.event.messages.response.GenericResponse;
+import app.finwave.backend.api.event.messages.response.NotifyUpdate;
 import app.finwave.backend.api.event.messages.response.notifications.NotificationPointRegistered;
 import app.finwave.backend.api.event.messages.response.notifications.NotificationSubscribeResponse;
 import app.finwave.backend.api.notification.NotificationDatabase;
@@ -134,6 +135,7 @@ public class WebSocketClient {
         }
 
         send(new NotificationPointRegistered(pointId.get(), newUUID));
+        worker.sendToUser(userId, new NotifyUpdate("notificationPoints"));
     }
 
     protected void auth(AuthMessageBody body) throws IOException {
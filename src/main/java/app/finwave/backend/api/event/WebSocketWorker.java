@@ -2,11 +2,13 @@ package app.finwave.backend.api.event;
 
 import app.finwave.backend.api.auth.AuthDatabase;
 import app.finwave.backend.api.event.messages.ResponseMessage;
+import app.finwave.backend.api.event.messages.response.NotifyUpdate;
 import app.finwave.backend.api.event.messages.response.notifications.NotificationEvent;
 import app.finwave.backend.api.notification.data.Notification;
 import app.finwave.backend.api.session.SessionManager;
 import app.finwave.backend.database.DatabaseWorker;
 import app.finwave.backend.jooq.tables.records.UsersSessionsRecord;
+import app.finwave.backend.metrics.MetricsRegistry;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
@@ -14,6 +16,7 @@ import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
 
 import static app.finwave.backend.api.ApiResponse.GSON;
 
@@ -33,13 +36,20 @@ public class WebSocketWorker {
 
     protected SessionManager sessionManager;
 
-    protected ExecutorService executor = Executors.newCachedThreadPool();
+    protected ExecutorService executor = MetricsRegistry.executor("webSocket", Executors.newCachedThreadPool());
+
+    protected ArrayList<BiConsumer<Integer, String>> updateListeners = new ArrayList<>();
 
     @Inject
     public WebSocketWorker(SessionManager sessionManager) {
         this.sessionManager = sessionManager;
     }
 
+    // called with the user and what was updated for every NotifyUpdate, whether the user is connected or not
+    public void addUpdateListener(BiConsumer<Integer, String> listener) {
+        updateListeners.add(listener);
+    }
+
     public void registerAnonClient(WebSocketClient client) {
         anonLock.lock();
 
@@ -181,6 +191,9 @@ public class WebSocketWorker {
     }
 
     public CompletableFuture<Boolean> sendToUser(int userId, ResponseMessage<?> message) {
+        if (message instanceof NotifyUpdate update)
+            updateListeners.forEach((listener) -> listener.accept(userId, update.updated()));
+
         ReentrantLock lock = getAuthedLock(userId);
         HashSet<WebSocketClient> clients = getUserClients(userId);
         String rawMessage = GSON.toJson(message);
@@ -8,6 +8,10 @@ public class NotifyUpdate extends ResponseMessage<NotifyUpdate.NotifyBody> {
         super("update", new NotifyBody(updated));
     }
 
+    public String updated() {
+        return body.updated;
+    }
+
     protected static class NotifyBody extends MessageBody {
         public final String updated;
 
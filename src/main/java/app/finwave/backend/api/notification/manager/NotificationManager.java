@@ -9,6 +9,7 @@ import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.general.ServiceConfig;
 import app.finwave.backend.database.DatabaseWorker;
 import app.finwave.backend.jooq.tables.records.NotificationsPointsRecord;
+import app.finwave.backend.metrics.MetricsRegistry;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -22,7 +23,7 @@ public class NotificationManager {
     protected NotificationDatabase database;
     protected NotificationPusher pusher;
 
-    protected ExecutorService threadPool = Executors.newFixedThreadPool(2);
+    protected ExecutorService threadPool = MetricsRegistry.executor("notifications", Executors.newFixedThreadPool(2));
 
     protected float rate;
     protected long lastPushTime;
@@ -88,6 +88,9 @@ public class ReportApi {
                 filesRecord.get().getId()
         );
 
+        // listed right away as pending, and again once its status changes
+        socketWorker.sendToUser(sessionRecord.getUserId(), new NotifyUpdate("reports"));
+
         builder.buildAsync(reportId).whenComplete((r, t) -> {
             socketWorker.sendToUser(sessionRecord.getUserId(), new NotifyUpdate("reports"));
         });
@@ -13,10 +13,13 @@ import com.google.common.cache.LoadingCache;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static app.finwave.backend.utils.TokenGenerator.generateSessionToken;
@@ -29,6 +32,8 @@ public class SessionManager {
     protected LoadingCache<Integer, List<UsersSessionsRecord>> listCache;
     protected LoadingCache<String, Optional<UsersSessionsRecord>> tokenCache;
 
+    protected ArrayList<Consumer<UsersSessionsRecord>> authListeners = new ArrayList<>();
+
     @Inject
     public SessionManager(DatabaseWorker databaseWorker, Configs configs) {
         this.database = databaseWorker.get(SessionDatabase.class);
@@ -57,14 +62,24 @@ public class SessionManager {
         );
     }
 
+    // called on every successful token check, both for http requests and websocket clients
+    public void addAuthListener(Consumer<UsersSessionsRecord> listener) {
+        authListeners.add(listener);
+    }
+
     public Optional<UsersSessionsRecord> auth(String token) {
+        Optional<UsersSessionsRecord> record = Optional.empty();
+
         try {
-            return tokenCache.get(token);
+            record = tokenCache.get(token);
         } catch (ExecutionException e) {
             e.printStackTrace();
         }
 
-        return Optional.empty();
+        record.filter((r) -> r.getExpiresAt().isAfter(LocalDateTime.now()))
+                .ifPresent((r) -> authListeners.forEach((listener) -> listener.accept(r)));
+
+        return record;
     }
 
     public Optional<UsersSessionsRecord> newSession(int userId, int lifetimeDays, String description, boolean limited) {
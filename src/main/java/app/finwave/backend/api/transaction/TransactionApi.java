@@ -10,8 +10,10 @@ import spark.Request;
 import spark.Response;
 import app.finwave.backend.api.ApiResponse;
 import app.finwave.backend.api.account.AccountDatabase;
+import app.finwave.backend.api.transaction.filter.TransactionsCursor;
 import app.finwave.backend.api.transaction.filter.TransactionsFilter;
 import app.finwave.backend.api.transaction.manager.data.TransactionEntry;
+import app.finwave.backend.api.transaction.manager.data.TransactionsPage;
 import app.finwave.backend.api.transaction.manager.TransactionsManager;
 import app.finwave.backend.api.transaction.manager.records.BulkTransactionsRecord;
 import app.finwave.backend.api.transaction.manager.records.TransactionEditRecord;
@@ -310,20 +312,49 @@ public class TransactionApi {
                 .range(1, config.maxTransactionsInListPerRequest)
                 .optional()
                 .orElse(10);
-        TransactionsFilter filter = new TransactionsFilter(request);
 
-        List<TransactionEntry<?>> transactions = manager.getTransactions(sessionsRecord.getUserId(), offset, count, filter);
+        Optional<TransactionsCursor> cursor = ParamsValidator
+                .string(request, "cursor")
+                .optional()
+                .map((raw) -> TransactionsCursor.decode(raw).orElseThrow(() -> new InvalidParameterException("cursor")));
+
+        Optional<String> search = ParamsValidator
+                .string(request, "search")
+                .length(1, config.maxDescriptionLength)
+                .optional();
+
+        TransactionsFilter filter = new TransactionsFilter(request);
 
         response.status(200);
 
+        if (search.isPresent()) {
+            List<TransactionEntry<?>> transactions = manager.searchTransactions(sessionsRecord.getUserId(), search.get(), offset, count, filter);
+
+            return new GetTransactionsListResponse(transactions);
+        }
+
+        if (cursor.isPresent() || offset == 0) {
+            TransactionsPage page = manager.getTransactions(sessionsRecord.getUserId(), cursor.orElse(null), count, filter);
+
+            return new GetTransactionsListResponse(page.transactions(), page.nextCursor());
+        }
+
+        List<TransactionEntry<?>> transactions = manager.getTransactions(sessionsRecord.getUserId(), offset, count, filter);
+
         return new GetTransactionsListResponse(transactions);
     }
 
     public static class GetTransactionsListResponse extends ApiResponse {
         public final List<TransactionEntry<?>> transactions;
+        public final String nextCursor;
 
-        public GetTransactionsListResponse(List<TransactionEntry<?>> transactions) {
+        public GetTransactionsListResponse(List<TransactionEntry<?>> transactions, TransactionsCursor nextCursor) {
             this.transactions = transactions;
+            this.nextCursor = nextCursor == null ? null : nextCursor.encode();
+        }
+
+        public GetTransactionsListResponse(List<TransactionEntry<?>> transactions) {
+            this(transactions, null);
         }
     }
 
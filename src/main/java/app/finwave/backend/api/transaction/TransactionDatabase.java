@@ -2,17 +2,25 @@ package app.finwave.backend.api.transaction;
 
 import org.jooq.*;
 import org.jooq.Record;
+import app.finwave.backend.api.transaction.filter.TransactionsCursor;
 import app.finwave.backend.api.transaction.filter.TransactionsFilter;
+import app.finwave.backend.api.transaction.manager.records.TransactionNewRecord;
 import app.finwave.backend.database.AbstractDatabase;
+import app.finwave.backend.jooq.tables.records.TransactionsRecord;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static app.finwave.backend.jooq.Tables.*;
+import static org.jooq.impl.DSL.*;
 
 public class TransactionDatabase extends AbstractDatabase {
+    public static final int BULK_INSERT_CHUNK = 1000; // keeps binds under the postgres 32767 parameters limit
 
     public TransactionDatabase(DSLContext context) {
         super(context);
@@ -32,6 +40,45 @@ public class TransactionDatabase extends AbstractDatabase {
                 .map(Record1::component1);
     }
 
+    public List<Long> applyTransactions(List<TransactionNewRecord> records, Map<Long, Long> accountsCurrencies) {
+        ArrayList<Long> result = new ArrayList<>(records.size());
+
+        for (int from = 0; from < records.size(); from += BULK_INSERT_CHUNK) {
+            var insert = context.insertInto(TRANSACTIONS,
+                    TRANSACTIONS.OWNER_ID,
+                    TRANSACTIONS.CATEGORY_ID,
+                    TRANSACTIONS.ACCOUNT_ID,
+                    TRANSACTIONS.CURRENCY_ID,
+                    TRANSACTIONS.CREATED_AT,
+                    TRANSACTIONS.DELTA,
+                    TRANSACTIONS.DESCRIPTION);
+
+            for (TransactionNewRecord record : records.subList(from, Math.min(records.size(), from + BULK_INSERT_CHUNK))) {
+                Long currencyId = accountsCurrencies.get(record.accountId());
+
+                if (currencyId == null)
+                    throw new RuntimeException("Account not exists");
+
+                insert = insert.values(record.userId(),
+                        record.categoryId(),
+                        record.accountId(),
+                        currencyId,
+                        record.created(),
+                        record.delta(),
+                        record.description());
+            }
+
+            // RETURNING rows come in no guaranteed order, but the ids are taken from the sequence row by row as VALUES
+            // is scanned, so within one statement they grow in the order the rows were listed
+            List<Long> ids = new ArrayList<>(insert.returningResult(TRANSACTIONS.ID).fetch(Record1::component1));
+            ids.sort(null);
+
+            result.addAll(ids);
+        }
+
+        return result;
+    }
+
     public int getTransactionsCount(int userId, TransactionsFilter filter) {
         Condition condition = generateFilterCondition(userId, filter);
 
@@ -63,6 +110,46 @@ public class TransactionDatabase extends AbstractDatabase {
                 .fetch();
     }
 
+    public List<Record> getTransactions(int userId, TransactionsCursor after, int count, TransactionsFilter filter) {
+        Condition condition = generateFilterCondition(userId, filter);
+
+        if (after != null)
+            condition = condition.and(row(TRANSACTIONS.CREATED_AT, TRANSACTIONS.ID).lt(after.createdAt(), after.id()));
+
+        return context.selectFrom(TRANSACTIONS
+                        .leftJoin(TRANSACTIONS_METADATA)
+                        .on(TRANSACTIONS.METADATA_ID.eq(TRANSACTIONS_METADATA.ID)))
+                .where(condition)
+                .orderBy(TRANSACTIONS.CREATED_AT.desc(), TRANSACTIONS.ID.desc())
+                .limit(count)
+                .fetch();
+    }
+
+    public List<Record> searchTransactions(int userId, String query, int offset, int count, TransactionsFilter filter) {
+        Field<Float> rank = field("word_similarity({0}, {1})", Float.class, val(query), TRANSACTIONS.DESCRIPTION);
+
+        // "<%" is the word similarity operator, served by the same trigram index as ilike
+        Condition condition = generateFilterCondition(userId, filter)
+                .and(condition("{0} <% {1}", val(query), TRANSACTIONS.DESCRIPTION));
+
+        return context.selectFrom(TRANSACTIONS
+                        .leftJoin(TRANSACTIONS_METADATA)
+                        .on(TRANSACTIONS.METADATA_ID.eq(TRANSACTIONS_METADATA.ID)))
+                .where(condition)
+                .orderBy(rank.desc(), TRANSACTIONS.CREATED_AT.desc(), TRANSACTIONS.ID.desc())
+                .limit(offset, count)
+                .fetch();
+    }
+
+    public Map<Long, TransactionsRecord> getTransactions(Collection<Long> ids) {
+        if (ids.isEmpty())
+            return Map.of();
+
+        return context.selectFrom(TRANSACTIONS)
+                .where(TRANSACTIONS.ID.in(ids))
+                .fetchMap(TRANSACTIONS.ID);
+    }
+
     public static Condition generateFilterCondition(int userId, TransactionsFilter filter) {
         Condition condition = TRANSACTIONS.OWNER_ID.eq(userId);
 
@@ -82,25 +169,28 @@ public class TransactionDatabase extends AbstractDatabase {
             condition = condition.and(TRANSACTIONS.CREATED_AT.lessOrEqual(filter.getToTime()));
 
         if (filter.getDescription() != null)
-            condition = condition.and(TRANSACTIONS.DESCRIPTION.containsIgnoreCase(filter.getDescription()));
+            condition = condition.and(generateDescriptionCondition(filter.getDescription()));
 
         return condition;
     }
 
-    protected static <T> Condition generateFilterAnyCondition(TableField<?, T> field, List<T> values) {
-        Condition condition = null;
-
-        for (T value : values) {
-            if (condition == null) {
-                condition = field.eq(value);
+    protected static Condition generateDescriptionCondition(String description) {
+        // the whole pattern goes in one bind so the planner sees it and can use the trigram index
+        String escaped = description
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
 
-                continue;
-            }
+        return TRANSACTIONS.DESCRIPTION.likeIgnoreCase("%" + escaped + "%", '!');
+    }
 
-            condition = condition.or(field.eq(value));
-        }
+    public static Condition generateFilterAnyCondition(TableField<?, Long> field, List<Long> values) {
+        if (values.isEmpty())
+            return noCondition();
 
-        return condition;
+        // one "= any(?::bigint[])" bind instead of an OR chain keeps the statement text stable for any list size.
+        // TransactionsFilter already keeps its ids sorted and distinct
+        return field.eq(any(values.toArray(Long[]::new)));
     }
 
     public void deleteTransaction(long transactionId) {
@@ -124,6 +214,14 @@ public class TransactionDatabase extends AbstractDatabase {
                 .execute();
     }
 
+    public Optional<Integer> getTransactionOwner(long transactionId) {
+        return context.select(TRANSACTIONS.OWNER_ID)
+                .from(TRANSACTIONS)
+                .where(TRANSACTIONS.ID.eq(transactionId))
+                .fetchOptional()
+                .map(Record1::component1);
+    }
+
     public boolean userOwnTransaction(int userId, long transactionId) {
         return context.select(TRANSACTIONS.ID)
                 .from(TRANSACTIONS)
@@ -0,0 +1,41 @@
+package app.finwave.backend.api.transaction.filter;
+
+import org.jooq.Record;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Optional;
+
+import static app.finwave.backend.jooq.Tables.TRANSACTIONS;
+
+public record TransactionsCursor(OffsetDateTime createdAt, long id) {
+    public static TransactionsCursor of(Record record) {
+        return new TransactionsCursor(record.get(TRANSACTIONS.CREATED_AT), record.get(TRANSACTIONS.ID));
+    }
+
+    public static Optional<TransactionsCursor> decode(String raw) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(raw), StandardCharsets.UTF_8).split(":");
+
+            if (parts.length != 3)
+                return Optional.empty();
+
+            Instant instant = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+
+            return Optional.of(new TransactionsCursor(OffsetDateTime.ofInstant(instant, ZoneOffset.UTC), Long.parseLong(parts[2])));
+        }catch (IllegalArgumentException | DateTimeException | ArithmeticException e) {
+            return Optional.empty();
+        }
+    }
+
+    public String encode() {
+        Instant instant = createdAt.toInstant();
+        String raw = instant.getEpochSecond() + ":" + instant.getNano() + ":" + id;
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
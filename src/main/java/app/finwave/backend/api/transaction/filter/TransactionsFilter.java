@@ -4,7 +4,9 @@ import spark.Request;
 import app.finwave.backend.utils.params.ParamsValidator;
 
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -23,9 +25,9 @@ public class TransactionsFilter {
     }
 
     public TransactionsFilter(List<Long> categoriesIds, List<Long> accountIds, List<Long> currenciesIds, OffsetDateTime fromTime, OffsetDateTime toTime, String description) {
-        this.categoriesIds = categoriesIds;
-        this.accountIds = accountIds;
-        this.currenciesIds = currenciesIds;
+        this.categoriesIds = normalizeIds(categoriesIds);
+        this.accountIds = normalizeIds(accountIds);
+        this.currenciesIds = normalizeIds(currenciesIds);
         this.fromTime = fromTime;
         this.toTime = toTime;
         this.description = description;
@@ -69,6 +71,45 @@ public class TransactionsFilter {
                 .toList();
     }
 
+    protected static List<Long> normalizeIds(List<Long> ids) {
+        if (ids == null)
+            return null;
+
+        return ids.stream()
+                .sorted()
+                .distinct()
+                .toList();
+    }
+
+    // equivalent filters end up equal: an empty ids list filters nothing, the same as no list,
+    // and the time bounds compare by instant rather than by instant and offset
+    public TransactionsFilter canonical() {
+        return new TransactionsFilter(
+                categoriesIds == null || categoriesIds.isEmpty() ? null : categoriesIds,
+                accountIds == null || accountIds.isEmpty() ? null : accountIds,
+                currenciesIds == null || currenciesIds.isEmpty() ? null : currenciesIds,
+                fromTime != null ? fromTime.withOffsetSameInstant(ZoneOffset.UTC) : null,
+                toTime != null ? toTime.withOffsetSameInstant(ZoneOffset.UTC) : null,
+                description
+        );
+    }
+
+    // whether a transaction with these attributes could be selected by the filter. The description is
+    // not checked, so the answer errs on the side of true
+    public boolean mayMatch(long categoryId, long accountId, long currencyId, OffsetDateTime createdAt) {
+        if (!containsOrAny(categoriesIds, categoryId) || !containsOrAny(accountIds, accountId) || !containsOrAny(currenciesIds, currencyId))
+            return false;
+
+        if (fromTime != null && createdAt.isBefore(fromTime))
+            return false;
+
+        return toTime == null || !createdAt.isAfter(toTime);
+    }
+
+    protected static boolean containsOrAny(List<Long> ids, long id) {
+        return ids == null || ids.isEmpty() || Collections.binarySearch(ids, id) >= 0;
+    }
+
     public List<Long> getCategoriesIds() {
         return categoriesIds;
     }
@@ -1,15 +1,26 @@
 package app.finwave.backend.api.transaction.hook;
 
-import org.jooq.DSLContext;
 import org.jooq.Record;
 import app.finwave.backend.api.transaction.manager.data.AbstractMetadata;
+import app.finwave.backend.database.UnitOfWork;
+
+import java.util.List;
 
 public interface TransactionActionsHook<T, Y> {
-    void apply(DSLContext context, T newRecord);
-    void edit(DSLContext context, Record record, Y editRecord, long transactionId);
-    void cancel(DSLContext context, Record record, long transactionId);
+    void apply(UnitOfWork work, T newRecord);
+    void edit(UnitOfWork work, Record record, Y editRecord, long transactionId);
+    void cancel(UnitOfWork work, Record record, long transactionId);
+
+    void applied(UnitOfWork work, T newRecord, long transactionId);
+    void edited(UnitOfWork work, Record record, Y editRecord, long transactionId);
+    void canceled(UnitOfWork work, Record record, long transactionId);
+
+    default void applyBulk(UnitOfWork work, List<T> newRecords) {
+        newRecords.forEach((r) -> apply(work, r));
+    }
 
-    void applied(DSLContext context, T newRecord, long transactionId);
-    void edited(DSLContext context, Record record, Y editRecord, long transactionId);
-    void canceled(DSLContext context, Record record, long transactionId);
+    default void appliedBulk(UnitOfWork work, List<T> newRecords, List<Long> transactionsIds) {
+        for (int i = 0; i < newRecords.size(); i++)
+            applied(work, newRecords.get(i), transactionsIds.get(i));
+    }
 }
@@ -9,7 +9,7 @@ import app.finwave.backend.api.transaction.manager.TransactionsManager;
 import app.finwave.backend.api.transaction.manager.records.TransactionEditRecord;
 import app.finwave.backend.api.transaction.manager.records.TransactionNewRecord;
 import app.finwave.backend.api.transaction.metadata.MetadataDatabase;
-import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.UnitOfWork;
 
 import java.math.BigDecimal;
 import java.util.Optional;
@@ -18,42 +18,41 @@ import static app.finwave.backend.jooq.Tables.*;
 
 public class AccumulationHook implements TransactionActionsHook<TransactionNewRecord, TransactionEditRecord> {
     protected TransactionsManager manager;
-    protected DatabaseWorker databaseWorker;
 
-    public AccumulationHook(TransactionsManager manager, DatabaseWorker databaseWorker) {
+    public AccumulationHook(TransactionsManager manager) {
         this.manager = manager;
-        this.databaseWorker = databaseWorker;
     }
 
     @Override
-    public void apply(DSLContext context, TransactionNewRecord newRecord) {
+    public void apply(UnitOfWork work, TransactionNewRecord newRecord) {
 
     }
 
     @Override
-    public void edit(DSLContext context, Record record, TransactionEditRecord editRecord, long transactionId) {
+    public void edit(UnitOfWork work, Record record, TransactionEditRecord editRecord, long transactionId) {
 
     }
 
     @Override
-    public void cancel(DSLContext context, Record record, long transactionId) {
+    public void cancel(UnitOfWork work, Record record, long transactionId) {
 
     }
 
     @Override
-    public void applied(DSLContext context, TransactionNewRecord newRecord, long transactionId) {
+    public void applied(UnitOfWork work, TransactionNewRecord newRecord, long transactionId) {
 
     }
 
     @Override
-    public void edited(DSLContext context, Record record, TransactionEditRecord editRecord, long transactionId) {
-        AccumulationDatabase accumulationDatabase = databaseWorker.get(AccumulationDatabase.class, context);
+    public void edited(UnitOfWork work, Record record, TransactionEditRecord editRecord, long transactionId) {
+        DSLContext context = work.context();
+        AccumulationDatabase accumulationDatabase = work.get(AccumulationDatabase.class);
         Optional<AccumulationData> optionalSettings = accumulationDatabase.getAccumulationSettings(record.get(TRANSACTIONS.ACCOUNT_ID));
 
         if (optionalSettings.isEmpty())
             return;
 
-        MetadataDatabase metadataDatabase = databaseWorker.get(MetadataDatabase.class, context);
+        MetadataDatabase metadataDatabase = work.get(MetadataDatabase.class);
 
         AccumulationData data = optionalSettings.get();
         BigDecimal newRound = data.calculateRound(editRecord.delta().negate());
@@ -61,7 +60,7 @@ public class AccumulationHook implements TransactionActionsHook<TransactionNewRe
         long linkedTransactionId = record.get(TRANSACTIONS_METADATA.ARG);
 
         if (editRecord.delta().signum() > 0 || newRound.equals(BigDecimal.ZERO)) {
-            manager.cancelTransaction(linkedTransactionId);
+            manager.cancelTransaction(work, linkedTransactionId);
 
             context.update(TRANSACTIONS)
                     .set(TRANSACTIONS.METADATA_ID, (Long) null)
@@ -70,17 +69,18 @@ public class AccumulationHook implements TransactionActionsHook<TransactionNewRe
 
             metadataDatabase.deleteMetadata(record.get(TRANSACTIONS.METADATA_ID));
         }else {
-            editLinkedTransaction(context, newRound, linkedTransactionId);
+            editLinkedTransaction(work, newRound, linkedTransactionId);
         }
 
     }
 
     @Override
-    public void canceled(DSLContext context, Record record, long transactionId) {
-        MetadataDatabase metadataDatabase = databaseWorker.get(MetadataDatabase.class, context);
+    public void canceled(UnitOfWork work, Record record, long transactionId) {
+        DSLContext context = work.context();
+        MetadataDatabase metadataDatabase = work.get(MetadataDatabase.class);
         long linkedTransactionId = record.get(TRANSACTIONS_METADATA.ARG);
 
-        manager.cancelTransaction(linkedTransactionId);
+        manager.cancelTransaction(work, linkedTransactionId);
 
         context.update(TRANSACTIONS)
                 .set(TRANSACTIONS.METADATA_ID, (Long) null)
@@ -90,7 +90,9 @@ public class AccumulationHook implements TransactionActionsHook<TransactionNewRe
         metadataDatabase.deleteMetadata(record.get(TRANSACTIONS.METADATA_ID));
     }
 
-    protected void editLinkedTransaction(DSLContext context, BigDecimal newDelta, long linkedTransactionId) {
+    protected void editLinkedTransaction(UnitOfWork work, BigDecimal newDelta, long linkedTransactionId) {
+        DSLContext context = work.context();
+
         Record record = context.selectFrom(TRANSACTIONS
                         .leftJoin(TRANSACTIONS_METADATA)
                         .on(TRANSACTIONS.METADATA_ID.eq(TRANSACTIONS_METADATA.ID))
@@ -110,7 +112,7 @@ public class AccumulationHook implements TransactionActionsHook<TransactionNewRe
                 .fetchOptional()
                 .orElseThrow();
 
-        manager.editTransaction(linkedTransactionId, new TransactionEditRecord(
+        manager.editTransaction(work, linkedTransactionId, new TransactionEditRecord(
                 record.get(TRANSACTIONS.CATEGORY_ID),
                 record.get(TRANSACTIONS.ACCOUNT_ID),
                 record.get(TRANSACTIONS.CREATED_AT),
@@ -118,7 +120,7 @@ public class AccumulationHook implements TransactionActionsHook<TransactionNewRe
                 record.get(TRANSACTIONS.DESCRIPTION)
         ));
 
-        manager.editTransaction(secondTransactionId, new TransactionEditRecord(
+        manager.editTransaction(work, secondTransactionId, new TransactionEditRecord(
                 secondRecord.get(TRANSACTIONS.CATEGORY_ID),
                 secondRecord.get(TRANSACTIONS.ACCOUNT_ID),
                 secondRecord.get(TRANSACTIONS.CREATED_AT),
@@ -11,55 +11,89 @@ import app.finwave.backend.api.transaction.manager.records.TransactionNewInterna
 import app.finwave.backend.api.transaction.manager.records.TransactionNewRecord;
 import app.finwave.backend.api.transaction.metadata.MetadataDatabase;
 import app.finwave.backend.api.transaction.metadata.MetadataType;
-import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.UnitOfWork;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static app.finwave.backend.jooq.Tables.TRANSACTIONS;
 
 public class DefaultHook implements TransactionActionsHook<TransactionNewRecord, TransactionEditRecord> {
     protected TransactionsManager manager;
-    protected DatabaseWorker databaseWorker;
 
-    public DefaultHook(TransactionsManager manager, DatabaseWorker databaseWorker) {
+    public DefaultHook(TransactionsManager manager) {
         this.manager = manager;
-        this.databaseWorker = databaseWorker;
     }
 
     @Override
-    public void apply(DSLContext context, TransactionNewRecord newRecord) {
+    public void apply(UnitOfWork work, TransactionNewRecord newRecord) {
 
     }
 
     @Override
-    public void edit(DSLContext context, Record record, TransactionEditRecord editRecord, long transactionId) {
+    public void edit(UnitOfWork work, Record record, TransactionEditRecord editRecord, long transactionId) {
 
     }
 
     @Override
-    public void cancel(DSLContext context, Record record, long transactionId) {
+    public void cancel(UnitOfWork work, Record record, long transactionId) {
 
     }
 
     @Override
-    public void applied(DSLContext context, TransactionNewRecord newRecord, long transactionId) {
+    public void applied(UnitOfWork work, TransactionNewRecord newRecord, long transactionId) {
         if (newRecord.delta().signum() >= 0)
             return;
 
-        AccumulationDatabase accumulationDatabase = databaseWorker.get(AccumulationDatabase.class, context);
+        AccumulationDatabase accumulationDatabase = work.get(AccumulationDatabase.class);
         Optional<AccumulationData> optionalSettings = accumulationDatabase.getAccumulationSettings(newRecord.accountId());
 
         if (optionalSettings.isEmpty())
             return;
 
-        AccumulationData data = optionalSettings.get();
+        accumulate(work, optionalSettings.get(), newRecord, transactionId);
+    }
+
+    @Override
+    public void appliedBulk(UnitOfWork work, List<TransactionNewRecord> newRecords, List<Long> transactionsIds) {
+        Set<Long> spendingAccounts = newRecords.stream()
+                .filter((r) -> r.delta().signum() < 0)
+                .map(TransactionNewRecord::accountId)
+                .collect(Collectors.toSet());
+
+        if (spendingAccounts.isEmpty())
+            return;
+
+        AccumulationDatabase accumulationDatabase = work.get(AccumulationDatabase.class);
+        Map<Long, AccumulationData> settings = accumulationDatabase.getAccumulationSettings(spendingAccounts);
+
+        if (settings.isEmpty())
+            return;
+
+        for (int i = 0; i < newRecords.size(); i++) {
+            TransactionNewRecord newRecord = newRecords.get(i);
+            AccumulationData data = settings.get(newRecord.accountId());
+
+            if (data == null || newRecord.delta().signum() >= 0)
+                continue;
+
+            accumulate(work, data, newRecord, transactionsIds.get(i));
+        }
+    }
+
+    protected void accumulate(UnitOfWork work, AccumulationData data, TransactionNewRecord newRecord, long transactionId) {
+        DSLContext context = work.context();
+
         BigDecimal accumulationDelta = data.calculateRound(newRecord.delta().negate());
 
         if (accumulationDelta.equals(BigDecimal.ZERO))
             return;
 
-        long internalTransferId = manager.applyInternalTransfer(new TransactionNewInternalRecord(
+        long internalTransferId = manager.applyInternalTransfer(work, new TransactionNewInternalRecord(
                 data.ownerId(),
                 data.categoryId(),
                 data.sourceAccountId(),
@@ -70,7 +104,7 @@ public class DefaultHook implements TransactionActionsHook<TransactionNewRecord,
                 null
         ));
 
-        MetadataDatabase metadataDatabase = databaseWorker.get(MetadataDatabase.class, context);
+        MetadataDatabase metadataDatabase = work.get(MetadataDatabase.class);
 
         long metadataId = metadataDatabase.createMetadata(MetadataType.HAS_ACCUMULATION, internalTransferId);
         context.update(TRANSACTIONS)
@@ -80,11 +114,11 @@ public class DefaultHook implements TransactionActionsHook<TransactionNewRecord,
     }
 
     @Override
-    public void edited(DSLContext context, Record record, TransactionEditRecord editRecord, long transactionId) {
+    public void edited(UnitOfWork work, Record record, TransactionEditRecord editRecord, long transactionId) {
         if (editRecord.delta().signum() >= 0)
             return;
 
-        applied(context, new TransactionNewRecord(
+        applied(work, new TransactionNewRecord(
                 record.get(TRANSACTIONS.OWNER_ID),
                 editRecord.categoryId(),
                 editRecord.accountId(),
@@ -95,7 +129,7 @@ public class DefaultHook implements TransactionActionsHook<TransactionNewRecord,
     }
 
     @Override
-    public void canceled(DSLContext context, Record record, long transactionId) {
+    public void canceled(UnitOfWork work, Record record, long transactionId) {
 
     }
 }
@@ -8,7 +8,7 @@ import app.finwave.backend.api.transaction.manager.records.TransactionEditRecord
 import app.finwave.backend.api.transaction.manager.records.TransactionNewInternalRecord;
 import app.finwave.backend.api.transaction.metadata.MetadataDatabase;
 import app.finwave.backend.api.transaction.metadata.MetadataType;
-import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.UnitOfWork;
 import app.finwave.backend.jooq.Tables;
 import app.finwave.backend.jooq.tables.records.InternalTransactionsMetadataRecord;
 
@@ -20,36 +20,35 @@ import static app.finwave.backend.jooq.tables.Transactions.TRANSACTIONS;
 
 public class InternalHook implements TransactionActionsHook<TransactionNewInternalRecord, TransactionEditRecord> {
     protected TransactionsManager manager;
-    protected DatabaseWorker databaseWorker;
 
-    public InternalHook(TransactionsManager manager, DatabaseWorker databaseWorker) {
+    public InternalHook(TransactionsManager manager) {
         this.manager = manager;
-        this.databaseWorker = databaseWorker;
     }
 
     @Override
-    public void apply(DSLContext context, TransactionNewInternalRecord newRecord) {
+    public void apply(UnitOfWork work, TransactionNewInternalRecord newRecord) {
 
     }
 
     @Override
-    public void edit(DSLContext context, Record record, TransactionEditRecord editRecord, long transactionId) {
+    public void edit(UnitOfWork work, Record record, TransactionEditRecord editRecord, long transactionId) {
 
     }
 
     @Override
-    public void cancel(DSLContext context, Record record, long transactionId) {
-        MetadataDatabase metadataDatabase = databaseWorker.get(MetadataDatabase.class, context);
+    public void cancel(UnitOfWork work, Record record, long transactionId) {
+        DSLContext context = work.context();
+        MetadataDatabase metadataDatabase = work.get(MetadataDatabase.class);
         Optional<Record> accumulationTransaction;
 
         if (record.get(TRANSACTIONS.DELTA).signum() < 0) {
-            accumulationTransaction = fetchAccumulationTransaction(context, transactionId);
+            accumulationTransaction = fetchAccumulationTransaction(work, transactionId);
         }else {
             InternalTransactionsMetadataRecord metadataRecord = metadataDatabase
                     .getInternalMetadata(record.get(TRANSACTIONS_METADATA.ARG))
                     .orElseThrow();
 
-            accumulationTransaction = fetchAccumulationTransaction(context, metadataRecord.getFromTransactionId());
+            accumulationTransaction = fetchAccumulationTransaction(work, metadataRecord.getFromTransactionId());
         }
 
         if (accumulationTransaction.isEmpty())
@@ -64,22 +63,22 @@ public class InternalHook implements TransactionActionsHook<TransactionNewIntern
     }
 
     @Override
-    public void applied(DSLContext context, TransactionNewInternalRecord newRecord, long transactionId) {
+    public void applied(UnitOfWork work, TransactionNewInternalRecord newRecord, long transactionId) {
 
     }
 
     @Override
-    public void edited(DSLContext context, Record record, TransactionEditRecord editRecord, long transactionId) {
+    public void edited(UnitOfWork work, Record record, TransactionEditRecord editRecord, long transactionId) {
 
     }
 
     @Override
-    public void canceled(DSLContext context, Record record, long transactionId) {
+    public void canceled(UnitOfWork work, Record record, long transactionId) {
 
     }
 
-    protected Optional<Record> fetchAccumulationTransaction(DSLContext context, long internalFromTransaction) {
-        return context.selectFrom(TRANSACTIONS
+    protected Optional<Record> fetchAccumulationTransaction(UnitOfWork work, long internalFromTransaction) {
+        return work.context().selectFrom(TRANSACTIONS
                         .leftJoin(TRANSACTIONS_METADATA)
                         .on(Tables.TRANSACTIONS.METADATA_ID.eq(TRANSACTIONS_METADATA.ID))
                 )
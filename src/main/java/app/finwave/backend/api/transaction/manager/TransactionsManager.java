@@ -1,29 +1,37 @@
 package app.finwave.backend.api.transaction.manager;
 
+import com.google.common.util.concurrent.Striped;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.jooq.DSLContext;
 import org.jooq.Record;
 import app.finwave.backend.api.transaction.TransactionDatabase;
+import app.finwave.backend.api.transaction.filter.TransactionsCursor;
 import app.finwave.backend.api.transaction.filter.TransactionsFilter;
 import app.finwave.backend.api.transaction.hook.TransactionActionsHook;
 import app.finwave.backend.api.transaction.hook.accumulation.AccumulationHook;
 import app.finwave.backend.api.transaction.hook.accumulation.DefaultHook;
 import app.finwave.backend.api.transaction.hook.accumulation.InternalHook;
 import app.finwave.backend.api.transaction.manager.actions.*;
+import app.finwave.backend.api.transaction.manager.data.EntriesBatch;
 import app.finwave.backend.api.transaction.manager.data.TransactionEntry;
+import app.finwave.backend.api.transaction.manager.data.TransactionsPage;
 import app.finwave.backend.api.transaction.manager.records.BulkTransactionsRecord;
 import app.finwave.backend.api.transaction.manager.records.TransactionEditRecord;
 import app.finwave.backend.api.transaction.manager.records.TransactionNewInternalRecord;
 import app.finwave.backend.api.transaction.manager.records.TransactionNewRecord;
 import app.finwave.backend.api.transaction.metadata.MetadataType;
 import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.UnitOfWork;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 
 import static app.finwave.backend.jooq.Tables.TRANSACTIONS_METADATA;
 
@@ -40,7 +48,11 @@ public class TransactionsManager {
 
     protected HashMap<MetadataType, TransactionActionsWorker<?,?,?>> actionsWorkers = new HashMap<>();
 
-    protected ReentrantLock transactionLock = new ReentrantLock();
+    protected static final int LOCK_STRIPES = 256;
+
+    // every operation (including the linked ones hooks run through the UnitOfWork overloads)
+    // touches accounts of a single user only, so one per-user stripe is enough and no lock ordering is needed
+    protected Striped<Lock> userLocks = Striped.lock(LOCK_STRIPES);
 
     @Inject
     public TransactionsManager(DatabaseWorker databaseWorker) {
@@ -58,163 +70,183 @@ public class TransactionsManager {
         actionsWorkers.put(MetadataType.RECURRING, recurringActionsWorker);
         actionsWorkers.put(MetadataType.HAS_ACCUMULATION, accumulationActionsWorker);
 
-        this.defaultActionsWorker.addHook(new DefaultHook(this, databaseWorker));
-        this.accumulationActionsWorker.addHook(new AccumulationHook(this, databaseWorker));
-        this.internalActionsWorker.addHook(new InternalHook(this, databaseWorker));
+        this.defaultActionsWorker.addHook(new DefaultHook(this));
+        this.accumulationActionsWorker.addHook(new AccumulationHook(this));
+        this.internalActionsWorker.addHook(new InternalHook(this));
     }
 
     public void applyBulkTransactions(BulkTransactionsRecord record, int userId) {
         List<?> records = record.toRecords(userId);
 
-        transactionLock.lock();
+        ArrayList<TransactionNewRecord> defaultRecords = new ArrayList<>();
+        ArrayList<TransactionNewInternalRecord> internalRecords = new ArrayList<>();
+
+        for (Object rawRecord : records) {
+            if (rawRecord instanceof TransactionNewRecord newRecord)
+                defaultRecords.add(newRecord);
+
+            if (rawRecord instanceof TransactionNewInternalRecord newRecord)
+                internalRecords.add(newRecord);
+        }
+
+        Lock lock = userLocks.get(userId);
+        lock.lock();
 
         try {
-            context.transaction((configuration) -> {
-                DSLContext dsl = configuration.dsl();
+            inTransaction(userId, (work) -> {
                 var hooksInternal = internalActionsWorker.getHooks();
                 var hooksDefault = defaultActionsWorker.getHooks();
 
-                for (Object rawRecord : records) {
-                    if (rawRecord instanceof TransactionNewRecord newRecord) {
-                        hooksDefault.forEach((h) -> h.apply(dsl, newRecord));
-                        long id = defaultActionsWorker.apply(dsl, newRecord);
-                        hooksDefault.forEach((h) -> h.applied(dsl, newRecord, id));
-                    }
-
-                    if (rawRecord instanceof TransactionNewInternalRecord newRecord) {
-                        hooksInternal.forEach((h) -> h.apply(dsl, newRecord));
-                        long id = internalActionsWorker.apply(dsl, newRecord);
-                        hooksInternal.forEach((h) -> h.applied(dsl, newRecord, id));
-                    }
-                }
+                hooksDefault.forEach((h) -> h.applyBulk(work, defaultRecords));
+                hooksInternal.forEach((h) -> h.applyBulk(work, internalRecords));
+
+                List<Long> defaultIds = defaultActionsWorker.applyBulk(work, defaultRecords);
+                List<Long> internalIds = internalActionsWorker.applyBulk(work, internalRecords);
+
+                hooksDefault.forEach((h) -> h.appliedBulk(work, defaultRecords, defaultIds));
+                hooksInternal.forEach((h) -> h.appliedBulk(work, internalRecords, internalIds));
+
+                return null;
             });
         }finally {
-            transactionLock.unlock();
+            lock.unlock();
         }
     }
 
     public long applyInternalTransfer(TransactionNewInternalRecord newRecord) {
-        transactionLock.lock();
+        Lock lock = userLocks.get(newRecord.userId());
+        lock.lock();
 
         try {
-            return context.transactionResult((configuration) -> {
-                DSLContext dsl = configuration.dsl();
-                var hooks = internalActionsWorker.getHooks();
-
-                hooks.forEach((h) -> h.apply(dsl, newRecord));
-                long id = internalActionsWorker.apply(dsl, newRecord);
-                hooks.forEach((h) -> h.applied(dsl, newRecord, id));
-
-                return id;
-            });
+            return inTransaction(newRecord.userId(), (work) -> applyInternalTransfer(work, newRecord));
         }finally {
-            transactionLock.unlock();
+            lock.unlock();
         }
     }
 
+    // the UnitOfWork overloads are for hooks: they run inside the caller's transaction,
+    // and the caller already holds the lock of the same user
+    public long applyInternalTransfer(UnitOfWork work, TransactionNewInternalRecord newRecord) {
+        var hooks = internalActionsWorker.getHooks();
+
+        hooks.forEach((h) -> h.apply(work, newRecord));
+        long id = internalActionsWorker.apply(work, newRecord);
+        hooks.forEach((h) -> h.applied(work, newRecord, id));
+
+        return id;
+    }
+
     public long applyTransaction(TransactionNewRecord newRecord) {
-        transactionLock.lock();
+        Lock lock = userLocks.get(newRecord.userId());
+        lock.lock();
 
         try {
-            return context.transactionResult((configuration) -> {
-                DSLContext dsl = configuration.dsl();
+            return inTransaction(newRecord.userId(), (work) -> {
                 var hooks = defaultActionsWorker.getHooks();
 
-                hooks.forEach((h) -> h.apply(dsl, newRecord));
-                long id = defaultActionsWorker.apply(dsl, newRecord);
-                hooks.forEach((h) -> h.applied(dsl, newRecord, id));
+                hooks.forEach((h) -> h.apply(work, newRecord));
+                long id = defaultActionsWorker.apply(work, newRecord);
+                hooks.forEach((h) -> h.applied(work, newRecord, id));
 
                 return id;
             });
         }finally {
-            transactionLock.unlock();
+            lock.unlock();
         }
     }
 
     public long applyRecurringTransaction(TransactionNewRecord newRecord) {
-        transactionLock.lock();
+        Lock lock = userLocks.get(newRecord.userId());
+        lock.lock();
 
         try {
-            return context.transactionResult((configuration) -> {
-                DSLContext dsl = configuration.dsl();
+            return inTransaction(newRecord.userId(), (work) -> {
                 var hooks = recurringActionsWorker.getHooks();
 
-                hooks.forEach((h) -> h.apply(dsl, newRecord));
-                long id = recurringActionsWorker.apply(configuration.dsl(), newRecord);
-                hooks.forEach((h) -> h.applied(dsl, newRecord, id));
+                hooks.forEach((h) -> h.apply(work, newRecord));
+                long id = recurringActionsWorker.apply(work, newRecord);
+                hooks.forEach((h) -> h.applied(work, newRecord, id));
 
                 return id;
             });
         }finally {
-            transactionLock.unlock();
+            lock.unlock();
         }
     }
 
     public void editTransaction(long transactionId, TransactionEditRecord editRecord) {
-        runTransactionOverRecord(transactionId, (context, record, type) -> {
+        lockedTransaction(transactionId, (work) -> editTransaction(work, transactionId, editRecord));
+    }
+
+    public void editTransaction(UnitOfWork work, long transactionId, TransactionEditRecord editRecord) {
+        runOverRecord(work, transactionId, (record, type) -> {
             switch (type) {
                 case WITHOUT_METADATA -> {
                     var hooks = defaultActionsWorker.getHooks();
 
-                    hooks.forEach((h) -> h.edit(context, record, editRecord, transactionId));
-                    defaultActionsWorker.edit(context, record, editRecord);
-                    hooks.forEach((h) -> h.edited(context, record, editRecord, transactionId));
+                    hooks.forEach((h) -> h.edit(work, record, editRecord, transactionId));
+                    defaultActionsWorker.edit(work, record, editRecord);
+                    hooks.forEach((h) -> h.edited(work, record, editRecord, transactionId));
                 }
                 case INTERNAL_TRANSFER  -> {
                     var hooks = internalActionsWorker.getHooks();
 
-                    hooks.forEach((h) -> h.edit(context, record, editRecord, transactionId));
-                    internalActionsWorker.edit(context, record, editRecord);
-                    hooks.forEach((h) -> h.edited(context, record, editRecord, transactionId));
+                    hooks.forEach((h) -> h.edit(work, record, editRecord, transactionId));
+                    internalActionsWorker.edit(work, record, editRecord);
+                    hooks.forEach((h) -> h.edited(work, record, editRecord, transactionId));
                 }
                 case RECURRING -> {
                     var hooks = recurringActionsWorker.getHooks();
 
-                    hooks.forEach((h) -> h.edit(context, record, editRecord, transactionId));
-                    recurringActionsWorker.edit(context, record, editRecord);
-                    hooks.forEach((h) -> h.edited(context, record, editRecord, transactionId));
+                    hooks.forEach((h) -> h.edit(work, record, editRecord, transactionId));
+                    recurringActionsWorker.edit(work, record, editRecord);
+                    hooks.forEach((h) -> h.edited(work, record, editRecord, transactionId));
                 }
                 case HAS_ACCUMULATION -> {
                     var hooks = accumulationActionsWorker.getHooks();
 
-                    hooks.forEach((h) -> h.edit(context, record, editRecord, transactionId));
-                    accumulationActionsWorker.edit(context, record, editRecord);
-                    hooks.forEach((h) -> h.edited(context, record, editRecord, transactionId));
+                    hooks.forEach((h) -> h.edit(work, record, editRecord, transactionId));
+                    accumulationActionsWorker.edit(work, record, editRecord);
+                    hooks.forEach((h) -> h.edited(work, record, editRecord, transactionId));
                 }
             }
         });
     }
 
     public void cancelTransaction(long transactionId) {
-        runTransactionOverRecord(transactionId, (context, record, type) -> {
+        lockedTransaction(transactionId, (work) -> cancelTransaction(work, transactionId));
+    }
+
+    public void cancelTransaction(UnitOfWork work, long transactionId) {
+        runOverRecord(work, transactionId, (record, type) -> {
             switch (type) {
                 case WITHOUT_METADATA -> {
                     var hooks = defaultActionsWorker.getHooks();
 
-                    hooks.forEach((h) -> h.cancel(context, record, transactionId));
-                    defaultActionsWorker.cancel(context, record);
-                    hooks.forEach((h) -> h.canceled(context, record, transactionId));
+                    hooks.forEach((h) -> h.cancel(work, record, transactionId));
+                    defaultActionsWorker.cancel(work, record);
+                    hooks.forEach((h) -> h.canceled(work, record, transactionId));
                 }
                 case INTERNAL_TRANSFER -> {
                     var hooks = internalActionsWorker.getHooks();
 
-                    hooks.forEach((h) -> h.cancel(context, record, transactionId));
-                    internalActionsWorker.cancel(context, record);
-                    hooks.forEach((h) -> h.canceled(context, record, transactionId));
+                    hooks.forEach((h) -> h.cancel(work, record, transactionId));
+                    internalActionsWorker.cancel(work, record);
+                    hooks.forEach((h) -> h.canceled(work, record, transactionId));
                 }
                 case RECURRING -> {
                     var hooks = recurringActionsWorker.getHooks();
 
-                    hooks.forEach((h) -> h.cancel(context, record, transactionId));
-                    recurringActionsWorker.cancel(context, record);
-                    hooks.forEach((h) -> h.canceled(context, record, transactionId));
+                    hooks.forEach((h) -> h.cancel(work, record, transactionId));
+                    recurringActionsWorker.cancel(work, record);
+                    hooks.forEach((h) -> h.canceled(work, record, transactionId));
                 }
                 case HAS_ACCUMULATION -> {
                     var hooks = accumulationActionsWorker.getHooks();
 
-                    hooks.forEach((h) -> h.cancel(context, record, transactionId));
-                    accumulationActionsWorker.cancel(context, record);
-                    hooks.forEach((h) -> h.canceled(context, record, transactionId));
+                    hooks.forEach((h) -> h.cancel(work, record, transactionId));
+                    accumulationActionsWorker.cancel(work, record);
+                    hooks.forEach((h) -> h.canceled(work, record, transactionId));
                 }
             }
         });
@@ -237,21 +269,55 @@ public class TransactionsManager {
     }
 
     public List<TransactionEntry<?>> getTransactions(int userId, int offset, int count, TransactionsFilter filter) {
-        List<Record> records = transactionDatabase.getTransactions(userId, offset, count, filter);
+        UnitOfWork work = databaseWorker.unitOfWork(databaseWorker.getReadContext(userId));
+
+        return prepareEntries(work, work.get(TransactionDatabase.class).getTransactions(userId, offset, count, filter));
+    }
 
-        ArrayList<TransactionEntry<?>> result = new ArrayList<>();
-        HashMap<Long, TransactionEntry<?>> addedTransactions = new HashMap<>();
+    public TransactionsPage getTransactions(int userId, TransactionsCursor after, int count, TransactionsFilter filter) {
+        UnitOfWork work = databaseWorker.unitOfWork(databaseWorker.getReadContext(userId));
+        // one row more than asked tells whether there is a next page, a full last page doesn't get a cursor to nothing
+        List<Record> records = work.get(TransactionDatabase.class).getTransactions(userId, after, count + 1, filter);
+        TransactionsCursor next = null;
+
+        if (records.size() > count) {
+            records = records.subList(0, count);
+            next = TransactionsCursor.of(records.get(count - 1));
+        }
+
+        return new TransactionsPage(prepareEntries(work, records), next);
+    }
+
+    public List<TransactionEntry<?>> searchTransactions(int userId, String query, int offset, int count, TransactionsFilter filter) {
+        UnitOfWork work = databaseWorker.unitOfWork(databaseWorker.getReadContext(userId));
+
+        return prepareEntries(work, work.get(TransactionDatabase.class).searchTransactions(userId, query, offset, count, filter));
+    }
+
+    protected List<TransactionEntry<?>> prepareEntries(UnitOfWork work, List<Record> records) {
+        ArrayList<TransactionEntry<?>> result = new ArrayList<>(records.size());
+        EntriesBatch batch = new EntriesBatch();
+
+        ArrayList<MetadataType> types = new ArrayList<>(records.size());
+        EnumMap<MetadataType, List<Record>> recordsByType = new EnumMap<>(MetadataType.class);
 
         for (Record record : records) {
             MetadataType metadataType = Optional.ofNullable(record.get(TRANSACTIONS_METADATA.TYPE))
                     .map(MetadataType::get)
                     .orElse(MetadataType.WITHOUT_METADATA);
 
-            TransactionEntry<?> entry = actionsWorkers.get(metadataType).prepareEntry(context, record, addedTransactions);
+            types.add(metadataType);
+            recordsByType.computeIfAbsent(metadataType, (k) -> new ArrayList<>()).add(record);
+        }
+
+        recordsByType.forEach((type, typed) -> actionsWorkers.get(type).prefetch(work, typed, batch));
+
+        for (int i = 0; i < records.size(); i++) {
+            TransactionEntry<?> entry = actionsWorkers.get(types.get(i)).prepareEntry(work, records.get(i), batch);
 
             if (entry != null) {
                 result.add(entry);
-                addedTransactions.put(entry.transactionId, entry);
+                batch.add(entry);
             }
         }
 
@@ -259,37 +325,69 @@ public class TransactionsManager {
     }
 
     public int getTransactionsCount(int userId, TransactionsFilter filter) {
-        return transactionDatabase.getTransactionsCount(userId, filter);
+        return databaseWorker.getReadOnly(TransactionDatabase.class, userId).getTransactionsCount(userId, filter);
     }
 
     public boolean userOwnTransaction(int userId, long transactionId) {
         return transactionDatabase.userOwnTransaction(userId, transactionId);
     }
 
-    protected void runTransactionOverRecord(long transactionId, Transaction transaction) {
-        transactionLock.lock();
+    protected void lockedTransaction(long transactionId, Consumer<UnitOfWork> body) {
+        int ownerId = transactionDatabase
+                .getTransactionOwner(transactionId)
+                .orElseThrow(() -> new RuntimeException("Transaction not exists"));
+
+        Lock lock = userLocks.get(ownerId);
+        lock.lock();
 
         try {
-            context.transaction((configuration) -> {
-                DSLContext dsl = configuration.dsl();
-                TransactionDatabase database = databaseWorker.get(TransactionDatabase.class, dsl);
+            inTransaction(ownerId, (work) -> {
+                body.accept(work);
 
-                Record record = database
-                        .getTransaction(transactionId)
-                        .orElseThrow(() -> new RuntimeException("Transaction not exists"));
+                return null;
+            });
+        }finally {
+            lock.unlock();
+        }
+    }
+
+    protected void runOverRecord(UnitOfWork work, long transactionId, Transaction transaction) {
+        Record record = work.get(TransactionDatabase.class)
+                .getTransaction(transactionId)
+                .orElseThrow(() -> new RuntimeException("Transaction not exists"));
+
+        MetadataType metadataType = Optional.ofNullable(record.get(TRANSACTIONS_METADATA.TYPE))
+                .map(MetadataType::get)
+                .orElse(MetadataType.WITHOUT_METADATA);
+
+        transaction.run(record, metadataType);
+    }
+
+    // the caller holds the user's lock, so after-commit actions of one user run in commit order
+    protected <T> T inTransaction(int userId, TransactionBody<T> body) {
+        AtomicReference<UnitOfWork> work = new AtomicReference<>();
+        T result;
 
-                MetadataType metadataType = Optional.ofNullable(record.get(TRANSACTIONS_METADATA.TYPE))
-                        .map(MetadataType::get)
-                        .orElse(MetadataType.WITHOUT_METADATA);
+        try {
+            result = context.transactionResult((configuration) -> {
+                work.set(databaseWorker.unitOfWork(configuration.dsl()));
 
-                transaction.run(dsl, record, metadataType);
+                return body.run(work.get());
             });
         }finally {
-            transactionLock.unlock();
+            databaseWorker.markWritten(userId);
         }
+
+        work.get().committed();
+
+        return result;
     }
 
     interface Transaction {
-        void run(DSLContext context, Record record, MetadataType type);
+        void run(Record record, MetadataType type);
+    }
+
+    interface TransactionBody<T> {
+        T run(UnitOfWork work);
     }
 }
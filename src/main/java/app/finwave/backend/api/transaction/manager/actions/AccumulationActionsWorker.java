@@ -1,15 +1,15 @@
 package app.finwave.backend.api.transaction.manager.actions;
 
-import org.jooq.DSLContext;
 import org.jooq.Record;
 import app.finwave.backend.api.transaction.manager.data.AbstractMetadata;
+import app.finwave.backend.api.transaction.manager.data.EntriesBatch;
 import app.finwave.backend.api.transaction.manager.data.AccumulationMetadata;
 import app.finwave.backend.api.transaction.manager.data.TransactionEntry;
 import app.finwave.backend.api.transaction.manager.records.TransactionEditRecord;
 import app.finwave.backend.api.transaction.metadata.MetadataDatabase;
 import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.UnitOfWork;
 
-import java.util.HashMap;
 
 import static app.finwave.backend.jooq.Tables.TRANSACTIONS;
 import static app.finwave.backend.jooq.Tables.TRANSACTIONS_METADATA;
@@ -20,7 +20,7 @@ public class AccumulationActionsWorker extends DefaultActionsWorker {
     }
 
     @Override
-    public TransactionEntry<AbstractMetadata> prepareEntry(DSLContext context, Record record, HashMap<Long, TransactionEntry<?>> added) {
+    public TransactionEntry<AbstractMetadata> prepareEntry(UnitOfWork work, Record record, EntriesBatch batch) {
         return new TransactionEntry<>(record, new AccumulationMetadata(record.get(TRANSACTIONS_METADATA.ARG)));
     }
 }
@@ -5,12 +5,18 @@ import org.jooq.Record;
 import org.jooq.Record1;
 import app.finwave.backend.api.transaction.TransactionDatabase;
 import app.finwave.backend.api.transaction.manager.data.AbstractMetadata;
+import app.finwave.backend.api.transaction.manager.data.EntriesBatch;
 import app.finwave.backend.api.transaction.manager.data.TransactionEntry;
 import app.finwave.backend.api.transaction.manager.records.TransactionEditRecord;
 import app.finwave.backend.api.transaction.manager.records.TransactionNewRecord;
 import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.UnitOfWork;
 
+import java.math.BigDecimal;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static app.finwave.backend.jooq.Tables.ACCOUNTS;
@@ -22,8 +28,9 @@ public class DefaultActionsWorker extends TransactionActionsWorker<TransactionNe
     }
 
     @Override
-    public long apply(DSLContext context, TransactionNewRecord newRecord) {
-        TransactionDatabase database = databaseWorker.get(TransactionDatabase.class, context);
+    public long apply(UnitOfWork work, TransactionNewRecord newRecord) {
+        DSLContext context = work.context();
+        TransactionDatabase database = work.get(TransactionDatabase.class);
 
         Long currencyId = context.select(ACCOUNTS.CURRENCY_ID)
                 .from(ACCOUNTS)
@@ -53,9 +60,47 @@ public class DefaultActionsWorker extends TransactionActionsWorker<TransactionNe
         return transactionId.get();
     }
 
+    public List<Long> applyBulk(UnitOfWork work, List<TransactionNewRecord> newRecords) {
+        DSLContext context = work.context();
+
+        if (newRecords.isEmpty())
+            return List.of();
+
+        TransactionDatabase database = work.get(TransactionDatabase.class);
+
+        HashSet<Long> accountsIds = new HashSet<>();
+        HashMap<Long, BigDecimal> accountsDeltas = new HashMap<>();
+
+        for (TransactionNewRecord newRecord : newRecords) {
+            accountsIds.add(newRecord.accountId());
+            accountsDeltas.merge(newRecord.accountId(), newRecord.delta(), BigDecimal::add);
+        }
+
+        Map<Long, Long> currencies = context.select(ACCOUNTS.ID, ACCOUNTS.CURRENCY_ID)
+                .from(ACCOUNTS)
+                .where(ACCOUNTS.ID.in(accountsIds))
+                .fetchMap(ACCOUNTS.ID, ACCOUNTS.CURRENCY_ID);
+
+        List<Long> transactionsIds = database.applyTransactions(newRecords, currencies);
+
+        if (transactionsIds.size() != newRecords.size())
+            throw new RuntimeException("Fail to create new transactions");
+
+        context.batch(accountsDeltas.entrySet()
+                .stream()
+                .map((e) -> context.update(ACCOUNTS)
+                        .set(ACCOUNTS.AMOUNT, ACCOUNTS.AMOUNT.plus(e.getValue()))
+                        .where(ACCOUNTS.ID.eq(e.getKey())))
+                .toList()
+        ).execute();
+
+        return transactionsIds;
+    }
+
     @Override
-    public void edit(DSLContext context, Record record, TransactionEditRecord editRecord) {
-        TransactionDatabase database = databaseWorker.get(TransactionDatabase.class, context);
+    public void edit(UnitOfWork work, Record record, TransactionEditRecord editRecord) {
+        DSLContext context = work.context();
+        TransactionDatabase database = work.get(TransactionDatabase.class);
 
         context.update(ACCOUNTS)
                 .set(ACCOUNTS.AMOUNT, ACCOUNTS.AMOUNT.minus(record.get(TRANSACTIONS.DELTA)))
@@ -77,8 +122,9 @@ public class DefaultActionsWorker extends TransactionActionsWorker<TransactionNe
     }
 
     @Override
-    public void cancel(DSLContext context, Record record) {
-        TransactionDatabase database = databaseWorker.get(TransactionDatabase.class, context);
+    public void cancel(UnitOfWork work, Record record) {
+        DSLContext context = work.context();
+        TransactionDatabase database = work.get(TransactionDatabase.class);
 
         context.update(ACCOUNTS)
                 .set(ACCOUNTS.AMOUNT, ACCOUNTS.AMOUNT.minus(record.get(TRANSACTIONS.DELTA)))
@@ -89,7 +135,7 @@ public class DefaultActionsWorker extends TransactionActionsWorker<TransactionNe
     }
 
     @Override
-    public TransactionEntry<AbstractMetadata> prepareEntry(DSLContext context, Record record, HashMap<Long, TransactionEntry<?>> added) {
+    public TransactionEntry<AbstractMetadata> prepareEntry(UnitOfWork work, Record record, EntriesBatch batch) {
         return new TransactionEntry<>(record, null);
     }
 }
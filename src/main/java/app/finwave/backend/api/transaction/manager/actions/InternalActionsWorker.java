@@ -1,19 +1,24 @@
 package app.finwave.backend.api.transaction.manager.actions;
 
 import org.jooq.DSLContext;
+import org.jooq.Query;
 import org.jooq.Record;
+import app.finwave.backend.api.transaction.TransactionDatabase;
+import app.finwave.backend.api.transaction.manager.data.EntriesBatch;
 import app.finwave.backend.api.transaction.manager.data.InternalTransferMetadata;
 import app.finwave.backend.api.transaction.manager.data.TransactionEntry;
 import app.finwave.backend.api.transaction.manager.records.TransactionEditRecord;
 import app.finwave.backend.api.transaction.manager.records.TransactionNewInternalRecord;
+import app.finwave.backend.api.transaction.manager.records.TransactionNewRecord;
 import app.finwave.backend.api.transaction.metadata.MetadataDatabase;
 import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.UnitOfWork;
 import app.finwave.backend.jooq.tables.records.InternalTransactionsMetadataRecord;
 import app.finwave.backend.jooq.tables.records.TransactionsRecord;
 import app.finwave.backend.utils.params.InvalidParameterException;
 
-import java.util.HashMap;
-import java.util.Optional;
+import java.util.*;
+import java.util.stream.Collectors;
 
 import static app.finwave.backend.jooq.Tables.*;
 
@@ -26,11 +31,12 @@ public class InternalActionsWorker extends TransactionActionsWorker<TransactionN
     }
 
     @Override
-    public long apply(DSLContext context, TransactionNewInternalRecord newRecord) {
-        MetadataDatabase metadataDatabase = databaseWorker.get(MetadataDatabase.class, context);
+    public long apply(UnitOfWork work, TransactionNewInternalRecord newRecord) {
+        DSLContext context = work.context();
+        MetadataDatabase metadataDatabase = work.get(MetadataDatabase.class);
 
-        long fromTransaction = defaultActionsWorker.apply(context, newRecord.from());
-        long toTransaction = defaultActionsWorker.apply(context, newRecord.to());
+        long fromTransaction = defaultActionsWorker.apply(work, newRecord.from());
+        long toTransaction = defaultActionsWorker.apply(work, newRecord.to());
         long transactionMeta = metadataDatabase.createInternalMetadata(fromTransaction, toTransaction);
 
         context.update(TRANSACTIONS)
@@ -41,15 +47,55 @@ public class InternalActionsWorker extends TransactionActionsWorker<TransactionN
         return fromTransaction;
     }
 
+    public List<Long> applyBulk(UnitOfWork work, List<TransactionNewInternalRecord> newRecords) {
+        DSLContext context = work.context();
+
+        if (newRecords.isEmpty())
+            return List.of();
+
+        MetadataDatabase metadataDatabase = work.get(MetadataDatabase.class);
+
+        ArrayList<TransactionNewRecord> transactions = new ArrayList<>(newRecords.size() * 2);
+
+        for (TransactionNewInternalRecord newRecord : newRecords) {
+            transactions.add(newRecord.from());
+            transactions.add(newRecord.to());
+        }
+
+        List<Long> transactionsIds = defaultActionsWorker.applyBulk(work, transactions);
+
+        ArrayList<Long> fromIds = new ArrayList<>(newRecords.size());
+        ArrayList<Long> toIds = new ArrayList<>(newRecords.size());
+
+        for (int i = 0; i < transactionsIds.size(); i += 2) {
+            fromIds.add(transactionsIds.get(i));
+            toIds.add(transactionsIds.get(i + 1));
+        }
+
+        List<Long> metadataIds = metadataDatabase.createInternalMetadata(fromIds, toIds);
+
+        ArrayList<Query> updates = new ArrayList<>(metadataIds.size());
+
+        for (int i = 0; i < metadataIds.size(); i++) {
+            updates.add(context.update(TRANSACTIONS)
+                    .set(TRANSACTIONS.METADATA_ID, metadataIds.get(i))
+                    .where(TRANSACTIONS.ID.in(fromIds.get(i), toIds.get(i))));
+        }
+
+        context.batch(updates).execute();
+
+        return fromIds;
+    }
+
     @Override
-    public void edit(DSLContext context, Record record, TransactionEditRecord editRecord) {
-        MetadataDatabase metadataDatabase = databaseWorker.get(MetadataDatabase.class, context);
+    public void edit(UnitOfWork work, Record record, TransactionEditRecord editRecord) {
+        MetadataDatabase metadataDatabase = work.get(MetadataDatabase.class);
 
         InternalTransactionsMetadataRecord metadataRecord = metadataDatabase
                 .getInternalMetadata(record.get(TRANSACTIONS_METADATA.ARG))
                 .orElseThrow();
 
-        TransactionsRecord record2 = getSecondTransaction(record, metadataRecord, context)
+        TransactionsRecord record2 = getSecondTransaction(record, metadataRecord, work)
                 .orElseThrow(() -> new RuntimeException("Second transaction not exists"));
 
         if (record2.getAccountId().equals(editRecord.accountId()))
@@ -58,26 +104,27 @@ public class InternalActionsWorker extends TransactionActionsWorker<TransactionN
         if (editRecord.delta().signum() == 0 || record2.getDelta().signum() == editRecord.delta().signum())
             throw new InvalidParameterException("delta");
 
-        defaultActionsWorker.edit(context, record, editRecord);
+        defaultActionsWorker.edit(work, record, editRecord);
     }
 
     @Override
-    public void cancel(DSLContext context, Record record) {
-        MetadataDatabase metadataDatabase = databaseWorker.get(MetadataDatabase.class, context);
+    public void cancel(UnitOfWork work, Record record) {
+        DSLContext context = work.context();
+        MetadataDatabase metadataDatabase = work.get(MetadataDatabase.class);
 
         InternalTransactionsMetadataRecord metadataRecord = metadataDatabase
                 .getInternalMetadata(record.get(TRANSACTIONS_METADATA.ARG))
                 .orElseThrow();
 
-        TransactionsRecord record2 = getSecondTransaction(record, metadataRecord, context)
+        TransactionsRecord record2 = getSecondTransaction(record, metadataRecord, work)
                 .orElseThrow(() -> new RuntimeException("Second transaction not exists"));
 
         context.deleteFrom(INTERNAL_TRANSACTIONS_METADATA)
                 .where(INTERNAL_TRANSACTIONS_METADATA.ID.eq(metadataRecord.getId()))
                 .execute();
 
-        defaultActionsWorker.cancel(context, record);
-        defaultActionsWorker.cancel(context, record2);
+        defaultActionsWorker.cancel(work, record);
+        defaultActionsWorker.cancel(work, record2);
 
         context.deleteFrom(TRANSACTIONS_METADATA)
                 .where(TRANSACTIONS_METADATA.ID.eq(record.get(TRANSACTIONS_METADATA.ID)))
@@ -85,25 +132,53 @@ public class InternalActionsWorker extends TransactionActionsWorker<TransactionN
     }
 
     @Override
-    public TransactionEntry<InternalTransferMetadata> prepareEntry(DSLContext context, Record record, HashMap<Long, TransactionEntry<?>> added) {
-        MetadataDatabase metadataDatabase = databaseWorker.get(MetadataDatabase.class, context);
+    public void prefetch(UnitOfWork work, List<Record> records, EntriesBatch batch) {
+        MetadataDatabase metadataDatabase = work.get(MetadataDatabase.class);
+        TransactionDatabase transactionDatabase = work.get(TransactionDatabase.class);
+
+        Set<Long> metadataIds = records.stream()
+                .map((r) -> r.get(TRANSACTIONS_METADATA.ARG))
+                .collect(Collectors.toSet());
 
+        if (metadataIds.isEmpty())
+            return;
+
+        Map<Long, InternalTransactionsMetadataRecord> metadata = metadataDatabase.getInternalMetadata(metadataIds);
+        batch.getInternalMetadata().putAll(metadata);
+
+        Set<Long> linkedIds = new HashSet<>();
+
+        for (Record record : records) {
+            InternalTransactionsMetadataRecord metadataRecord = metadata.get(record.get(TRANSACTIONS_METADATA.ARG));
+
+            if (metadataRecord != null)
+                linkedIds.add(getSecondTransactionId(record, metadataRecord));
+        }
+
+        batch.getLinkedTransactions().putAll(transactionDatabase.getTransactions(linkedIds));
+    }
+
+    @Override
+    public TransactionEntry<InternalTransferMetadata> prepareEntry(UnitOfWork work, Record record, EntriesBatch batch) {
         long metadataId = record.get(TRANSACTIONS.METADATA_ID);
-        boolean linkedInResult = added
-                .values()
-                .stream()
-                .anyMatch((t) ->
-                        t.metadata instanceof InternalTransferMetadata meta &&
-                                meta.id == metadataId);
-
-        if (linkedInResult)
+
+        if (batch.containsInternalTransfer(metadataId))
             return null;
 
-        InternalTransactionsMetadataRecord metadataRecord = metadataDatabase
-                .getInternalMetadata(record.get(TRANSACTIONS_METADATA.ARG))
-                .orElseThrow();
+        long internalId = record.get(TRANSACTIONS_METADATA.ARG);
+        InternalTransactionsMetadataRecord metadataRecord = batch.getInternalMetadata().get(internalId);
+
+        if (metadataRecord == null) {
+            metadataRecord = work.get(MetadataDatabase.class)
+                    .getInternalMetadata(internalId)
+                    .orElseThrow();
+        }
+
+        TransactionsRecord secondRecord = batch.getLinkedTransactions().get(getSecondTransactionId(record, metadataRecord));
 
-        TransactionEntry<?> secondTransaction = getSecondTransaction(record, metadataRecord, context).map(TransactionEntry::new).orElseThrow();
+        TransactionEntry<?> secondTransaction = secondRecord != null ?
+                new TransactionEntry<>(secondRecord) :
+                getSecondTransaction(record, metadataRecord, work).map(TransactionEntry::new).orElseThrow();
 
         return new TransactionEntry<>(record, new InternalTransferMetadata(metadataId, secondTransaction));
     }
@@ -114,10 +189,10 @@ public class InternalActionsWorker extends TransactionActionsWorker<TransactionN
                 metadataRecord.getFromTransactionId();
     }
 
-    protected Optional<TransactionsRecord> getSecondTransaction(Record record, InternalTransactionsMetadataRecord metadataRecord, DSLContext context) {
+    protected Optional<TransactionsRecord> getSecondTransaction(Record record, InternalTransactionsMetadataRecord metadataRecord, UnitOfWork work) {
         long toFetch = getSecondTransactionId(record, metadataRecord);
 
-        return context.selectFrom(TRANSACTIONS)
+        return work.context().selectFrom(TRANSACTIONS)
                 .where(TRANSACTIONS.ID.eq(toFetch))
                 .fetchOptional();
     }
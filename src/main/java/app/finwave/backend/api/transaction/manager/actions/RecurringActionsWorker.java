@@ -3,14 +3,15 @@ package app.finwave.backend.api.transaction.manager.actions;
 import org.jooq.DSLContext;
 import org.jooq.Record;
 import app.finwave.backend.api.transaction.manager.data.AbstractMetadata;
+import app.finwave.backend.api.transaction.manager.data.EntriesBatch;
 import app.finwave.backend.api.transaction.manager.data.RecurringMetadata;
 import app.finwave.backend.api.transaction.manager.data.TransactionEntry;
 import app.finwave.backend.api.transaction.manager.records.TransactionNewRecord;
 import app.finwave.backend.api.transaction.metadata.MetadataDatabase;
 import app.finwave.backend.api.transaction.metadata.MetadataType;
 import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.UnitOfWork;
 
-import java.util.HashMap;
 
 import static app.finwave.backend.jooq.Tables.TRANSACTIONS;
 
@@ -20,10 +21,11 @@ public class RecurringActionsWorker extends DefaultActionsWorker {
     }
 
     @Override
-    public long apply(DSLContext context, TransactionNewRecord newRecord) {
-        MetadataDatabase metadataDatabase = databaseWorker.get(MetadataDatabase.class, context);
+    public long apply(UnitOfWork work, TransactionNewRecord newRecord) {
+        DSLContext context = work.context();
+        MetadataDatabase metadataDatabase = work.get(MetadataDatabase.class);
 
-        long transactionId = super.apply(context, newRecord);
+        long transactionId = super.apply(work, newRecord);
         long metadataId = metadataDatabase.createMetadata(MetadataType.RECURRING, 1);
 
         context.update(TRANSACTIONS)
@@ -35,7 +37,7 @@ public class RecurringActionsWorker extends DefaultActionsWorker {
     }
 
     @Override
-    public TransactionEntry<AbstractMetadata> prepareEntry(DSLContext context, Record record, HashMap<Long, TransactionEntry<?>> added) {
+    public TransactionEntry<AbstractMetadata> prepareEntry(UnitOfWork work, Record record, EntriesBatch batch) {
         return new TransactionEntry<>(record, new RecurringMetadata());
     }
 }
@@ -1,15 +1,15 @@
 package app.finwave.backend.api.transaction.manager.actions;
 
-import org.jooq.DSLContext;
 import org.jooq.Record;
 import app.finwave.backend.api.transaction.manager.data.AbstractMetadata;
+import app.finwave.backend.api.transaction.manager.data.EntriesBatch;
 import app.finwave.backend.api.transaction.manager.data.TransactionEntry;
 import app.finwave.backend.api.transaction.hook.TransactionActionsHook;
 import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.UnitOfWork;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 
 public abstract class TransactionActionsWorker<T, Y, Z extends AbstractMetadata> {
@@ -20,10 +20,14 @@ public abstract class TransactionActionsWorker<T, Y, Z extends AbstractMetadata>
         this.databaseWorker = databaseWorker;
     }
 
-    public abstract long apply(DSLContext context, T newRecord);
-    public abstract void edit(DSLContext context, Record record, Y editRecord);
-    public abstract void cancel(DSLContext context, Record record);
-    public abstract TransactionEntry<Z> prepareEntry(DSLContext context, Record record, HashMap<Long, TransactionEntry<?>> added);
+    public abstract long apply(UnitOfWork work, T newRecord);
+    public abstract void edit(UnitOfWork work, Record record, Y editRecord);
+    public abstract void cancel(UnitOfWork work, Record record);
+    public abstract TransactionEntry<Z> prepareEntry(UnitOfWork work, Record record, EntriesBatch batch);
+
+    public void prefetch(UnitOfWork work, List<Record> records, EntriesBatch batch) {
+
+    }
 
     public void addHook(TransactionActionsHook<T, Y> hook) {
         hooks.add(hook);
@@ -0,0 +1,31 @@
+package app.finwave.backend.api.transaction.manager.data;
+
+import app.finwave.backend.jooq.tables.records.InternalTransactionsMetadataRecord;
+import app.finwave.backend.jooq.tables.records.TransactionsRecord;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+public class EntriesBatch {
+    protected final HashSet<Long> addedInternalTransfers = new HashSet<>();
+
+    protected final HashMap<Long, InternalTransactionsMetadataRecord> internalMetadata = new HashMap<>();
+    protected final HashMap<Long, TransactionsRecord> linkedTransactions = new HashMap<>();
+
+    public void add(TransactionEntry<?> entry) {
+        if (entry.metadata instanceof InternalTransferMetadata meta)
+            addedInternalTransfers.add(meta.id);
+    }
+
+    public boolean containsInternalTransfer(long metadataId) {
+        return addedInternalTransfers.contains(metadataId);
+    }
+
+    public HashMap<Long, InternalTransactionsMetadataRecord> getInternalMetadata() {
+        return internalMetadata;
+    }
+
+    public HashMap<Long, TransactionsRecord> getLinkedTransactions() {
+        return linkedTransactions;
+    }
+}
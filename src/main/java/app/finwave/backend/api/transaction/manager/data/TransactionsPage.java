@@ -0,0 +1,8 @@
+package app.finwave.backend.api.transaction.manager.data;
+
+import app.finwave.backend.api.transaction.filter.TransactionsCursor;
+
+import java.util.List;
+
+public record TransactionsPage(List<TransactionEntry<?>> transactions, TransactionsCursor nextCursor) {
+}
@@ -2,9 +2,14 @@ package app.finwave.backend.api.transaction.metadata;
 
 import org.jooq.DSLContext;
 import org.jooq.Record1;
+import app.finwave.backend.api.transaction.TransactionDatabase;
 import app.finwave.backend.database.AbstractDatabase;
 import app.finwave.backend.jooq.tables.records.InternalTransactionsMetadataRecord;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static app.finwave.backend.jooq.Tables.*;
@@ -42,9 +47,52 @@ public class MetadataDatabase extends AbstractDatabase {
         return createMetadata(MetadataType.INTERNAL_TRANSFER, internalId);
     }
 
+    // multi-row RETURNING has no guaranteed order, so the rows are matched back to their pairs by the returned keys
+    public List<Long> createInternalMetadata(List<Long> fromTransactionsIds, List<Long> toTransactionsIds) {
+        ArrayList<Long> result = new ArrayList<>(fromTransactionsIds.size());
+
+        for (int from = 0; from < fromTransactionsIds.size(); from += TransactionDatabase.BULK_INSERT_CHUNK) {
+            int to = Math.min(fromTransactionsIds.size(), from + TransactionDatabase.BULK_INSERT_CHUNK);
+
+            var internalInsert = context.insertInto(INTERNAL_TRANSACTIONS_METADATA,
+                    INTERNAL_TRANSACTIONS_METADATA.FROM_TRANSACTION_ID,
+                    INTERNAL_TRANSACTIONS_METADATA.TO_TRANSACTION_ID);
+
+            for (int i = from; i < to; i++)
+                internalInsert = internalInsert.values(fromTransactionsIds.get(i), toTransactionsIds.get(i));
+
+            // a transaction is the from leg of one transfer at most
+            Map<Long, Long> internalIds = internalInsert
+                    .returningResult(INTERNAL_TRANSACTIONS_METADATA.FROM_TRANSACTION_ID, INTERNAL_TRANSACTIONS_METADATA.ID)
+                    .fetchMap(INTERNAL_TRANSACTIONS_METADATA.FROM_TRANSACTION_ID, INTERNAL_TRANSACTIONS_METADATA.ID);
+
+            var metadataInsert = context.insertInto(TRANSACTIONS_METADATA,
+                    TRANSACTIONS_METADATA.TYPE,
+                    TRANSACTIONS_METADATA.ARG);
+
+            for (Long internalId : internalIds.values())
+                metadataInsert = metadataInsert.values(MetadataType.INTERNAL_TRANSFER.type, internalId);
+
+            Map<Long, Long> metadataIds = metadataInsert
+                    .returningResult(TRANSACTIONS_METADATA.ARG, TRANSACTIONS_METADATA.ID)
+                    .fetchMap(TRANSACTIONS_METADATA.ARG, TRANSACTIONS_METADATA.ID);
+
+            for (int i = from; i < to; i++)
+                result.add(metadataIds.get(internalIds.get(fromTransactionsIds.get(i))));
+        }
+
+        return result;
+    }
+
     public Optional<InternalTransactionsMetadataRecord> getInternalMetadata(long id) {
         return context.selectFrom(INTERNAL_TRANSACTIONS_METADATA)
                 .where(INTERNAL_TRANSACTIONS_METADATA.ID.eq(id))
                 .fetchOptional();
     }
+
+    public Map<Long, InternalTransactionsMetadataRecord> getInternalMetadata(Collection<Long> ids) {
+        return context.selectFrom(INTERNAL_TRANSACTIONS_METADATA)
+                .where(INTERNAL_TRANSACTIONS_METADATA.ID.in(ids))
+                .fetchMap(INTERNAL_TRANSACTIONS_METADATA.ID);
+    }
 }
@@ -7,6 +7,11 @@ public class AnalyticsConfig implements GroupedConfig {
 
     public int maxTimeRangeDaysForMonths = 366;
     public int maxTimeRangeDaysForDays = 120;
+    public int maxTimeRangeDaysForPeriods = 3660;
+    public int maxPeriods = 1000;
+    public int maxRollingWindowDays = 366;
+    public int maxTimeRangeDaysForPivot = 3660;
+    public int maxPivotRows = 5000;
 
     @Override
     public ConfigGroup group() {
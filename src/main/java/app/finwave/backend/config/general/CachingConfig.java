@@ -6,6 +6,7 @@ import app.finwave.backend.config.GroupedConfig;
 public class CachingConfig implements GroupedConfig {
     public Sessions sessions = new Sessions();
     public CategoriesBudget categoriesBudget = new CategoriesBudget();
+    public Categories categories = new Categories();
     public Analytics analytics = new Analytics();
     public Ai ai = new Ai();
     public Files files = new Files();
@@ -24,10 +25,27 @@ public class CachingConfig implements GroupedConfig {
         public int maxLists = 200;
     }
 
+    public static class Categories {
+        public int maxTrees = 200;
+    }
+
     public static class Analytics {
         public int maxDaysEntries = 200;
         public int maxMonthsEntries = 200;
         public int maxCategoriesSummingEntries = 200;
+        public int maxPrefixSumsEntries = 100;
+        public int maxConvertedEntries = 200;
+
+        public boolean patchOnChanges = true;
+        public int consistencyCheckIntervalMinutes = 15;
+        public int consistencyCheckSamples = 20;
+
+        public boolean staleWhileRevalidate = true;
+        public int refreshThreads = 2;
+        public int refreshQueueSize = 1000;
+
+        public boolean warmUpOnAuth = true;
+        public int warmUpIntervalMinutes = 60;
     }
 
     public static class Files {
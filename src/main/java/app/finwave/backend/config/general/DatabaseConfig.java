@@ -12,8 +12,55 @@ public class DatabaseConfig implements GroupedConfig {
             .ofNullable(System.getenv("DATABASE_PASSWORD"))
             .orElse("change_me");
 
+    public Pool pool = new Pool();
+    public Replicas replicas = new Replicas();
+    public Profiler profiler = new Profiler();
+
     @Override
     public ConfigGroup group() {
         return ConfigGroup.GENERAL;
     }
+
+    public static class Pool {
+        public int maxSize = 16;
+        public int minIdle = 2;
+
+        public long acquireTimeoutMillis = 10000;
+        public long idleTimeoutMillis = 600000;
+        public long maxLifetimeMillis = 1800000;
+
+        public long validationTimeoutMillis = 3000;
+        public long keepaliveMillis = 300000;
+    }
+
+    public static class Replicas {
+        public String[] urls = new String[0];
+
+        // null means the same credentials as the primary
+        public String user = null;
+        public String password = null;
+
+        public int poolMaxSize = 8;
+
+        public long maxLagMillis = 2000;
+        public long lagCheckIntervalMillis = 1000;
+
+        // reads of a user go to the primary for this long after their last write
+        public long readYourWritesMillis = 5000;
+    }
+
+    public static class Profiler {
+        public boolean enabled = true;
+
+        // distinct (fingerprint, source) pairs kept, queries past that are counted as "(other)"
+        public int maxFingerprints = 2000;
+
+        public long slowQueryMillis = 250;
+        public int slowQueriesKept = 100;
+
+        // re-runs a sample of the slow selects with EXPLAIN (ANALYZE, BUFFERS), at most one per interval
+        public boolean explainSlowQueries = false;
+        public double explainSampleRate = 0.1;
+        public long explainMinIntervalSeconds = 60;
+    }
 }
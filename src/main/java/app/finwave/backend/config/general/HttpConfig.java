@@ -6,6 +6,10 @@ import app.finwave.backend.config.GroupedConfig;
 public class HttpConfig implements GroupedConfig {
     public int port = 8080;
     public CorsConfig cors = new CorsConfig();
+    public StreamingConfig streaming = new StreamingConfig();
+    public ConditionalConfig conditional = new ConditionalConfig();
+    public CompressionConfig compression = new CompressionConfig();
+    public BatchConfig batch = new BatchConfig();
 
     @Override
     public ConfigGroup group() {
@@ -17,4 +21,42 @@ public class HttpConfig implements GroupedConfig {
         public String allowedMethods = "*";
         public String allowedHeaders = "*";
     }
+
+    public static class StreamingConfig {
+        public boolean enabled = true;
+
+        // chars the json is buffered in before it goes to the servlet output, which has a buffer of its own
+        public int writerBufferSize = 8192;
+        public int responseBufferSize = 32768;
+    }
+
+    public static class ConditionalConfig {
+        public boolean enabled = true;
+
+        // users whose entity versions are kept, a forgotten user just gets full responses once
+        public int maxUsers = 10000;
+        public int expireAfterAccessMinutes = 720;
+    }
+
+    public static class CompressionConfig {
+        public boolean enabled = true;
+
+        // bytes, smaller bodies barely shrink and cost a deflater anyway
+        public int minSize = 1024;
+
+        // 1 (fastest) to 9 (smallest)
+        public int level = 5;
+        public int bufferSize = 8192;
+    }
+
+    public static class BatchConfig {
+        public boolean enabled = true;
+
+        // sub-requests in one batch
+        public int maxRequests = 20;
+
+        // shared by all batches, a full queue makes the batch thread run sub-requests itself
+        public int threads = 8;
+        public int queueSize = 200;
+    }
 }
@@ -2,31 +2,49 @@ package app.finwave.backend.database;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import org.flywaydb.core.Flyway;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.jooq.impl.DefaultExecuteListenerProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.general.DatabaseConfig;
 import app.finwave.backend.migration.Migrator;
 
-import java.lang.reflect.InvocationTargetException;
-import java.sql.Connection;
-import java.sql.DriverManager;
+import javax.sql.DataSource;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Singleton
 public class DatabaseWorker {
     protected static final Logger log = LoggerFactory.getLogger(DatabaseWorker.class);
     protected DatabaseConfig config;
 
-    protected Connection connection;
+    protected HikariDataSource dataSource;
+    protected PoolMetricsTracker metricsTracker = new PoolMetricsTracker();
+    protected QueryProfiler profiler;
     protected DSLContext context;
 
+    protected static final MethodType FACTORY_TYPE = MethodType.methodType(AbstractDatabase.class, DSLContext.class);
+
+    protected ConcurrentHashMap<Class<? extends AbstractDatabase>, MethodHandle> factories = new ConcurrentHashMap<>();
+
+    // DAOs over the long-living contexts (primary and replicas), DAOs hold nothing but their context
+    protected ConcurrentHashMap<DSLContext, ConcurrentHashMap<Class<? extends AbstractDatabase>, AbstractDatabase>> sharedDatabases = new ConcurrentHashMap<>();
+
+    protected ReplicaSet replicas;
+
     @Inject
     public DatabaseWorker(Configs configs, Migrator migrator) {
         config = configs.getState(new DatabaseConfig());
+        profiler = new QueryProfiler(config.profiler, this::getReadContext);
 
         log.info("Init database...");
 
@@ -43,9 +61,17 @@ public class DatabaseWorker {
         log.info("Connect to database...");
 
         try {
-            connection = DriverManager.getConnection(config.url, config.user, config.password);
+            HikariConfig poolConfig = buildPoolConfig();
+            dataSource = new HikariDataSource(poolConfig);
+
+            context = using(dataSource);
+            sharedDatabases.put(context, new ConcurrentHashMap<>());
+
+            replicas = new ReplicaSet(config, poolConfig, this::using);
+            replicas.contexts().forEach((c) -> sharedDatabases.put(c, new ConcurrentHashMap<>()));
 
-            context = DSL.using(connection, SQLDialect.POSTGRES);
+            if (!replicas.isEmpty())
+                log.info("Reading from {} replica(s)", config.replicas.urls.length);
         } catch (Exception e) {
             log.error("Error to connect", e);
 
@@ -53,19 +79,113 @@ public class DatabaseWorker {
         }
     }
 
+    // every context is profiled, transactions derived from them too
+    protected DSLContext using(DataSource dataSource) {
+        return DSL.using(new DefaultConfiguration()
+                .set(dataSource)
+                .set(SQLDialect.POSTGRES)
+                .set(new DefaultExecuteListenerProvider(profiler)));
+    }
+
+    protected HikariConfig buildPoolConfig() {
+        DatabaseConfig.Pool pool = config.pool;
+        HikariConfig hikariConfig = new HikariConfig();
+
+        hikariConfig.setPoolName("finwave");
+        hikariConfig.setJdbcUrl(config.url);
+        hikariConfig.setUsername(config.user);
+        hikariConfig.setPassword(config.password);
+
+        hikariConfig.setMaximumPoolSize(pool.maxSize);
+        hikariConfig.setMinimumIdle(Math.min(pool.minIdle, pool.maxSize));
+        hikariConfig.setConnectionTimeout(pool.acquireTimeoutMillis);
+        hikariConfig.setIdleTimeout(pool.idleTimeoutMillis);
+        hikariConfig.setMaxLifetime(pool.maxLifetimeMillis);
+        hikariConfig.setValidationTimeout(pool.validationTimeoutMillis);
+        hikariConfig.setKeepaliveTime(pool.keepaliveMillis);
+
+        hikariConfig.setMetricsTrackerFactory(metricsTracker);
+
+        return hikariConfig;
+    }
+
+    public PoolMetricsTracker.PoolMetrics getPoolMetrics() {
+        return metricsTracker.snapshot(dataSource == null ? null : dataSource.getHikariPoolMXBean());
+    }
+
+    public QueryProfiler getQueryProfiler() {
+        return profiler;
+    }
+
     public DSLContext getDefaultContext() {
         return context;
     }
 
-    public <T extends AbstractDatabase> T get(Class<T> tClass, DSLContext context) {
+    public UnitOfWork unitOfWork(DSLContext context) {
+        return new UnitOfWork(context, this);
+    }
+
+    public UnitOfWork unitOfWork() {
+        return unitOfWork(context);
+    }
+
+    protected MethodHandle factory(Class<? extends AbstractDatabase> tClass) {
+        return factories.computeIfAbsent(tClass, (c) -> {
+            try {
+                return MethodHandles.publicLookup()
+                        .findConstructor(c, MethodType.methodType(void.class, DSLContext.class))
+                        .asType(FACTORY_TYPE);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    protected AbstractDatabase create(Class<? extends AbstractDatabase> tClass, DSLContext context) {
         try {
-            return tClass.getConstructor(DSLContext.class).newInstance(context);
-        } catch (NoSuchMethodException | InvocationTargetException | InstantiationException | IllegalAccessException e) {
+            return (AbstractDatabase) factory(tClass).invokeExact(context);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
             throw new RuntimeException(e);
         }
     }
 
+    public <T extends AbstractDatabase> T get(Class<T> tClass, DSLContext context) {
+        var shared = sharedDatabases.get(context);
+
+        if (shared != null)
+            return tClass.cast(shared.computeIfAbsent(tClass, (c) -> create(c, context)));
+
+        return tClass.cast(create(tClass, context));
+    }
+
     public <T extends AbstractDatabase> T get(Class<T> tClass) {
         return get(tClass, context);
     }
+
+    // replica when one is in sync and the user has not written recently, primary otherwise
+    public DSLContext getReadContext(int userId) {
+        return replicas.pick(userId).orElse(context);
+    }
+
+    public DSLContext getReadContext() {
+        return replicas.pick().orElse(context);
+    }
+
+    public <T extends AbstractDatabase> T getReadOnly(Class<T> tClass, int userId) {
+        return get(tClass, getReadContext(userId));
+    }
+
+    public <T extends AbstractDatabase> T getReadOnly(Class<T> tClass) {
+        return get(tClass, getReadContext());
+    }
+
+    public void markWritten(int userId) {
+        replicas.markWritten(userId);
+    }
+
+    public List<ReplicaSet.ReplicaState> getReplicasStates() {
+        return replicas.getStates();
+    }
 }
@@ -0,0 +1,77 @@
+package app.finwave.backend.database;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PoolMetricsTracker implements MetricsTrackerFactory, IMetricsTracker {
+    protected final LongAdder acquired = new LongAdder();
+    protected final LongAdder acquireNanos = new LongAdder();
+    protected final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+
+    protected final LongAdder usageMillis = new LongAdder();
+    protected final LongAdder created = new LongAdder();
+    protected final LongAdder timeouts = new LongAdder();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return this;
+    }
+
+    @Override
+    public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+        created.increment();
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        acquired.increment();
+        acquireNanos.add(elapsedAcquiredNanos);
+        maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+        usageMillis.add(elapsedBorrowedMillis);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        timeouts.increment();
+    }
+
+    public PoolMetrics snapshot(HikariPoolMXBean pool) {
+        long acquiredCount = acquired.sum();
+        double avgAcquireMillis = acquiredCount == 0 ? 0 :
+                (double) acquireNanos.sum() / acquiredCount / TimeUnit.MILLISECONDS.toNanos(1);
+
+        return new PoolMetrics(
+                pool == null ? 0 : pool.getActiveConnections(),
+                pool == null ? 0 : pool.getIdleConnections(),
+                pool == null ? 0 : pool.getTotalConnections(),
+                pool == null ? 0 : pool.getThreadsAwaitingConnection(),
+                acquiredCount,
+                avgAcquireMillis,
+                (double) maxAcquireNanos.get() / TimeUnit.MILLISECONDS.toNanos(1),
+                usageMillis.sum(),
+                created.sum(),
+                timeouts.sum()
+        );
+    }
+
+    public record PoolMetrics(int active,
+                              int idle,
+                              int total,
+                              int waiters,
+                              long acquired,
+                              double avgAcquireMillis,
+                              double maxAcquireMillis,
+                              long totalUsageMillis,
+                              long created,
+                              long timeouts) {}
+}
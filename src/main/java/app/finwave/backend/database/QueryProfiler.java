@@ -0,0 +1,272 @@
+package app.finwave.backend.database;
+
+import app.finwave.backend.config.general.DatabaseConfig;
+import app.finwave.backend.metrics.LatencyHistogram;
+import app.finwave.backend.utils.CacheHandyBuilder;
+import com.google.common.cache.Cache;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.conf.ParamType;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// times every query of every context, by its fingerprint (the SQL with literals and IN lists folded) and what it ran
+// for (see QuerySource). Queries over the threshold also go to the slow query log and the list of recent slow ones,
+// a sample of the slow selects gets an EXPLAIN (ANALYZE, BUFFERS) run again on a replica if there is one, in a read
+// only transaction that is rolled back
+public class QueryProfiler implements ExecuteListener {
+    protected static final Logger log = LoggerFactory.getLogger(QueryProfiler.class);
+
+    protected static final String START = "profiler.start";
+    protected static final String OTHER = "(other)";
+
+    protected static final Pattern STRINGS = Pattern.compile("'(?:[^']|'')*'");
+    protected static final Pattern NUMBERS = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?(?![\\w$])");
+    protected static final Pattern LISTS = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    protected static final Pattern SPACES = Pattern.compile("\\s+");
+
+    // jOOQ reports every ResultQuery as a read, INSERT ... RETURNING and data-modifying CTEs included
+    protected static final Pattern WRITES = Pattern.compile("\\b(insert|update|delete|merge|truncate)\\b");
+
+    protected DatabaseConfig.Profiler config;
+    protected Supplier<DSLContext> explainContext;
+
+    protected final ConcurrentHashMap<Key, QueryStats> stats = new ConcurrentHashMap<>();
+    protected final Cache<String, String> fingerprints;
+
+    protected final ArrayDeque<SlowQuery> slowQueries = new ArrayDeque<>();
+
+    protected final ThreadPoolExecutor explainExecutor;
+    protected final AtomicLong lastExplain = new AtomicLong();
+
+    public record Key(String fingerprint, String source) {}
+
+    public QueryProfiler(DatabaseConfig.Profiler config, Supplier<DSLContext> explainContext) {
+        this.config = config;
+        this.explainContext = explainContext;
+        this.fingerprints = CacheHandyBuilder.cache(0, null, config.maxFingerprints);
+
+        // one at a time, a slow query re-run is load enough. Skipped when one is already waiting
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(1),
+                (r) -> {
+                    Thread thread = new Thread(r, "query-explain");
+                    thread.setDaemon(true);
+
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+        this.explainExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void executeStart(ExecuteContext ctx) {
+        if (config.enabled)
+            ctx.data(START, System.nanoTime());
+    }
+
+    @Override
+    public void end(ExecuteContext ctx) {
+        Object start = ctx.data(START);
+
+        if (!(start instanceof Long startNanos) || ctx.sql() == null)
+            return;
+
+        long nanos = System.nanoTime() - startNanos;
+        String fingerprint = fingerprint(ctx.sql());
+
+        // the plans asked for below
+        if (fingerprint.startsWith("explain "))
+            return;
+
+        long rows = ctx.result() != null ? ctx.result().size() : Math.max(ctx.rows(), 0);
+        String source = QuerySource.current();
+
+        Key key = new Key(fingerprint, source);
+        QueryStats queryStats = stats.get(key);
+
+        if (queryStats == null) {
+            if (stats.size() >= config.maxFingerprints)
+                key = new Key(OTHER, source);
+
+            queryStats = stats.computeIfAbsent(key, (k) -> new QueryStats());
+        }
+
+        queryStats.record(nanos, rows);
+
+        if (nanos >= TimeUnit.MILLISECONDS.toNanos(config.slowQueryMillis))
+            slow(ctx, fingerprint, source, nanos, rows);
+    }
+
+    protected String fingerprint(String sql) {
+        String result = fingerprints.getIfPresent(sql);
+
+        if (result != null)
+            return result;
+
+        result = STRINGS.matcher(sql).replaceAll("?");
+        result = NUMBERS.matcher(result).replaceAll("?");
+        result = LISTS.matcher(result).replaceAll("(?, ...)");
+        result = SPACES.matcher(result).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+
+        fingerprints.put(sql, result);
+
+        return result;
+    }
+
+    protected void slow(ExecuteContext ctx, String fingerprint, String source, long nanos, long rows) {
+        double millis = nanos / 1e6;
+
+        // only the fingerprint, the values can be anyone's data
+        log.warn("Slow query, {} ms, {} rows, from {}: {}", String.format("%.1f", millis), rows, source, fingerprint);
+
+        SlowQuery slowQuery = new SlowQuery(OffsetDateTime.now(), fingerprint, source, millis, rows);
+
+        synchronized (slowQueries) {
+            slowQueries.addFirst(slowQuery);
+
+            while (slowQueries.size() > config.slowQueriesKept)
+                slowQueries.removeLast();
+        }
+
+        if (config.explainSlowQueries && ctx.query() != null && explainable(fingerprint) && shouldExplain())
+            explain(slowQuery, ctx.query().getSQL(ParamType.INLINED));
+    }
+
+    // EXPLAIN ANALYZE runs the statement, only plain selects may be run twice. The fingerprint has no literals left
+    // whose words could look like a write
+    protected static boolean explainable(String fingerprint) {
+        return (fingerprint.startsWith("select ") || fingerprint.startsWith("with ")) && !WRITES.matcher(fingerprint).find();
+    }
+
+    protected boolean shouldExplain() {
+        if (ThreadLocalRandom.current().nextDouble() >= config.explainSampleRate)
+            return false;
+
+        long now = System.currentTimeMillis();
+        long last = lastExplain.get();
+
+        return now - last >= TimeUnit.SECONDS.toMillis(config.explainMinIntervalSeconds) && lastExplain.compareAndSet(last, now);
+    }
+
+    protected void explain(SlowQuery slowQuery, String sql) {
+        explainExecutor.execute(() -> {
+            try {
+                DSLContext context = explainContext.get();
+
+                // without a replica this is the primary, whatever slips through the check above still can't write
+                slowQuery.plan = context.connectionResult((connection) -> {
+                    boolean autoCommit = connection.getAutoCommit();
+
+                    connection.setAutoCommit(false);
+
+                    try {
+                        DSLContext readOnly = DSL.using(connection, context.dialect());
+
+                        readOnly.execute("set transaction read only");
+
+                        return String.join("\n", readOnly
+                                .fetch("explain (analyze, buffers) " + sql)
+                                .getValues(0, String.class));
+                    } finally {
+                        connection.rollback();
+                        connection.setAutoCommit(autoCommit);
+                    }
+                });
+
+                // the plan has the query's values in it, it stays with the slow query for admins only
+                log.debug("Explained the slow query from {}", slowQuery.source);
+            } catch (Exception e) {
+                log.debug("Failed to explain slow query", e);
+            }
+        });
+    }
+
+    public List<QueryStatistics> getStatistics(Comparator<QueryStatistics> order, int limit) {
+        return stats.entrySet().stream()
+                .map((e) -> e.getValue().snapshot(e.getKey()))
+                .sorted(order)
+                .limit(limit)
+                .toList();
+    }
+
+    public List<SlowQuery> getSlowQueries() {
+        synchronized (slowQueries) {
+            return new ArrayList<>(slowQueries);
+        }
+    }
+
+    public void reset() {
+        stats.clear();
+
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+    }
+
+    protected static class QueryStats {
+        protected final LatencyHistogram latency = new LatencyHistogram();
+        protected final LongAdder rows = new LongAdder();
+
+        protected void record(long nanos, long rows) {
+            latency.record(nanos);
+            this.rows.add(rows);
+        }
+
+        protected QueryStatistics snapshot(Key key) {
+            long[] snapshot = latency.snapshot();
+            long count = LatencyHistogram.count(snapshot);
+            double totalMillis = latency.sumSeconds() * 1000;
+
+            return new QueryStatistics(
+                    key.fingerprint(),
+                    key.source(),
+                    count,
+                    totalMillis,
+                    count == 0 ? 0 : totalMillis / count,
+                    LatencyHistogram.quantileSeconds(snapshot, 0.5) * 1000,
+                    LatencyHistogram.quantileSeconds(snapshot, 0.99) * 1000,
+                    rows.sum()
+            );
+        }
+    }
+
+    // p50 and p99 are upper bounds of histogram buckets, within 25%
+    public record QueryStatistics(String fingerprint,
+                                  String source,
+                                  long count,
+                                  double totalMillis,
+                                  double meanMillis,
+                                  double p50Millis,
+                                  double p99Millis,
+                                  long rows) {}
+
+    public static class SlowQuery {
+        public final OffsetDateTime at;
+        public final String fingerprint;
+        public final String source;
+        public final double millis;
+        public final long rows;
+
+        // filled in when it's been explained
+        public volatile String plan;
+
+        public SlowQuery(OffsetDateTime at, String fingerprint, String source, double millis, long rows) {
+            this.at = at;
+            this.fingerprint = fingerprint;
+            this.source = source;
+            this.millis = millis;
+            this.rows = rows;
+        }
+    }
+}
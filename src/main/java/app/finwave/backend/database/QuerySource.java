@@ -0,0 +1,25 @@
+package app.finwave.backend.database;
+
+// what the queries on this thread run for, an HTTP route or a background service. Set by whoever starts the work,
+// threads without it are told apart by their names
+public class QuerySource {
+    protected static final ThreadLocal<String> current = new ThreadLocal<>();
+
+    public static void set(String source) {
+        current.set(source);
+    }
+
+    public static void clear() {
+        current.remove();
+    }
+
+    public static String current() {
+        String source = current.get();
+
+        if (source != null)
+            return source;
+
+        // pool threads are numbered, "analytics-refresh-2" and "analytics-refresh-1" are the same thing
+        return "thread " + Thread.currentThread().getName().replaceAll("-\\d+$", "");
+    }
+}
@@ -0,0 +1,175 @@
+package app.finwave.backend.database;
+
+import app.finwave.backend.config.general.DatabaseConfig;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class ReplicaSet {
+    protected static final Logger log = LoggerFactory.getLogger(ReplicaSet.class);
+
+    // zero when the replica has replayed everything it received, so an idle primary does not look like lag
+    protected static final String LAG_QUERY = """
+            select case
+                when not pg_is_in_recovery() or pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0
+                else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+            end""";
+
+    protected DatabaseConfig.Replicas config;
+    protected ArrayList<Replica> replicas = new ArrayList<>();
+    protected AtomicInteger next = new AtomicInteger();
+
+    protected Cache<Integer, Boolean> recentWriters;
+
+    // probes the lag in the background, so a replica that hangs never holds up a request picking one
+    protected ScheduledExecutorService lagChecker;
+
+    public ReplicaSet(DatabaseConfig config, HikariConfig primaryConfig, Function<DataSource, DSLContext> contexts) {
+        this.config = config.replicas;
+
+        this.recentWriters = CacheBuilder.newBuilder()
+                .expireAfterWrite(this.config.readYourWritesMillis, TimeUnit.MILLISECONDS)
+                .build();
+
+        for (int i = 0; i < this.config.urls.length; i++) {
+            HikariConfig hikariConfig = new HikariConfig();
+            primaryConfig.copyStateTo(hikariConfig);
+
+            hikariConfig.setPoolName("finwave-replica-" + i);
+            hikariConfig.setJdbcUrl(this.config.urls[i]);
+            hikariConfig.setReadOnly(true);
+            hikariConfig.setMaximumPoolSize(this.config.poolMaxSize);
+            hikariConfig.setMinimumIdle(Math.min(hikariConfig.getMinimumIdle(), this.config.poolMaxSize));
+            hikariConfig.setMetricsTrackerFactory(null);
+
+            if (this.config.user != null)
+                hikariConfig.setUsername(this.config.user);
+
+            if (this.config.password != null)
+                hikariConfig.setPassword(this.config.password);
+
+            HikariDataSource dataSource = new HikariDataSource(hikariConfig);
+
+            replicas.add(new Replica(this.config.urls[i], dataSource, contexts.apply(dataSource)));
+        }
+
+        if (replicas.isEmpty())
+            return;
+
+        AtomicInteger threadsCounter = new AtomicInteger();
+
+        // a thread per replica, one that hangs doesn't delay the checks of the others
+        this.lagChecker = Executors.newScheduledThreadPool(replicas.size(), (r) -> {
+            Thread thread = new Thread(r, "replica-lag-" + threadsCounter.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        for (Replica replica : replicas)
+            lagChecker.scheduleWithFixedDelay(replica::checkLag, 0, this.config.lagCheckIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEmpty() {
+        return replicas.isEmpty();
+    }
+
+    public List<DSLContext> contexts() {
+        return replicas.stream().map((r) -> r.context).toList();
+    }
+
+    public void markWritten(int userId) {
+        if (!replicas.isEmpty())
+            recentWriters.put(userId, true);
+    }
+
+    public Optional<DSLContext> pick(int userId) {
+        if (replicas.isEmpty() || recentWriters.getIfPresent(userId) != null)
+            return Optional.empty();
+
+        return pick();
+    }
+
+    public Optional<DSLContext> pick() {
+        int size = replicas.size();
+
+        if (size == 0)
+            return Optional.empty();
+
+        int start = Math.floorMod(next.getAndIncrement(), size);
+
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+
+            if (replica.usable())
+                return Optional.of(replica.context);
+        }
+
+        return Optional.empty();
+    }
+
+    public List<ReplicaState> getStates() {
+        return replicas.stream()
+                .map((r) -> new ReplicaState(r.url, r.lagMillis, r.usable()))
+                .toList();
+    }
+
+    public void close() {
+        if (lagChecker != null)
+            lagChecker.shutdownNow();
+
+        replicas.forEach((r) -> r.dataSource.close());
+    }
+
+    public record ReplicaState(String url, long lagMillis, boolean usable) {}
+
+    protected class Replica {
+        protected final String url;
+        protected final HikariDataSource dataSource;
+        protected final DSLContext context;
+
+        // unusable until the first check answers
+        protected volatile long lagMillis = Long.MAX_VALUE;
+        protected volatile long answeredAt = 0;
+
+        protected Replica(String url, HikariDataSource dataSource, DSLContext context) {
+            this.url = url;
+            this.dataSource = dataSource;
+            this.context = context;
+        }
+
+        // runs on the lag checker only. Must not throw, a scheduled task that does is never run again
+        protected void checkLag() {
+            try {
+                Object lag = context.fetchValue(LAG_QUERY);
+                lagMillis = lag instanceof Number n ? n.longValue() : Long.MAX_VALUE;
+                answeredAt = System.currentTimeMillis();
+            } catch (Exception e) {
+                if (lagMillis != Long.MAX_VALUE)
+                    log.warn("Replica " + url + " is unavailable, reading from primary", e);
+
+                lagMillis = Long.MAX_VALUE;
+            }
+        }
+
+        // a check that hangs leaves the last lag in place, so it only counts while it's recent enough
+        protected boolean usable() {
+            return lagMillis <= config.maxLagMillis &&
+                    System.currentTimeMillis() - answeredAt <= config.maxLagMillis + config.lagCheckIntervalMillis;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package app.finwave.backend.database;
+
+import org.jooq.DSLContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+// one database transaction (or the default context) together with the DAOs bound to it,
+// passed through the transaction workers and hooks so that linked operations share it
+public class UnitOfWork {
+    protected final DSLContext context;
+    protected final DatabaseWorker databaseWorker;
+    protected final HashMap<Class<? extends AbstractDatabase>, AbstractDatabase> databases = new HashMap<>();
+    protected final ArrayList<Runnable> afterCommit = new ArrayList<>();
+
+    public UnitOfWork(DSLContext context, DatabaseWorker databaseWorker) {
+        this.context = context;
+        this.databaseWorker = databaseWorker;
+    }
+
+    public DSLContext context() {
+        return context;
+    }
+
+    public <T extends AbstractDatabase> T get(Class<T> tClass) {
+        AbstractDatabase database = databases.get(tClass);
+
+        if (database == null) {
+            database = databaseWorker.get(tClass, context);
+            databases.put(tClass, database);
+        }
+
+        return tClass.cast(database);
+    }
+
+    // for side effects outside the database (caches) that must not happen if the transaction rolls back
+    public void afterCommit(Runnable action) {
+        afterCommit.add(action);
+    }
+
+    public void committed() {
+        afterCommit.forEach(Runnable::run);
+        afterCommit.clear();
+    }
+}
@@ -0,0 +1,126 @@
+package app.finwave.backend.http;
+
+import app.finwave.backend.api.event.WebSocketWorker;
+import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.general.HttpConfig;
+import app.finwave.backend.jooq.tables.records.UsersSessionsRecord;
+import app.finwave.backend.utils.CacheHandyBuilder;
+import com.google.common.cache.Cache;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import spark.Request;
+import spark.Route;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+// a version per user and per entity type ("accounts", "categories", ...), bumped by every NotifyUpdate sent for it.
+// Lists built from these entities get an ETag out of their versions, and a reload with the same If-None-Match is
+// answered with 304 before the handler runs. The version is read before the handler reads the database and bumped
+// after the write is committed, so a tag can be older than the data it came with, never newer
+@Singleton
+public class EntityVersions {
+    // currencies of the root user are listed to everyone
+    protected static final int ROOT_USER_ID = 1;
+    protected static final Set<String> SHARED = Set.of("currencies");
+
+    // every version comes from one sequence, so a user's counters created again after eviction never repeat a tag
+    // handed out before. The epoch does the same across restarts
+    protected final AtomicLong sequence = new AtomicLong();
+    protected final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    protected HttpConfig.ConditionalConfig config;
+    protected Cache<Integer, ConcurrentHashMap<String, Long>> versions;
+
+    @Inject
+    public EntityVersions(Configs configs, WebSocketWorker socketWorker) {
+        this(configs.getState(new HttpConfig()).conditional);
+
+        socketWorker.addUpdateListener(this::bump);
+    }
+
+    protected EntityVersions(HttpConfig.ConditionalConfig config) {
+        this.config = config;
+        this.versions = CacheHandyBuilder.cache(config.expireAfterAccessMinutes, TimeUnit.MINUTES, config.maxUsers);
+    }
+
+    protected ConcurrentHashMap<String, Long> userVersions(int userId) {
+        return versions.asMap().computeIfAbsent(userId, (k) -> new ConcurrentHashMap<>());
+    }
+
+    public long version(int userId, String entity) {
+        return userVersions(userId).computeIfAbsent(entity, (k) -> sequence.incrementAndGet());
+    }
+
+    public void bump(int userId, String entity) {
+        userVersions(userId).put(entity, sequence.incrementAndGet());
+    }
+
+    // weak, the same entities can be serialized (or compressed) differently and still mean the same
+    public String tag(int userId, String query, String... entities) {
+        StringBuilder builder = new StringBuilder("W/\"").append(epoch);
+
+        for (String entity : entities) {
+            builder.append('.').append(Long.toString(version(userId, entity), 36));
+
+            if (SHARED.contains(entity) && userId != ROOT_USER_ID)
+                builder.append('.').append(Long.toString(version(ROOT_USER_ID, entity), 36));
+        }
+
+        if (query != null && !query.isEmpty())
+            builder.append('-').append(Integer.toHexString(query.hashCode()));
+
+        return builder.append('"').toString();
+    }
+
+    protected static boolean matches(String ifNoneMatch, String tag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank())
+            return false;
+
+        String opaque = tag.substring(2);
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+
+            if (candidate.equals("*"))
+                return true;
+
+            if (candidate.startsWith("W/"))
+                candidate = candidate.substring(2);
+
+            if (candidate.equals(opaque))
+                return true;
+        }
+
+        return false;
+    }
+
+    // applies tells whether the response depends on nothing but the entities, like exchange rates it doesn't track
+    public Route conditional(Route route, Predicate<Request> applies, String... entities) {
+        if (!config.enabled)
+            return route;
+
+        return (request, response) -> {
+            UsersSessionsRecord session = request.attribute("session");
+
+            if (session == null || !applies.test(request))
+                return route.handle(request, response);
+
+            String tag = tag(session.getUserId(), request.queryString(), entities);
+
+            response.header("ETag", tag);
+            response.header("Cache-Control", "private, no-cache");
+
+            if (matches(request.headers("If-None-Match"), tag)) {
+                response.status(304);
+
+                return "";
+            }
+
+            return route.handle(request, response);
+        };
+    }
+}
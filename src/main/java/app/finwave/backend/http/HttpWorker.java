@@ -2,6 +2,7 @@ package app.finwave.backend.http;
 
 import app.finwave.backend.api.account.folder.AccountFolderApi;
 import app.finwave.backend.api.ai.AiApi;
+import app.finwave.backend.api.batch.BatchApi;
 import app.finwave.backend.api.currency.excange.ExchangeApi;
 import app.finwave.backend.api.event.WebSocketHandler;
 import app.finwave.backend.api.files.FilesApi;
@@ -29,7 +30,17 @@ import app.finwave.backend.api.category.CategoryApi;
 import app.finwave.backend.api.user.UserApi;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.general.HttpConfig;
+import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.jooq.tables.records.UsersSessionsRecord;
+import app.finwave.backend.metrics.HttpMetrics;
 import app.finwave.backend.utils.params.InvalidParameterException;
+import spark.Request;
+import spark.Route;
+import spark.RouteGroup;
+import spark.Spark;
+
+import java.util.IdentityHashMap;
+import java.util.function.Predicate;
 
 import static spark.Spark.*;
 
@@ -38,6 +49,10 @@ public class HttpWorker {
     protected static final Logger log = LoggerFactory.getLogger(HttpWorker.class);
 
     protected HttpConfig config;
+    protected DatabaseWorker databaseWorker;
+    protected EntityVersions entityVersions;
+    protected ResponseCompression compression;
+    protected HttpMetrics httpMetrics;
     protected AuthApi authApi;
     protected UserApi userApi;
     protected ConfigApi configApi;
@@ -59,9 +74,14 @@ public class HttpWorker {
     protected ServerApi serverApi;
     protected AiApi aiApi;
     protected FilesApi filesApi;
+    protected BatchApi batchApi;
 
     @Inject
     public HttpWorker(Configs configs,
+                      DatabaseWorker databaseWorker,
+                      EntityVersions entityVersions,
+                      ResponseCompression compression,
+                      HttpMetrics httpMetrics,
                       AuthApi authApi,
                       UserApi userApi,
                       SessionApi sessionApi,
@@ -82,8 +102,13 @@ public class HttpWorker {
                       ReportApi reportApi,
                       ServerApi serverApi,
                       AiApi aiApi,
-                      FilesApi filesApi) {
+                      FilesApi filesApi,
+                      BatchApi batchApi) {
         this.config = configs.getState(new HttpConfig());
+        this.databaseWorker = databaseWorker;
+        this.entityVersions = entityVersions;
+        this.compression = compression;
+        this.httpMetrics = httpMetrics;
 
         this.authApi = authApi;
         this.userApi = userApi;
@@ -106,6 +131,7 @@ public class HttpWorker {
         this.serverApi = serverApi;
         this.aiApi = aiApi;
         this.filesApi = filesApi;
+        this.batchApi = batchApi;
 
         webSocket("/websockets/events", WebSocketHandler.class);
 
@@ -122,9 +148,17 @@ public class HttpWorker {
             get("/getActiveUsersCount", adminApi::getActiveUsersCount);
             get("/getUsersCount", adminApi::getUsersCount);
             get("/getTransactionsCount", adminApi::getTransactionsCount);
+            get("/getDatabasePoolStats", adminApi::getDatabasePoolStats);
+            get("/getAnalyticsCacheStats", adminApi::getAnalyticsCacheStats);
+            get("/getCompressionStats", adminApi::getCompressionStats);
+            get("/metrics", adminApi::getMetrics);
+            get("/getQueryStats", adminApi::getQueryStats);
+            get("/getSlowQueries", adminApi::getSlowQueries);
 
             post("/registerUser", adminApi::registerUser);
             post("/changeUserPassword", adminApi::changeUserPassword);
+            post("/rebuildAnalyticsRollup", adminApi::rebuildAnalyticsRollup);
+            post("/resetQueryStats", adminApi::resetQueryStats);
         });
 
         path("/user", () -> {
@@ -134,8 +168,11 @@ public class HttpWorker {
             post("/changePassword", userApi::changePassword);
             post("/logout", userApi::logout);
 
+            if (config.batch.enabled)
+                post("/batch", stream(batchApi::batch));
+
             path("/reports", () -> {
-                get("/getList", reportApi::getList);
+                get("/getList", conditional(reportApi::getList, "reports"));
                 post("/new", reportApi::newReport);
             });
 
@@ -147,8 +184,8 @@ public class HttpWorker {
 
             path("/notes", () -> {
                 get("/get", noteApi::getNote);
-                get("/getList", noteApi::getNotesList);
-                get("/getImportant", noteApi::getImportantNotes);
+                get("/getList", conditional(stream(noteApi::getNotesList), "notes"));
+                get("/getImportant", conditional(noteApi::getImportantNotes, "notes"));
                 post("/new", noteApi::newNote);
                 post("/edit", noteApi::editNote);
                 post("/editTime", noteApi::editNoteNotificationTime);
@@ -160,7 +197,7 @@ public class HttpWorker {
                     get("/getExchangeRate", exchangeApi::getExchangeRate);
                 });
 
-                get("/getList", currencyApi::getCurrencies);
+                get("/getList", conditional(currencyApi::getCurrencies, "currencies"));
                 post("/new", currencyApi::newCurrency);
                 post("/editSymbol", currencyApi::editCurrencySymbol);
                 post("/editCode", currencyApi::editCurrencyCode);
@@ -170,14 +207,17 @@ public class HttpWorker {
 
             path("/accounts", () -> {
                 path("/folders", () -> {
-                    get("/getList", accountFolderApi::getFolders);
+                    get("/getList", conditional(accountFolderApi::getFolders, "accountFolders"));
                     post("/new", accountFolderApi::newFolder);
                     post("/editName", accountFolderApi::editFolderName);
                     post("/editDescription", accountFolderApi::editFolderDescription);
                     post("/delete", accountFolderApi::deleteFolder);
                 });
 
-                get("/getList", accountApi::getAccounts);
+                // balances move with transactions, converted ones with exchange rates too, which aren't versioned
+                get("/getList", conditional(accountApi::getAccounts,
+                        (r) -> r.queryParams("targetCurrencyId") == null,
+                        "accounts", "accountFolders", "transactions"));
                 post("/new", accountApi::newAccount);
                 post("/editName", accountApi::editAccountName);
                 post("/editDescription", accountApi::editAccountDescription);
@@ -188,14 +228,14 @@ public class HttpWorker {
             });
 
             path("/accumulations", () -> {
-                get("/getList", accumulationApi::getList);
+                get("/getList", conditional(accumulationApi::getList, "accumulation"));
                 post("/set", accumulationApi::setAccumulation);
                 post("/remove", accumulationApi::removeAccumulation);
             });
 
             path("/transactions", () -> {
                 path("/categories", () -> {
-                    get("/getList", categoryApi::getCategories);
+                    get("/getList", conditional(categoryApi::getCategories, "categories"));
                     post("/new", categoryApi::newCategory);
                     post("/editType", categoryApi::editCategoryType);
                     post("/editParent", categoryApi::editCategoryParent);
@@ -203,7 +243,7 @@ public class HttpWorker {
                     post("/editDescription", categoryApi::editCategoryDescription);
 
                     path("/budget", () -> {
-                        get("/getList", categoryBudgetApi::getSettings);
+                        get("/getList", conditional(categoryBudgetApi::getSettings, "categoryBudget"));
                         post("/add", categoryBudgetApi::addBudget);
                         post("/edit", categoryBudgetApi::editBudget);
                         post("/remove", categoryBudgetApi::remove);
@@ -211,14 +251,14 @@ public class HttpWorker {
                 });
 
                 path("/recurring", () -> {
-                    get("/getList", recurringTransactionApi::getList);
+                    get("/getList", conditional(recurringTransactionApi::getList, "recurringTransactions"));
                     post("/new", recurringTransactionApi::newRecurringTransaction);
                     post("/edit", recurringTransactionApi::editRecurringTransaction);
                     post("/delete", recurringTransactionApi::deleteRecurringTransaction);
                 });
 
-                get("/getList", transactionApi::getTransactions);
-                get("/getCount", transactionApi::getTransactionsCount);
+                get("/getList", conditional(stream(transactionApi::getTransactions), "transactions", "accounts"));
+                get("/getCount", conditional(transactionApi::getTransactionsCount, "transactions", "accounts"));
                 post("/new", transactionApi::newTransaction);
                 post("/newInternal", transactionApi::newInternalTransfer);
                 post("/newBulk", transactionApi::newBulkTransactions);
@@ -227,14 +267,16 @@ public class HttpWorker {
             });
 
             path("/analytics", () -> {
-                get("/getByMonths", analyticsApi::getAnalyticsByMonths);
-                get("/getByDays", analyticsApi::getAnalyticsByDays);
+                get("/getByMonths", stream(analyticsApi::getAnalyticsByMonths));
+                get("/getByDays", stream(analyticsApi::getAnalyticsByDays));
+                get("/getByPeriod", stream(analyticsApi::getAnalyticsByPeriod));
+                get("/getPivot", stream(analyticsApi::getPivot));
                 get("/getCategoriesAnalytics", analyticsApi::getCategoriesAnalytics);
             });
 
             path("/notifications", () -> {
                 path("/points", () -> {
-                    get("/getList", notificationApi::getPoints);
+                    get("/getList", conditional(notificationApi::getPoints, "notificationPoints"));
                     get("/vapidKey", notificationApi::getKey);
                     post("/newWebPush", notificationApi::registerNewWebPushPoint);
                     post("/editDescription", notificationApi::editPointDescription);
@@ -269,7 +311,7 @@ public class HttpWorker {
             path("/authed", () -> {
                 before("/*", authApi::auth);
 
-                get("/getList", filesApi::getList);
+                get("/getList", conditional(stream(filesApi::getList), "files"));
                 get("/availableSpace", filesApi::availableSpace);
                 get("/download", filesApi::downloadWithAuth);
 
@@ -285,10 +327,82 @@ public class HttpWorker {
         });
     }
 
+    // full path of the path() groups being set up
+    protected String routesPrefix = "";
+
+    // these three shadow Spark's, so HttpMetrics knows every route by its full path
+    protected void path(String path, RouteGroup group) {
+        String parent = routesPrefix;
+
+        Spark.path(path, () -> {
+            routesPrefix = parent + path;
+
+            try {
+                group.addRoutes();
+            } finally {
+                routesPrefix = parent;
+            }
+        });
+    }
+
+    protected void get(String path, Route route) {
+        httpMetrics.register("GET", routesPrefix + path);
+
+        if (batchable(routesPrefix + path))
+            batchApi.register(routesPrefix + path, unwrap(route));
+
+        Spark.get(path, route);
+    }
+
+    protected void post(String path, Route route) {
+        httpMetrics.register("POST", routesPrefix + path);
+        Spark.post(path, route);
+    }
+
+    // reads behind authApi.auth, except downloads, which write the file into the raw response
+    protected static boolean batchable(String path) {
+        return (path.startsWith("/user/") || path.startsWith("/files/authed/")) && !path.endsWith("/download");
+    }
+
+    // handlers wrapped by conditional() and stream(), batches call them directly
+    protected final IdentityHashMap<Route, Route> wrapped = new IdentityHashMap<>();
+
+    protected Route wrap(Route wrapper, Route route) {
+        if (wrapper != route)
+            wrapped.put(wrapper, route);
+
+        return wrapper;
+    }
+
+    protected Route unwrap(Route route) {
+        while (wrapped.containsKey(route))
+            route = wrapped.get(route);
+
+        return route;
+    }
+
+    // for lists the client reloads on NotifyUpdate of the entities, see EntityVersions
+    protected Route conditional(Route route, String... entities) {
+        return conditional(route, (r) -> true, entities);
+    }
+
+    protected Route conditional(Route route, Predicate<Request> applies, String... entities) {
+        return wrap(entityVersions.conditional(route, applies, entities), route);
+    }
+
+    // for the endpoints whose responses can get large, see JsonStreaming
+    protected Route stream(Route route) {
+        return wrap(JsonStreaming.streaming(route, config.streaming, compression), route);
+    }
+
     protected void setup() {
         port(config.port);
         //ipAddress("0.0.0.0");
 
+        // first before filter and the afterAfter one, so the timing covers all the others
+        before(httpMetrics::start);
+        afterAfter(httpMetrics::finish);
+
         options("/*", (request, response) -> {
 
             String accessControlRequestHeaders = request.headers("Access-Control-Request-Headers");
@@ -311,6 +425,14 @@ public class HttpWorker {
             response.type("application/json");
         });
 
+        // the user's next reads go to the primary until replicas have surely caught up with this write
+        after((request, response) -> {
+            UsersSessionsRecord session = request.attribute("session");
+
+            if (session != null && !request.requestMethod().equals("GET") && request.attribute("readOnly") == null)
+                databaseWorker.markWritten(session.getUserId());
+        });
+
         exception(InvalidParameterException.class, (exception, request, response) -> {
             response.status(400);
             log.trace(request.url() + " - 400: ", exception);
@@ -0,0 +1,62 @@
+package app.finwave.backend.http;
+
+import app.finwave.backend.api.ApiResponse;
+import app.finwave.backend.config.general.HttpConfig;
+import com.google.gson.stream.JsonWriter;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+// writes the ApiResponse a route returns straight into the servlet output, instead of Spark turning it into one
+// String and then into bytes. Without a content length Jetty goes chunked once its buffer fills, so a response of
+// any size holds at most the two bounded buffers. The output is compressed on the way if the client accepts it
+public class JsonStreaming {
+    protected static final Logger log = LoggerFactory.getLogger(JsonStreaming.class);
+
+    public static Route streaming(Route route, HttpConfig.StreamingConfig config, ResponseCompression compression) {
+        if (!config.enabled)
+            return route;
+
+        return (request, response) -> {
+            Object result = route.handle(request, response);
+
+            if (!(result instanceof ApiResponse apiResponse))
+                return result;
+
+            return write(apiResponse, request, response, config, compression);
+        };
+    }
+
+    // the response is committed after this, returning the raw one tells Spark the body is already sent
+    public static Object write(ApiResponse apiResponse, Request request, Response response, HttpConfig.StreamingConfig config, ResponseCompression compression) {
+        HttpServletResponse raw = response.raw();
+
+        raw.setBufferSize(config.responseBufferSize);
+        raw.setCharacterEncoding("UTF-8");
+
+        try (OutputStream output = compression.output(request.headers("Accept-Encoding"), raw)) {
+            write(apiResponse, output, config.writerBufferSize);
+        } catch (IOException e) {
+            // most likely the client went away, nothing can be sent to it at this point anyway
+            log.debug("Failed to stream response", e);
+        }
+
+        return raw;
+    }
+
+    public static void write(ApiResponse apiResponse, OutputStream output, int bufferSize) throws IOException {
+        JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), bufferSize));
+
+        ApiResponse.GSON.toJson(apiResponse, apiResponse.getClass(), writer);
+        writer.flush();
+    }
+}
@@ -0,0 +1,236 @@
+package app.finwave.backend.http;
+
+import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.general.HttpConfig;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+// gzip for the bodies the server writes itself (see JsonStreaming), negotiated from Accept-Encoding. The body is
+// held back until it reaches the threshold, so small responses go out as they are, with a content length, and large
+// ones are compressed on the fly without ever being whole in memory. File downloads don't go through here, most of
+// them are compressed already
+@Singleton
+public class ResponseCompression {
+    protected HttpConfig.CompressionConfig config;
+
+    protected final LongAdder compressed = new LongAdder();
+    protected final LongAdder uncompressed = new LongAdder();
+    protected final LongAdder bytesIn = new LongAdder();
+    protected final LongAdder bytesOut = new LongAdder();
+    protected final LongAdder compressNanos = new LongAdder();
+
+    @Inject
+    public ResponseCompression(Configs configs) {
+        this(configs.getState(new HttpConfig()).compression);
+    }
+
+    protected ResponseCompression(HttpConfig.CompressionConfig config) {
+        this.config = config;
+    }
+
+    public OutputStream output(String acceptEncoding, HttpServletResponse raw) throws IOException {
+        if (!config.enabled)
+            return raw.getOutputStream();
+
+        raw.addHeader("Vary", "Accept-Encoding");
+
+        if (!accepts(acceptEncoding, "gzip"))
+            return raw.getOutputStream();
+
+        return new ThresholdOutputStream(raw);
+    }
+
+    // "gzip", "gzip;q=0.5" and "*" accept it, "gzip;q=0" doesn't
+    protected static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null)
+            return false;
+
+        boolean wildcard = false;
+
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.trim().split(";");
+            String name = params[0].trim();
+
+            if (!name.equalsIgnoreCase(coding) && !name.equals("*"))
+                continue;
+
+            boolean allowed = true;
+
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+
+                if (!param.startsWith("q="))
+                    continue;
+
+                try {
+                    allowed = Double.parseDouble(param.substring(2)) > 0;
+                } catch (NumberFormatException e) {
+                    allowed = false;
+                }
+            }
+
+            if (name.equalsIgnoreCase(coding))
+                return allowed;
+
+            wildcard = allowed;
+        }
+
+        return wildcard;
+    }
+
+    public CompressionStats stats() {
+        long in = bytesIn.sum();
+        long out = bytesOut.sum();
+
+        return new CompressionStats(
+                compressed.sum(),
+                uncompressed.sum(),
+                in,
+                out,
+                in - out,
+                in == 0 ? 0 : (double) out / in,
+                (double) compressNanos.sum() / TimeUnit.MILLISECONDS.toNanos(1)
+        );
+    }
+
+    // bytesIn and bytesOut are of compressed responses only, compressMillis is the time spent in the deflater,
+    // without the writes to the client it did
+    public record CompressionStats(long compressed,
+                                   long uncompressed,
+                                   long bytesIn,
+                                   long bytesOut,
+                                   long bytesSaved,
+                                   double ratio,
+                                   double compressMillis) {}
+
+    protected class ThresholdOutputStream extends OutputStream {
+        protected final HttpServletResponse raw;
+
+        protected byte[] pending;
+        protected int pendingSize;
+
+        protected OutputStream gzip;
+        protected long in;
+        protected long out;
+        protected long gzipNanos;
+        protected long writeNanos;
+
+        protected ThresholdOutputStream(HttpServletResponse raw) {
+            this.raw = raw;
+            this.pending = new byte[Math.max(config.minSize, 1)];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (gzip == null && pendingSize + len < pending.length) {
+                System.arraycopy(b, off, pending, pendingSize, len);
+                pendingSize += len;
+
+                return;
+            }
+
+            if (gzip == null)
+                start();
+
+            long start = System.nanoTime();
+
+            gzip.write(b, off, len);
+            in += len;
+
+            gzipNanos += System.nanoTime() - start;
+        }
+
+        protected void start() throws IOException {
+            raw.setHeader("Content-Encoding", "gzip");
+
+            OutputStream target = raw.getOutputStream();
+
+            // counts what reaches the client and how long that took, to leave it out of the deflater time
+            OutputStream counting = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[] {(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    long start = System.nanoTime();
+
+                    target.write(b, off, len);
+                    out += len;
+
+                    writeNanos += System.nanoTime() - start;
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    target.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    target.close();
+                }
+            };
+
+            gzip = new GZIPOutputStream(counting, config.bufferSize) {
+                {
+                    def.setLevel(config.level);
+                }
+            };
+
+            int size = pendingSize;
+
+            pendingSize = 0;
+            write(pending, 0, size);
+            pending = null;
+        }
+
+        // only a started stream is flushed, until then the body may still be too small to compress
+        @Override
+        public void flush() throws IOException {
+            if (gzip != null)
+                gzip.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (gzip == null) {
+                raw.setContentLength(pendingSize);
+
+                try (OutputStream target = raw.getOutputStream()) {
+                    target.write(pending, 0, pendingSize);
+                }
+
+                uncompressed.increment();
+
+                return;
+            }
+
+            long start = System.nanoTime();
+
+            try {
+                gzip.close();
+            } finally {
+                gzipNanos += System.nanoTime() - start;
+
+                compressNanos.add(Math.max(gzipNanos - writeNanos, 0));
+                compressed.increment();
+                bytesIn.add(in);
+                bytesOut.add(out);
+            }
+        }
+    }
+}
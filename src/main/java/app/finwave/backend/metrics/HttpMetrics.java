@@ -0,0 +1,70 @@
+package app.finwave.backend.metrics;
+
+import app.finwave.backend.database.QuerySource;
+import com.google.inject.Singleton;
+import spark.Request;
+import spark.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// a before filter and an afterAfter one (run for halts and exceptions too) time every request into the metrics of
+// its route. Routes are known by method and path from registration, anything else is counted as unmatched, so no
+// request can add labels. Spark handles a request on one thread, the start is kept in a thread local
+@Singleton
+public class HttpMetrics {
+    protected final ConcurrentHashMap<String, ConcurrentHashMap<String, RouteMetrics>> routes = new ConcurrentHashMap<>();
+    protected final RouteMetrics unmatched = new RouteMetrics("", "unmatched");
+
+    protected final ThreadLocal<Timing> timing = ThreadLocal.withInitial(Timing::new);
+
+    protected static class Timing {
+        protected RouteMetrics route;
+        protected long start;
+    }
+
+    public void register(String method, String path) {
+        routes.computeIfAbsent(method, (k) -> new ConcurrentHashMap<>())
+                .computeIfAbsent(path, (k) -> new RouteMetrics(method, path));
+    }
+
+    protected RouteMetrics resolve(String method, String path) {
+        ConcurrentHashMap<String, RouteMetrics> byPath = method == null ? null : routes.get(method);
+        RouteMetrics result = byPath == null || path == null ? null : byPath.get(path);
+
+        return result == null ? unmatched : result;
+    }
+
+    public void start(Request request, Response response) {
+        Timing current = timing.get();
+
+        current.route = resolve(request.requestMethod(), request.uri());
+        current.start = System.nanoTime();
+        current.route.inFlight.increment();
+
+        QuerySource.set(current.route.name);
+    }
+
+    public void finish(Request request, Response response) {
+        Timing current = timing.get();
+
+        QuerySource.clear();
+
+        if (current.route == null)
+            return;
+
+        current.route.inFlight.decrement();
+        current.route.record(System.nanoTime() - current.start, response.raw().getStatus());
+        current.route = null;
+    }
+
+    public List<RouteMetrics> getRoutes() {
+        ArrayList<RouteMetrics> result = new ArrayList<>();
+
+        routes.values().forEach((byPath) -> result.addAll(byPath.values()));
+        result.add(unmatched);
+
+        return result;
+    }
+}
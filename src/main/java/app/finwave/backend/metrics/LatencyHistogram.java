@@ -0,0 +1,103 @@
+package app.finwave.backend.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// HDR-style histogram of durations: exact microseconds under 8, then four buckets per power of two, so any value is
+// within 25% of its bucket's bounds up to hours. Recording is an index computation and two atomic adds
+public class LatencyHistogram {
+    protected static final int EXACT = 8;
+    protected static final int SUB_BUCKETS = 4;
+    protected static final int MAX_MAGNITUDE = 35;
+
+    public static final int BUCKETS = EXACT + (MAX_MAGNITUDE - 2) * SUB_BUCKETS;
+
+    protected final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    protected final LongAdder sumNanos = new LongAdder();
+
+    public void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+
+        counts.incrementAndGet(index(nanos / 1000));
+        sumNanos.add(nanos);
+    }
+
+    protected static int index(long micros) {
+        if (micros < EXACT)
+            return (int) micros;
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+
+        if (magnitude > MAX_MAGNITUDE)
+            return BUCKETS - 1;
+
+        int sub = (int) (micros >>> (magnitude - 2)) & (SUB_BUCKETS - 1);
+
+        return EXACT + (magnitude - 3) * SUB_BUCKETS + sub;
+    }
+
+    // exclusive, in microseconds
+    protected static long upperBound(int index) {
+        if (index < EXACT)
+            return index + 1;
+
+        int magnitude = 3 + (index - EXACT) / SUB_BUCKETS;
+        int sub = (index - EXACT) % SUB_BUCKETS;
+
+        return (long) (SUB_BUCKETS + sub + 1) << (magnitude - 2);
+    }
+
+    // bucket counts as of now, read one by one so concurrent records may be in some and not others. Everything
+    // exported is computed from one snapshot, so it's at least consistent with itself
+    public long[] snapshot() {
+        long[] result = new long[BUCKETS];
+
+        for (int i = 0; i < BUCKETS; i++)
+            result[i] = counts.get(i);
+
+        return result;
+    }
+
+    public double sumSeconds() {
+        return sumNanos.sum() / 1e9;
+    }
+
+    public static long count(long[] snapshot) {
+        long result = 0;
+
+        for (long count : snapshot)
+            result += count;
+
+        return result;
+    }
+
+    // recorded durations under the bound
+    public static long countBelow(long[] snapshot, long micros) {
+        long result = 0;
+
+        for (int i = 0; i < BUCKETS && upperBound(i) <= micros; i++)
+            result += snapshot[i];
+
+        return result;
+    }
+
+    // upper bound of the bucket the quantile falls in, 0 if nothing was recorded
+    public static double quantileSeconds(long[] snapshot, double quantile) {
+        long total = count(snapshot);
+
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max((long) Math.ceil(quantile * total), 1);
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+
+            if (seen >= rank)
+                return upperBound(i) / 1e6;
+        }
+
+        return upperBound(BUCKETS - 1) / 1e6;
+    }
+}
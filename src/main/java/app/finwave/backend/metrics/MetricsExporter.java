@@ -0,0 +1,160 @@
+package app.finwave.backend.metrics;
+
+import app.finwave.backend.database.DatabaseWorker;
+import app.finwave.backend.database.PoolMetricsTracker;
+import app.finwave.backend.http.ResponseCompression;
+import com.google.common.cache.CacheStats;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.util.List;
+
+// everything measured, in the Prometheus text format. Built on request, nothing here is on the hot path
+@Singleton
+public class MetricsExporter {
+    // histogram buckets exported, powers of two from 128 microseconds to about 33 seconds
+    protected static final int FIRST_BOUND = 7;
+    protected static final int LAST_BOUND = 25;
+
+    protected static final double[] QUANTILES = {0.5, 0.9, 0.99};
+    protected static final String[] STATUS_CLASSES = {"other", "1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    protected HttpMetrics httpMetrics;
+    protected DatabaseWorker databaseWorker;
+    protected ResponseCompression compression;
+
+    @Inject
+    public MetricsExporter(HttpMetrics httpMetrics, DatabaseWorker databaseWorker, ResponseCompression compression) {
+        this.httpMetrics = httpMetrics;
+        this.databaseWorker = databaseWorker;
+        this.compression = compression;
+    }
+
+    public String export() {
+        PrometheusWriter writer = new PrometheusWriter();
+
+        writeRoutes(writer, httpMetrics.getRoutes());
+        writeCaches(writer);
+        writeExecutors(writer);
+        writePool(writer, databaseWorker.getPoolMetrics());
+        writeCompression(writer, compression.stats());
+
+        return writer.toString();
+    }
+
+    protected void writeRoutes(PrometheusWriter writer, List<RouteMetrics> routes) {
+        long[][] snapshots = new long[routes.size()][];
+
+        for (int i = 0; i < routes.size(); i++)
+            snapshots[i] = routes.get(i).latency.snapshot();
+
+        writer.family("finwave_http_request_duration_seconds", "histogram",
+                "Time from the first before filter to the last afterAfter one, bodies Spark serializes itself are written after it");
+
+        for (int i = 0; i < routes.size(); i++) {
+            RouteMetrics route = routes.get(i);
+
+            for (int bound = FIRST_BOUND; bound <= LAST_BOUND; bound++) {
+                writer.sample("finwave_http_request_duration_seconds_bucket",
+                        LatencyHistogram.countBelow(snapshots[i], 1L << bound),
+                        "method", route.method, "route", route.path, "le", PrometheusWriter.seconds(1L << bound));
+            }
+
+            long count = LatencyHistogram.count(snapshots[i]);
+
+            writer.sample("finwave_http_request_duration_seconds_bucket", count, "method", route.method, "route", route.path, "le", "+Inf");
+            writer.sample("finwave_http_request_duration_seconds_sum", route.latency.sumSeconds(), "method", route.method, "route", route.path);
+            writer.sample("finwave_http_request_duration_seconds_count", count, "method", route.method, "route", route.path);
+        }
+
+        writer.family("finwave_http_request_duration_quantile_seconds", "gauge",
+                "Upper bound of the histogram bucket the quantile falls in, within 25% of the actual value");
+
+        for (int i = 0; i < routes.size(); i++) {
+            RouteMetrics route = routes.get(i);
+
+            for (double quantile : QUANTILES) {
+                writer.sample("finwave_http_request_duration_quantile_seconds",
+                        LatencyHistogram.quantileSeconds(snapshots[i], quantile),
+                        "method", route.method, "route", route.path, "quantile", String.valueOf(quantile));
+            }
+        }
+
+        writer.family("finwave_http_responses_total", "counter", "Responses by status class");
+
+        for (RouteMetrics route : routes) {
+            for (int statusClass = 0; statusClass < STATUS_CLASSES.length; statusClass++) {
+                long count = route.statuses.get(statusClass);
+
+                if (count > 0)
+                    writer.sample("finwave_http_responses_total", count, "method", route.method, "route", route.path, "code", STATUS_CLASSES[statusClass]);
+            }
+        }
+
+        writer.family("finwave_http_requests_in_flight", "gauge", "Requests being handled");
+
+        for (RouteMetrics route : routes)
+            writer.sample("finwave_http_requests_in_flight", route.inFlight.sum(), "method", route.method, "route", route.path);
+    }
+
+    protected void writeCaches(PrometheusWriter writer) {
+        writer.family("finwave_cache_size", "gauge", "Approximate entries in the cache");
+        MetricsRegistry.getCaches().forEach((name, cache) -> writer.sample("finwave_cache_size", cache.size(), "cache", name));
+
+        writer.family("finwave_cache_requests_total", "counter", "Lookups by result");
+        MetricsRegistry.getCaches().forEach((name, cache) -> {
+            CacheStats stats = cache.stats();
+
+            writer.sample("finwave_cache_requests_total", stats.hitCount(), "cache", name, "result", "hit");
+            writer.sample("finwave_cache_requests_total", stats.missCount(), "cache", name, "result", "miss");
+        });
+
+        writer.family("finwave_cache_evictions_total", "counter", "Entries evicted for size or expiration");
+        MetricsRegistry.getCaches().forEach((name, cache) -> writer.sample("finwave_cache_evictions_total", cache.stats().evictionCount(), "cache", name));
+
+        writer.family("finwave_cache_load_seconds_total", "counter", "Time spent loading entries");
+        MetricsRegistry.getCaches().forEach((name, cache) -> writer.sample("finwave_cache_load_seconds_total", cache.stats().totalLoadTime() / 1e9, "cache", name));
+
+        writer.family("finwave_cache_load_failures_total", "counter", "Loads that threw");
+        MetricsRegistry.getCaches().forEach((name, cache) -> writer.sample("finwave_cache_load_failures_total", cache.stats().loadExceptionCount(), "cache", name));
+    }
+
+    protected void writeExecutors(PrometheusWriter writer) {
+        writer.family("finwave_executor_queue_depth", "gauge", "Tasks waiting for a thread");
+        MetricsRegistry.getExecutors().forEach((name, executor) -> writer.sample("finwave_executor_queue_depth", executor.getQueue().size(), "executor", name));
+
+        writer.family("finwave_executor_active_threads", "gauge", "Threads running a task");
+        MetricsRegistry.getExecutors().forEach((name, executor) -> writer.sample("finwave_executor_active_threads", executor.getActiveCount(), "executor", name));
+
+        writer.family("finwave_executor_pool_size", "gauge", "Threads in the pool");
+        MetricsRegistry.getExecutors().forEach((name, executor) -> writer.sample("finwave_executor_pool_size", executor.getPoolSize(), "executor", name));
+
+        writer.family("finwave_executor_completed_tasks_total", "counter", "Tasks completed");
+        MetricsRegistry.getExecutors().forEach((name, executor) -> writer.sample("finwave_executor_completed_tasks_total", executor.getCompletedTaskCount(), "executor", name));
+    }
+
+    protected void writePool(PrometheusWriter writer, PoolMetricsTracker.PoolMetrics pool) {
+        writer.family("finwave_db_pool_connections", "gauge", "Connections of the primary pool by state");
+        writer.sample("finwave_db_pool_connections", pool.active(), "state", "active");
+        writer.sample("finwave_db_pool_connections", pool.idle(), "state", "idle");
+
+        writer.family("finwave_db_pool_waiters", "gauge", "Threads waiting for a connection");
+        writer.sample("finwave_db_pool_waiters", pool.waiters());
+
+        writer.family("finwave_db_pool_acquire_timeouts_total", "counter", "Connection requests that timed out");
+        writer.sample("finwave_db_pool_acquire_timeouts_total", pool.timeouts());
+    }
+
+    protected void writeCompression(PrometheusWriter writer, ResponseCompression.CompressionStats stats) {
+        writer.family("finwave_http_compressed_responses_total", "counter", "Streamed responses by whether they were compressed");
+        writer.sample("finwave_http_compressed_responses_total", stats.compressed(), "compressed", "true");
+        writer.sample("finwave_http_compressed_responses_total", stats.uncompressed(), "compressed", "false");
+
+        writer.family("finwave_http_compression_bytes_total", "counter", "Bytes of compressed responses before and after compression");
+        writer.sample("finwave_http_compression_bytes_total", stats.bytesIn(), "side", "in");
+        writer.sample("finwave_http_compression_bytes_total", stats.bytesOut(), "side", "out");
+
+        writer.family("finwave_http_compression_seconds_total", "counter", "Time spent in the deflater");
+        writer.sample("finwave_http_compression_seconds_total", stats.compressMillis() / 1000);
+    }
+}
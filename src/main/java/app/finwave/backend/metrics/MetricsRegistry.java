@@ -0,0 +1,41 @@
+package app.finwave.backend.metrics;
+
+import com.google.common.cache.Cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// caches and executors to export. CacheHandyBuilder registers every cache it builds, named after the class that
+// built it and the order it did in ("SessionManager.0", "SessionManager.1", ...)
+public class MetricsRegistry {
+    protected static final ConcurrentSkipListMap<String, Cache<?, ?>> caches = new ConcurrentSkipListMap<>();
+    protected static final ConcurrentHashMap<String, AtomicInteger> cacheCounters = new ConcurrentHashMap<>();
+
+    protected static final ConcurrentSkipListMap<String, ThreadPoolExecutor> executors = new ConcurrentSkipListMap<>();
+
+    public static void registerCache(String owner, Cache<?, ?> cache) {
+        int index = cacheCounters.computeIfAbsent(owner, (k) -> new AtomicInteger()).getAndIncrement();
+
+        caches.put(owner + "." + index, cache);
+    }
+
+    // returns the executor, to be used right where it's created. Only ThreadPoolExecutors have something to report
+    public static <T extends ExecutorService> T executor(String name, T executor) {
+        if (executor instanceof ThreadPoolExecutor pool)
+            executors.put(name, pool);
+
+        return executor;
+    }
+
+    public static Map<String, Cache<?, ?>> getCaches() {
+        return caches;
+    }
+
+    public static Map<String, ThreadPoolExecutor> getExecutors() {
+        return executors;
+    }
+}
@@ -0,0 +1,68 @@
+package app.finwave.backend.metrics;
+
+import java.math.BigDecimal;
+
+// the Prometheus text exposition format, version 0.0.4
+public class PrometheusWriter {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    protected final StringBuilder builder = new StringBuilder();
+
+    public PrometheusWriter family(String name, String type, String help) {
+        builder.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+
+        return this;
+    }
+
+    // labels are name, value pairs
+    public PrometheusWriter sample(String name, double value, String... labels) {
+        builder.append(name);
+
+        if (labels.length > 0) {
+            builder.append('{');
+
+            for (int i = 0; i + 1 < labels.length; i += 2) {
+                if (i > 0)
+                    builder.append(',');
+
+                builder.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+            }
+
+            builder.append('}');
+        }
+
+        return append(value);
+    }
+
+    protected PrometheusWriter append(double value) {
+        builder.append(' ');
+
+        if (Double.isNaN(value))
+            builder.append("NaN");
+        else if (Double.isInfinite(value))
+            builder.append(value > 0 ? "+Inf" : "-Inf");
+        else if (value == Math.rint(value) && Math.abs(value) < 1e15)
+            builder.append((long) value);
+        else
+            builder.append(value);
+
+        builder.append('\n');
+
+        return this;
+    }
+
+    protected static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    // seconds from microseconds, without an exponent
+    public static String seconds(long micros) {
+        return BigDecimal.valueOf(micros, 6).stripTrailingZeros().toPlainString();
+    }
+
+    @Override
+    public String toString() {
+        return builder.toString();
+    }
+}
@@ -0,0 +1,31 @@
+package app.finwave.backend.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class RouteMetrics {
+    public final String method;
+    public final String path;
+
+    // "GET /user/accounts/getList", what its queries are attributed to
+    public final String name;
+
+    public final LatencyHistogram latency = new LatencyHistogram();
+
+    // by status class, 1xx to 5xx, anything else goes to 0
+    public final AtomicLongArray statuses = new AtomicLongArray(6);
+    public final LongAdder inFlight = new LongAdder();
+
+    public RouteMetrics(String method, String path) {
+        this.method = method;
+        this.path = path;
+        this.name = method.isEmpty() ? path : method + " " + path;
+    }
+
+    public void record(long nanos, int status) {
+        latency.record(nanos);
+
+        int statusClass = status / 100;
+        statuses.incrementAndGet(statusClass >= 1 && statusClass <= 5 ? statusClass : 0);
+    }
+}
@@ -1,5 +1,7 @@
 package app.finwave.backend.report;
 
+import app.finwave.backend.api.category.CategoryManager;
+import app.finwave.backend.api.category.CategoryTreeIndex;
 import app.finwave.backend.api.files.FilesManager;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -8,11 +10,13 @@ import app.finwave.backend.api.report.ReportDatabase;
 import app.finwave.backend.api.report.data.ReportStatus;
 import app.finwave.backend.api.report.data.ReportType;
 import app.finwave.backend.api.transaction.TransactionDatabase;
+import app.finwave.backend.api.transaction.filter.TransactionsCursor;
 import app.finwave.backend.api.transaction.filter.TransactionsFilter;
 import app.finwave.backend.config.Configs;
 import app.finwave.backend.config.general.ReportBuilderConfig;
 import app.finwave.backend.database.DatabaseWorker;
 import app.finwave.backend.jooq.tables.records.ReportsRecord;
+import app.finwave.backend.metrics.MetricsRegistry;
 import app.finwave.backend.report.builders.AbstractReportBuilder;
 import app.finwave.backend.report.builders.ByDaysReportBuilder;
 import app.finwave.backend.report.builders.ByMonthsReportBuilder;
@@ -30,24 +34,24 @@ import static app.finwave.backend.api.ApiResponse.GSON;
 
 @Singleton
 public class ReportBuilder {
-    protected TransactionDatabase transactionDatabase;
     protected ReportDatabase reportDatabase;
     protected ReportBuilderConfig config;
     protected DatabaseWorker worker;
     protected ExecutorService executor;
 
     protected FilesManager filesManager;
+    protected CategoryManager categoryManager;
 
     @Inject
-    public ReportBuilder(DatabaseWorker worker, Configs configs, FilesManager filesManager) {
+    public ReportBuilder(DatabaseWorker worker, Configs configs, FilesManager filesManager, CategoryManager categoryManager) {
         this.worker = worker;
         this.filesManager = filesManager;
+        this.categoryManager = categoryManager;
 
-        this.transactionDatabase = worker.get(TransactionDatabase.class);
         this.reportDatabase = worker.get(ReportDatabase.class);
 
         this.config = configs.getState(new ReportBuilderConfig());
-        this.executor = Executors.newFixedThreadPool(config.threads);
+        this.executor = MetricsRegistry.executor("reports", Executors.newFixedThreadPool(config.threads));
     }
 
     public CompletableFuture<ReportStatus> buildAsync(long reportId) {
@@ -86,20 +90,24 @@ public class ReportBuilder {
         if (filter == null)
             filter = TransactionsFilter.EMPTY;
 
-        int offset = 0;
+        TransactionsCursor cursor = null;
         int count = config.maxTransactionsPerCycle;
 
         AbstractReportBuilder builder = get(record);
+        TransactionDatabase database = worker.getReadOnly(TransactionDatabase.class, userId);
 
         while (true) {
-            List<Record> transactions = transactionDatabase.getTransactions(userId, offset, count, filter);
+            List<Record> transactions = database.getTransactions(userId, cursor, count, filter);
 
             if (transactions.isEmpty())
                 break;
 
-            offset += transactions.size();
+            cursor = TransactionsCursor.of(transactions.get(transactions.size() - 1));
 
             builder.consider(transactions);
+
+            if (transactions.size() < count)
+                break;
         }
 
         builder.done();
@@ -109,16 +117,17 @@ public class ReportBuilder {
 
     protected AbstractReportBuilder get(ReportsRecord reportsRecord) throws IOException {
         ReportType type = ReportType.values()[reportsRecord.getType()];
+        CategoryTreeIndex categoryTree = categoryManager.getTree(reportsRecord.getUserId());
 
         switch (type) {
             case BY_DAYS -> {
-                return new ByDaysReportBuilder(reportsRecord, worker, filesManager);
+                return new ByDaysReportBuilder(reportsRecord, worker, filesManager, categoryTree);
             }
             case BY_MONTHS -> {
-                return new ByMonthsReportBuilder(reportsRecord, worker, filesManager);
+                return new ByMonthsReportBuilder(reportsRecord, worker, filesManager, categoryTree);
             }
             default -> {
-                return new ListReportBuilder(reportsRecord, worker, filesManager);
+                return new ListReportBuilder(reportsRecord, worker, filesManager, categoryTree);
             }
         }
     }
@@ -1,8 +1,7 @@
 package app.finwave.backend.report.builders;
 
-import app.finwave.backend.api.category.CategoryDatabase;
+import app.finwave.backend.api.category.CategoryTreeIndex;
 import app.finwave.backend.api.files.FilesManager;
-import app.finwave.backend.jooq.tables.records.CategoriesRecord;
 import com.google.gson.reflect.TypeToken;
 import io.netty.handler.codec.DateFormatter;
 import org.jooq.JSONB;
@@ -26,28 +25,24 @@ public abstract class AbstractReportBuilder {
 
     protected FilesManager filesManager;
 
-    protected List<CategoriesRecord> categoriesRecords;
+    protected CategoryTreeIndex categoryTree;
     protected List<AccountsRecord> accountsRecords;
     protected List<CurrenciesRecord> currenciesRecords;
     protected Map<String, String> userLang;
 
-    protected Map<Long, CategoriesRecord> categoriesMap;
     protected Map<Long, AccountsRecord> accountsMap;
     protected Map<Long, CurrenciesRecord> currenciesMap;
 
-    public AbstractReportBuilder(ReportsRecord reportsRecord, DatabaseWorker databaseWorker, FilesManager filesManager) {
+    public AbstractReportBuilder(ReportsRecord reportsRecord, DatabaseWorker databaseWorker, FilesManager filesManager, CategoryTreeIndex categoryTree) {
         this.reportsRecord = reportsRecord;
         this.filesManager = filesManager;
 
         int userId = reportsRecord.getUserId();
 
-        this.categoriesRecords = databaseWorker.get(CategoryDatabase.class).getCategories(userId);
+        this.categoryTree = categoryTree;
         this.accountsRecords = databaseWorker.get(AccountDatabase.class).getAccounts(userId);
         this.currenciesRecords = databaseWorker.get(CurrencyDatabase.class).getUserCurrenciesWithRoot(userId);
 
-        this.categoriesMap = categoriesRecords.stream()
-                .collect(Collectors.toMap(CategoriesRecord::getId, Function.identity()));
-
         this.accountsMap = accountsRecords.stream()
                 .collect(Collectors.toMap(AccountsRecord::getId, Function.identity()));
 
@@ -68,22 +63,7 @@ public abstract class AbstractReportBuilder {
     }
 
     protected String getCategoryFullPath(long id) {
-        CategoriesRecord record = categoriesMap.get(id);
-
-        if (record == null)
-            throw new IllegalArgumentException();
-
-        String parentsRaw = record.getParentsTree().data();
-
-        if (parentsRaw.isBlank())
-            return record.getName();
-
-        String parents = Arrays
-                .stream(parentsRaw.split("\\."))
-                .map((entry) -> categoriesMap.get(Long.parseLong(entry)).getName())
-                .collect(Collectors.joining(" > "));
-
-        return parents + " > " + record.getName();
+        return categoryTree.fullPath(id).orElseThrow(IllegalArgumentException::new);
     }
 
     protected String getFileName() {
@@ -1,5 +1,6 @@
 package app.finwave.backend.report.builders;
 
+import app.finwave.backend.api.category.CategoryTreeIndex;
 import app.finwave.backend.api.files.FilesManager;
 import app.finwave.backend.jooq.tables.records.FilesRecord;
 import io.netty.handler.codec.DateFormatter;
@@ -27,8 +28,8 @@ public class ByDaysReportBuilder extends AbstractReportBuilder {
     protected HashMap<Long, TableContent> content = new HashMap<>();
     protected DateTimeFormatter formatter;
 
-    public ByDaysReportBuilder(ReportsRecord reportsRecord, DatabaseWorker databaseWorker, FilesManager filesManager) {
-        super(reportsRecord, databaseWorker, filesManager);
+    public ByDaysReportBuilder(ReportsRecord reportsRecord, DatabaseWorker databaseWorker, FilesManager filesManager, CategoryTreeIndex categoryTree) {
+        super(reportsRecord, databaseWorker, filesManager, categoryTree);
 
         this.formatter = DateTimeFormatter
                 .ofLocalizedDate(FormatStyle.SHORT)
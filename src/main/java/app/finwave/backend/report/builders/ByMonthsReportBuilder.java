@@ -1,5 +1,6 @@
 package app.finwave.backend.report.builders;
 
+import app.finwave.backend.api.category.CategoryTreeIndex;
 import app.finwave.backend.api.files.FilesManager;
 import org.jooq.Record;
 import app.finwave.backend.database.DatabaseWorker;
@@ -18,8 +19,8 @@ import java.util.Set;
 import static app.finwave.backend.jooq.Tables.TRANSACTIONS;
 
 public class ByMonthsReportBuilder extends ByDaysReportBuilder {
-    public ByMonthsReportBuilder(ReportsRecord reportsRecord, DatabaseWorker databaseWorker, FilesManager filesManager) {
-        super(reportsRecord, databaseWorker, filesManager);
+    public ByMonthsReportBuilder(ReportsRecord reportsRecord, DatabaseWorker databaseWorker, FilesManager filesManager, CategoryTreeIndex categoryTree) {
+        super(reportsRecord, databaseWorker, filesManager, categoryTree);
 
         this.formatter = DateTimeFormatter.ofPattern("MM/yyyy",
                 Locale.forLanguageTag(userLang.getOrDefault("dateLocale", "en-US"))
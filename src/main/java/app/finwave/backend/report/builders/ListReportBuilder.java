@@ -1,5 +1,6 @@
 package app.finwave.backend.report.builders;
 
+import app.finwave.backend.api.category.CategoryTreeIndex;
 import app.finwave.backend.api.files.FilesManager;
 import org.jooq.Record;
 import app.finwave.backend.database.DatabaseWorker;
@@ -26,8 +27,8 @@ public class ListReportBuilder extends AbstractReportBuilder {
             "account", "delta", "category", "currency", "created", "description"
     };
 
-    public ListReportBuilder(ReportsRecord reportsRecord, DatabaseWorker databaseWorker, FilesManager filesManager) throws IOException {
-        super(reportsRecord, databaseWorker, filesManager);
+    public ListReportBuilder(ReportsRecord reportsRecord, DatabaseWorker databaseWorker, FilesManager filesManager, CategoryTreeIndex categoryTree) throws IOException {
+        super(reportsRecord, databaseWorker, filesManager, categoryTree);
 
         stream = filesManager.getAndOpenStream(reportsRecord.getFileId(), "text/csv", getFileName(), reportsRecord.getDescription()).orElseThrow();
         writer = new BufferedWriter(new OutputStreamWriter(stream));
@@ -5,8 +5,12 @@ import com.google.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.general.CachingConfig;
 import app.finwave.backend.config.general.ServiceConfig;
 import app.finwave.backend.config.general.UserConfig;
+import app.finwave.backend.database.QuerySource;
+import app.finwave.backend.metrics.MetricsRegistry;
+import app.finwave.backend.service.analytics.AnalyticsConsistencyService;
 import app.finwave.backend.service.demo.DemoService;
 import app.finwave.backend.service.notes.NotesService;
 import app.finwave.backend.service.notifications.NotificationsService;
@@ -29,18 +33,24 @@ public class ServicesManager {
                            NotificationsService notificationsService,
                            NotesService notesService,
                            FilesService filesService,
-                           DemoService demoService) {
+                           DemoService demoService,
+                           AnalyticsConsistencyService analyticsConsistencyService) {
         this.config = configs.getState(new ServiceConfig());
 
         var userConfig = configs.getState(new UserConfig());
 
-        this.scheduledExecutorService = Executors.newScheduledThreadPool(config.threadPoolThreads);
+        this.scheduledExecutorService = MetricsRegistry.executor("services", Executors.newScheduledThreadPool(config.threadPoolThreads));
 
         initService(recurringService);
         initService(notificationsService);
         initService(notesService);
         initService(filesService);
 
+        CachingConfig cachingConfig = configs.getState(new CachingConfig());
+
+        if (cachingConfig.analytics.patchOnChanges)
+            initService(analyticsConsistencyService);
+
         if (userConfig.demoMode) {
             initService(demoService);
 
@@ -57,10 +67,14 @@ public class ServicesManager {
     }
 
     protected void runService(AbstractService service) {
+        QuerySource.set("service " + service.name());
+
         try {
             service.run();
         }catch (Throwable e) {
             log.error("Failed to run service '" + service.name() + "'", e);
+        }finally {
+            QuerySource.clear();
         }
     }
 
@@ -0,0 +1,47 @@
+package app.finwave.backend.service.analytics;
+
+import app.finwave.backend.api.analytics.AnalyticsManager;
+import app.finwave.backend.config.Configs;
+import app.finwave.backend.config.general.CachingConfig;
+import app.finwave.backend.service.AbstractService;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.util.concurrent.TimeUnit;
+
+@Singleton
+public class AnalyticsConsistencyService extends AbstractService {
+    protected AnalyticsManager analyticsManager;
+    protected CachingConfig.Analytics config;
+
+    @Inject
+    public AnalyticsConsistencyService(AnalyticsManager analyticsManager, Configs configs) {
+        this.analyticsManager = analyticsManager;
+        this.config = configs.getState(new CachingConfig()).analytics;
+    }
+
+    @Override
+    public void run() {
+        analyticsManager.checkConsistency(config.consistencyCheckSamples);
+    }
+
+    @Override
+    public long getRepeatTime() {
+        return config.consistencyCheckIntervalMinutes;
+    }
+
+    @Override
+    public long getInitDelay() {
+        return config.consistencyCheckIntervalMinutes;
+    }
+
+    @Override
+    public TimeUnit getTimeUnit() {
+        return TimeUnit.MINUTES;
+    }
+
+    @Override
+    public String name() {
+        return "Analytics Consistency";
+    }
+}
@@ -2,6 +2,8 @@ package app.finwave.backend.service.notes;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import app.finwave.backend.api.event.WebSocketWorker;
+import app.finwave.backend.api.event.messages.response.NotifyUpdate;
 import app.finwave.backend.api.note.NoteDatabase;
 import app.finwave.backend.api.notification.data.Notification;
 import app.finwave.backend.api.notification.data.NotificationOptions;
@@ -17,11 +19,13 @@ import java.util.concurrent.TimeUnit;
 public class NotesService extends AbstractService {
     protected NoteDatabase database;
     protected NotificationManager notificationManager;
+    protected WebSocketWorker socketWorker;
 
     @Inject
-    public NotesService(DatabaseWorker databaseWorker, NotificationManager notificationManager) {
+    public NotesService(DatabaseWorker databaseWorker, NotificationManager notificationManager, WebSocketWorker socketWorker) {
         this.database = databaseWorker.get(NoteDatabase.class);
         this.notificationManager = notificationManager;
+        this.socketWorker = socketWorker;
     }
 
     @Override
@@ -40,6 +44,7 @@ public class NotesService extends AbstractService {
                 ));
 
                 database.updateNotificationTime(note.getId(), null);
+                socketWorker.sendToUser(note.getOwnerId(), new NotifyUpdate("notes"));
             }
         }
     }
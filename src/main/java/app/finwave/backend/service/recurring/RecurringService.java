@@ -2,6 +2,8 @@ package app.finwave.backend.service.recurring;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import app.finwave.backend.api.event.WebSocketWorker;
+import app.finwave.backend.api.event.messages.response.NotifyUpdate;
 import app.finwave.backend.api.notification.data.Notification;
 import app.finwave.backend.api.notification.data.NotificationOptions;
 import app.finwave.backend.api.notification.manager.NotificationManager;
@@ -22,12 +24,14 @@ public class RecurringService extends AbstractService {
     protected RecurringTransactionDatabase database;
     protected NotificationManager notificationManager;
     protected TransactionsManager transactionsManager;
+    protected WebSocketWorker socketWorker;
 
     @Inject
-    public RecurringService(DatabaseWorker databaseWorker, TransactionsManager transactionsManager, NotificationManager notificationManager) {
+    public RecurringService(DatabaseWorker databaseWorker, TransactionsManager transactionsManager, NotificationManager notificationManager, WebSocketWorker socketWorker) {
         this.database = databaseWorker.get(RecurringTransactionDatabase.class);
         this.notificationManager = notificationManager;
         this.transactionsManager = transactionsManager;
+        this.socketWorker = socketWorker;
     }
 
     @Override
@@ -50,6 +54,9 @@ public class RecurringService extends AbstractService {
                     NextRepeatTools.calculate(record.getNextRepeat(), record.getRepeatFunc(), record.getRepeatFuncArg())
             );
 
+            socketWorker.sendToUser(record.getOwnerId(), new NotifyUpdate("transactions"));
+            socketWorker.sendToUser(record.getOwnerId(), new NotifyUpdate("recurringTransactions"));
+
             NotificationMode mode = NotificationMode.values()[(int)record.getNotificationMode()];
             String message = record.getDescription();
 
@@ -1,6 +1,7 @@
 package app.finwave.backend.utils;
 
 import app.finwave.backend.jooq.tables.records.UsersSessionsRecord;
+import app.finwave.backend.metrics.MetricsRegistry;
 import com.google.common.cache.*;
 
 import java.util.List;
@@ -9,7 +10,8 @@ import java.util.function.Function;
 
 public class CacheHandyBuilder {
     public static CacheBuilder<Object, Object> genericBuilder(long duration, TimeUnit unit, long maxSize, RemovalListener<Object, Object> removalListener) {
-        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .recordStats();
 
         if (duration > 0 && unit != null)
             builder = builder.expireAfterAccess(duration, unit);
@@ -23,15 +25,29 @@ public class CacheHandyBuilder {
         return builder;
     }
 
+    // every cache built here is exported, named after the class that asked for it
+    protected static <C extends Cache<?, ?>> C registered(C cache) {
+        String owner = StackWalker.getInstance()
+                .walk((frames) -> frames
+                        .map(StackWalker.StackFrame::getClassName)
+                        .filter((name) -> !name.equals(CacheHandyBuilder.class.getName()))
+                        .findFirst()
+                        .orElse(CacheHandyBuilder.class.getName()));
+
+        MetricsRegistry.registerCache(owner.substring(owner.lastIndexOf('.') + 1), cache);
+
+        return cache;
+    }
+
     public static <T, X> LoadingCache<T, X> loading(long duration, TimeUnit unit, long maxSize, Function<T, X> loader, RemovalListener<T, X> removalListener) {
         CacheBuilder<Object, Object> builder = genericBuilder(duration, unit, maxSize, (RemovalListener<Object, Object>) removalListener);
 
-        return builder.build(new CacheLoader<>() {
+        return registered(builder.build(new CacheLoader<>() {
             @Override
             public X load(T key) {
                 return loader.apply(key);
             }
-        });
+        }));
     }
 
     public static <T, X> LoadingCache<T, X> loading(long duration, TimeUnit unit, long maxSize, Function<T, X> loader) {
@@ -49,7 +65,7 @@ public class CacheHandyBuilder {
     public static <T, X> Cache<T, X> cache(long duration, TimeUnit unit, long maxSize, RemovalListener<T, X> removalListener) {
         CacheBuilder<Object, Object> builder = genericBuilder(duration, unit, maxSize, (RemovalListener<Object, Object>) removalListener);
 
-        return builder.build();
+        return registered(builder.build());
     }
 
     public static <T, X> Cache<T, X> cache(long duration, TimeUnit unit, long maxSize) {
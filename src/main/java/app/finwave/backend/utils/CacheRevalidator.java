@@ -0,0 +1,113 @@
+package app.finwave.backend.utils;
+
+import com.google.common.cache.LoadingCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+// stale-while-revalidate on top of a LoadingCache: a revalidated entry keeps being served (and reported stale) while
+// a fresh value is computed in the background. At most one computation per key is in flight, a key revalidated again
+// while it runs is computed once more afterwards, since the running one might have read the data before that change
+public class CacheRevalidator<K, V> {
+    protected static final Logger log = LoggerFactory.getLogger(CacheRevalidator.class);
+
+    protected final LoadingCache<K, V> cache;
+    protected final Function<K, V> loader;
+    protected final Executor executor;
+
+    // key -> how many times it has been revalidated since the running computation started
+    protected final ConcurrentHashMap<K, Integer> pending = new ConcurrentHashMap<>();
+
+    public CacheRevalidator(LoadingCache<K, V> cache, Function<K, V> loader, Executor executor) {
+        this.cache = cache;
+        this.loader = loader;
+        this.executor = executor;
+    }
+
+    public boolean isStale(K key) {
+        return pending.containsKey(key);
+    }
+
+    public int staleCount() {
+        return pending.size();
+    }
+
+    // false when there was nothing to serve meanwhile or the executor is saturated, the entry is dropped then
+    public boolean revalidate(K key) {
+        if (!cache.asMap().containsKey(key)) {
+            cache.invalidate(key);
+
+            return false;
+        }
+
+        AtomicBoolean schedule = new AtomicBoolean();
+
+        pending.compute(key, (k, marks) -> {
+            if (marks == null)
+                schedule.set(true);
+
+            return marks == null ? 1 : marks + 1;
+        });
+
+        if (!schedule.get())
+            return true;
+
+        try {
+            executor.execute(() -> run(key));
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+            cache.invalidate(key);
+
+            return false;
+        }
+
+        return true;
+    }
+
+    protected void run(K key) {
+        while (true) {
+            Integer seen = pending.get(key);
+
+            if (seen == null)
+                return;
+
+            V fresh;
+
+            try {
+                fresh = loader.apply(key);
+            } catch (RuntimeException e) {
+                log.warn("Failed to revalidate cache entry, dropped", e);
+
+                pending.remove(key);
+                cache.invalidate(key);
+
+                return;
+            }
+
+            // evicted or invalidated meanwhile, nobody is waiting for it
+            if (!cache.asMap().containsKey(key)) {
+                pending.remove(key);
+
+                return;
+            }
+
+            cache.put(key, fresh);
+
+            AtomicBoolean done = new AtomicBoolean();
+
+            pending.computeIfPresent(key, (k, marks) -> {
+                done.set(marks.equals(seen));
+
+                return done.get() ? null : marks;
+            });
+
+            if (done.get())
+                return;
+        }
+    }
+}
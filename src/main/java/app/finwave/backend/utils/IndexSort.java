@@ -0,0 +1,63 @@
+package app.finwave.backend.utils;
+
+import java.util.function.IntBinaryOperator;
+
+// the order of rows kept in primitive columns, as a permutation of their indexes. Sorts int[] without boxing them
+// the way Arrays.sort(Integer[], Comparator) would, and is stable: equal rows keep the order they came in
+public class IndexSort {
+    protected static final int INSERTION_THRESHOLD = 16;
+
+    public static int[] order(int size, IntBinaryOperator compare) {
+        int[] order = new int[size];
+
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+
+        if (size < 2)
+            return order;
+
+        int[] buffer = new int[size];
+
+        sort(order, buffer, 0, size, compare);
+
+        return order;
+    }
+
+    protected static void sort(int[] order, int[] buffer, int from, int to, IntBinaryOperator compare) {
+        if (to - from <= INSERTION_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int value = order[i];
+                int j = i - 1;
+
+                for (; j >= from && compare.applyAsInt(order[j], value) > 0; j--)
+                    order[j + 1] = order[j];
+
+                order[j + 1] = value;
+            }
+
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+
+        sort(order, buffer, from, middle, compare);
+        sort(order, buffer, middle, to, compare);
+
+        // rows that mostly come in order, like a sorted table with a few changes appended, skip most merges
+        if (compare.applyAsInt(order[middle - 1], order[middle]) <= 0)
+            return;
+
+        System.arraycopy(order, from, buffer, from, to - from);
+
+        int i = from;
+        int j = middle;
+
+        for (int k = from; k < to; k++) {
+            if (j >= to || i < middle && compare.applyAsInt(buffer[i], buffer[j]) <= 0) {
+                order[k] = buffer[i++];
+            }else {
+                order[k] = buffer[j++];
+            }
+        }
+    }
+}
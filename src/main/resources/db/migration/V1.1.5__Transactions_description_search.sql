@@ -0,0 +1,3 @@
+create extension if not exists pg_trgm;
+
+create index idx_transactions_description_trgm on transactions using gin (description gin_trgm_ops);
@@ -0,0 +1,5 @@
+drop index if exists idx_transactions;
+
+create index idx_transactions_owner_created on transactions(owner_id, created_at desc, id desc);
+create index idx_transactions_owner_category on transactions(owner_id, category_id, created_at);
+create index idx_transactions_owner_account on transactions(owner_id, account_id, created_at);
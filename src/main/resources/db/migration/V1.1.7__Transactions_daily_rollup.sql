@@ -0,0 +1,16 @@
+create table if not exists transactions_daily_rollup
+(
+    owner_id              integer not null references users(id),
+    currency_id           bigint not null references currencies(id),
+    category_id           bigint not null references categories(id),
+    day                   date not null,
+    sum                   numeric not null,
+    count                 integer not null,
+
+    primary key (owner_id, day, category_id, currency_id)
+);
+
+insert into transactions_daily_rollup (owner_id, currency_id, category_id, day, sum, count)
+select owner_id, currency_id, category_id, cast(created_at as date), sum(delta), count(*)
+from transactions
+group by owner_id, currency_id, category_id, cast(created_at as date);
@@ -0,0 +1,66 @@
+package app.finwave.backend.api.analytics;
+
+import app.finwave.backend.api.analytics.result.AnalyticsByDays;
+import app.finwave.backend.api.analytics.result.AnalyticsByMonths;
+import app.finwave.backend.api.analytics.result.CategorySummary;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnalyticsPatchTest {
+    static final LocalDate DAY = LocalDate.of(2024, 5, 10);
+
+    static TransactionChange change(LocalDate day, long categoryId, String delta) {
+        OffsetDateTime created = day.atStartOfDay().atOffset(ZoneOffset.UTC);
+
+        return new TransactionChange(1, categoryId, 1, 1, created, day, new BigDecimal(delta));
+    }
+
+    @Test
+    void testPatch_CopyOnWrite() {
+        AnalyticsByDays original = new AnalyticsByDays(Map.of(DAY, List.of(new CategorySummary(1, 1, new BigDecimal("-10.00")))));
+
+        AnalyticsByDays patched = original.patch(List.of(change(DAY, 1, "-2.50"), change(DAY, 2, "7")));
+
+        assertEquals(List.of(new CategorySummary(1, 1, new BigDecimal("-10.00"))), original.getTotal().get(DAY));
+        assertEquals(2, patched.getTotal().get(DAY).size());
+        assertTrue(patched.getTotal().get(DAY).contains(new CategorySummary(1, 1, new BigDecimal("-12.50"))));
+        assertTrue(patched.getTotal().get(DAY).contains(new CategorySummary(1, 2, new BigDecimal("7"))));
+    }
+
+    @Test
+    void testPatch_CancelRemovesGroup() {
+        AnalyticsByDays original = new AnalyticsByDays(Map.of(DAY, List.of(new CategorySummary(1, 1, new BigDecimal("-10")))));
+
+        AnalyticsByDays patched = original.patch(List.of(change(DAY, 1, "-10").negate()));
+
+        assertFalse(patched.getTotal().containsKey(DAY));
+        assertTrue(patched.sameAs(new AnalyticsByDays(Map.of())));
+    }
+
+    @Test
+    void testPatch_MonthsGroupByFirstDay() {
+        AnalyticsByMonths patched = new AnalyticsByMonths(Map.of())
+                .patch(List.of(change(DAY, 1, "3"), change(DAY.plusDays(5), 1, "4")));
+
+        assertEquals(List.of(new CategorySummary(1, 1, new BigDecimal("7"))), patched.getTotal().get(DAY.withDayOfMonth(1)));
+    }
+
+    @Test
+    void testSameAs_IgnoresScaleAndZeros() {
+        AnalyticsByDays a = new AnalyticsByDays(Map.of(DAY, List.of(
+                new CategorySummary(1, 1, new BigDecimal("5.00")),
+                new CategorySummary(1, 2, new BigDecimal("0.00")))));
+        AnalyticsByDays b = new AnalyticsByDays(Map.of(DAY, List.of(new CategorySummary(1, 1, new BigDecimal("5")))));
+
+        assertTrue(a.sameAs(b));
+        assertFalse(a.sameAs(new AnalyticsByDays(Map.of(DAY, List.of(new CategorySummary(1, 1, new BigDecimal("6")))))));
+    }
+}
@@ -0,0 +1,42 @@
+package app.finwave.backend.api.analytics;
+
+import app.finwave.backend.api.transaction.filter.TransactionsFilter;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnalyticsWarmUpTest {
+    static final ZoneOffset CLIENT = ZoneOffset.ofHours(3);
+
+    // "this month" the way the dashboard asks for it, in the client's offset
+    static final TransactionsFilter CLIENT_MONTH = TransactionsFilter.EMPTY
+            .setFromTime(OffsetDateTime.of(2026, 10, 1, 0, 0, 0, 0, CLIENT))
+            .setToTime(OffsetDateTime.of(2026, 10, 31, 23, 59, 59, 999999999, CLIENT));
+
+    @Test
+    void testRangeFilter_ClientRequestHitsWarmUpEntry() {
+        OffsetDateTime now = OffsetDateTime.of(2026, 10, 17, 12, 30, 0, 0, ZoneOffset.UTC);
+
+        TransactionsFilter warmed = AnalyticsManager.rangeFilter((short) 0, now.withOffsetSameInstant(CLIENT));
+
+        assertEquals(CLIENT_MONTH.canonical(), warmed.canonical());
+
+        // the same month in another offset covers other instants, which is why warm-up uses the client's one
+        assertNotEquals(CLIENT_MONTH.canonical(), AnalyticsManager.rangeFilter((short) 0, now).canonical());
+    }
+
+    @Test
+    void testMonthReference_QuarterAroundMonth() {
+        OffsetDateTime reference = AnalyticsManager.monthReference(YearMonth.of(2026, 10));
+
+        assertEquals(OffsetDateTime.of(2026, 10, 1, 0, 0, 0, 0, ZoneOffset.UTC), reference);
+        assertEquals(OffsetDateTime.of(2026, 10, 1, 0, 0, 0, 0, ZoneOffset.UTC),
+                AnalyticsManager.dateTypeToRange((short) 1, reference).getLeft());
+        assertEquals(OffsetDateTime.of(2026, 12, 31, 23, 59, 59, 999999999, ZoneOffset.UTC),
+                AnalyticsManager.dateTypeToRange((short) 1, reference).getRight());
+    }
+}
@@ -0,0 +1,109 @@
+package app.finwave.backend.api.analytics;
+
+import app.finwave.backend.api.analytics.result.CategorySummary;
+import app.finwave.backend.api.analytics.result.SummaryTable;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DailyPrefixSumsTest {
+    static final LocalDate DAY = LocalDate.of(2024, 5, 10);
+
+    static final DailyPrefixSums SUMS = new DailyPrefixSums(new SummaryTable.Builder()
+            .add(DAY, 1, 1, new BigDecimal("-10.50"))
+            .add(DAY.plusDays(3), 1, 1, new BigDecimal("-4"))
+            .add(DAY.plusDays(3), 1, 2, new BigDecimal("100"))
+            .add(DAY.plusDays(40), 1, 1, new BigDecimal("-1.25"))
+            .build());
+
+    static LocalDate[] range(LocalDate from, LocalDate to) {
+        return new LocalDate[] {from, to};
+    }
+
+    @Test
+    void testSum_Ranges() {
+        assertEquals(2, SUMS.seriesCount());
+
+        assertEquals(0, new BigDecimal("-14.50").compareTo(SUMS.sum(0, DAY, DAY.plusDays(3))));
+        assertEquals(0, new BigDecimal("-4").compareTo(SUMS.sum(0, DAY.plusDays(1), DAY.plusDays(39))));
+        assertEquals(0, new BigDecimal("-15.75").compareTo(SUMS.sum(0, DAY.minusYears(1), DAY.plusYears(1))));
+        assertEquals(0, SUMS.sum(0, DAY.minusDays(5), DAY.minusDays(1)).signum());
+        assertEquals(0, SUMS.sum(0, DAY.plusDays(41), DAY.plusDays(50)).signum());
+    }
+
+    @Test
+    void testSums_FiltersAndSkipsZeros() {
+        List<List<CategorySummary>> result = SUMS.sums(List.of(range(DAY, DAY.plusDays(1)), range(DAY.plusDays(1), DAY.plusDays(2))),
+                (currency) -> true,
+                (category) -> category == 1);
+
+        assertEquals(1, result.get(0).size());
+        assertEquals(0, new BigDecimal("-10.50").compareTo(result.get(0).get(0).delta()));
+        assertTrue(result.get(1).isEmpty());
+    }
+
+    @Test
+    void testPatch_MatchesRebuild() {
+        TransactionChange change = new TransactionChange(1, 2, 1, 1, DAY.atStartOfDay().atOffset(ZoneOffset.UTC), DAY, new BigDecimal("7"));
+
+        DailyPrefixSums patched = SUMS.patch(List.of(change));
+
+        assertEquals(0, new BigDecimal("107").compareTo(patched.sum(1, DAY, DAY.plusDays(3))));
+        assertEquals(0, new BigDecimal("100").compareTo(SUMS.sum(1, DAY, DAY.plusDays(3))));
+    }
+
+    @Test
+    void testPatch_NewDaysSeriesAndScales() {
+        List<TransactionChange> changes = List.of(
+                new TransactionChange(1, 1, 1, 1, DAY.plusDays(1).atStartOfDay().atOffset(ZoneOffset.UTC), DAY.plusDays(1), new BigDecimal("0.125")),
+                new TransactionChange(1, 1, 1, 1, DAY.atStartOfDay().atOffset(ZoneOffset.UTC), DAY, new BigDecimal("10.50")),
+                new TransactionChange(1, 5, 1, 2, DAY.atStartOfDay().atOffset(ZoneOffset.UTC), DAY, new BigDecimal("3")),
+                new TransactionChange(1, 3, 1, 0, DAY.plusDays(50).atStartOfDay().atOffset(ZoneOffset.UTC), DAY.plusDays(50), new BigDecimal("-1"))
+        );
+
+        DailyPrefixSums rebuilt = new DailyPrefixSums(new SummaryTable.Builder()
+                .add(DAY.plusDays(1), 1, 1, new BigDecimal("0.125"))
+                .add(DAY.plusDays(3), 1, 1, new BigDecimal("-4"))
+                .add(DAY.plusDays(3), 1, 2, new BigDecimal("100"))
+                .add(DAY.plusDays(40), 1, 1, new BigDecimal("-1.25"))
+                .add(DAY, 2, 5, new BigDecimal("3"))
+                .add(DAY.plusDays(50), 0, 3, new BigDecimal("-1"))
+                .build());
+
+        DailyPrefixSums patched = SUMS.patch(changes);
+
+        assertEquals(4, patched.seriesCount());
+        assertTrue(patched.sameAs(rebuilt));
+        assertFalse(SUMS.sameAs(rebuilt));
+        assertEquals(0, new BigDecimal("-5.125").compareTo(patched.sum(patched.find(1, 1), DAY, DAY.plusDays(40))));
+    }
+
+    @Test
+    void testPeriods_CalendarBucketsAreClipped() {
+        List<LocalDate[]> weeks = PeriodGranularity.WEEK.periods(LocalDate.of(2024, 5, 8), LocalDate.of(2024, 5, 21), 1);
+
+        assertEquals(3, weeks.size());
+        assertArrayEquals(range(LocalDate.of(2024, 5, 8), LocalDate.of(2024, 5, 12)), weeks.get(0));
+        assertArrayEquals(range(LocalDate.of(2024, 5, 13), LocalDate.of(2024, 5, 19)), weeks.get(1));
+        assertArrayEquals(range(LocalDate.of(2024, 5, 20), LocalDate.of(2024, 5, 21)), weeks.get(2));
+
+        List<LocalDate[]> quarters = PeriodGranularity.QUARTER.periods(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 7, 1), 1);
+
+        assertEquals(3, quarters.size());
+        assertArrayEquals(range(LocalDate.of(2024, 4, 1), LocalDate.of(2024, 6, 30)), quarters.get(1));
+    }
+
+    @Test
+    void testPeriods_RollingReachesBack() {
+        List<LocalDate[]> rolling = PeriodGranularity.ROLLING.periods(DAY, DAY.plusDays(2), 30);
+
+        assertEquals(3, rolling.size());
+        assertArrayEquals(range(DAY.minusDays(29), DAY), rolling.get(0));
+        assertArrayEquals(range(DAY.minusDays(27), DAY.plusDays(2)), rolling.get(2));
+    }
+}
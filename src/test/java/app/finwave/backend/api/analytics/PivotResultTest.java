@@ -0,0 +1,102 @@
+package app.finwave.backend.api.analytics;
+
+import app.finwave.backend.api.analytics.pivot.*;
+import app.finwave.backend.api.category.CategoryTreeIndex;
+import app.finwave.backend.api.transaction.filter.TransactionsFilter;
+import app.finwave.backend.jooq.tables.records.CategoriesRecord;
+import org.jooq.postgres.extensions.types.Ltree;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PivotResultTest {
+    static CategoriesRecord category(long id, String parents) {
+        return new CategoriesRecord()
+                .setId(id)
+                .setParentsTree(Ltree.ltree(parents))
+                .setName("#" + id);
+    }
+
+    // 1 ─ 2 ─ 3, 4
+    static final CategoryTreeIndex TREE = new CategoryTreeIndex(List.of(
+            category(1, ""),
+            category(2, "1"),
+            category(3, "1.2"),
+            category(4, "")
+    ));
+
+    static PivotRow row(long categoryId, String sum, long count, String min, String max) {
+        return new PivotRow(0, categoryId, 0, null, new BigDecimal(sum), count, new BigDecimal(min), new BigDecimal(max));
+    }
+
+    static final List<PivotRow> ROWS = List.of(
+            row(2, "-30", 3, "-20", "-1"),
+            row(3, "-5", 1, "-5", "-5"),
+            row(4, "-50", 2, "-45", "-5"),
+            row(1, "100", 1, "100", "100")
+    );
+
+    static PivotQuery query(Integer depth, PivotMeasure orderBy, boolean descending, int limit) {
+        return new PivotQuery(List.of(PivotDimension.CATEGORY),
+                List.of(PivotMeasure.SUM, PivotMeasure.COUNT, PivotMeasure.MIN, PivotMeasure.MAX),
+                null, depth, orderBy, descending, limit);
+    }
+
+    @Test
+    void testFold_CategoriesIntoDepth() {
+        PivotResult result = PivotResult.of(ROWS, query(0, null, false, 100), TREE);
+
+        assertEquals(2, result.size);
+        assertArrayEquals(new long[] {1, 4}, (long[]) result.columns.get("category"));
+        assertArrayEquals(new BigDecimal[] {new BigDecimal("65"), new BigDecimal("-50")}, (BigDecimal[]) result.columns.get("sum"));
+        assertArrayEquals(new long[] {5, 2}, (long[]) result.columns.get("count"));
+        assertArrayEquals(new BigDecimal[] {new BigDecimal("-20"), new BigDecimal("-45")}, (BigDecimal[]) result.columns.get("min"));
+        assertArrayEquals(new BigDecimal[] {new BigDecimal("100"), new BigDecimal("-5")}, (BigDecimal[]) result.columns.get("max"));
+    }
+
+    @Test
+    void testFold_DeeperCategoriesStayWithTheirAncestor() {
+        PivotResult result = PivotResult.of(ROWS, query(1, null, false, 100), TREE);
+
+        // 3 goes into 2, roots have nothing at depth 1 and stay themselves
+        assertArrayEquals(new long[] {1, 2, 4}, (long[]) result.columns.get("category"));
+        assertArrayEquals(new BigDecimal[] {new BigDecimal("100"), new BigDecimal("-35"), new BigDecimal("-50")}, (BigDecimal[]) result.columns.get("sum"));
+    }
+
+    @Test
+    void testTopN_KeepsLargest() {
+        PivotResult result = PivotResult.of(ROWS, query(null, PivotMeasure.SUM, false, 2), TREE);
+
+        assertEquals(2, result.size);
+        assertEquals(4, result.total);
+        assertArrayEquals(new long[] {4, 2}, (long[]) result.columns.get("category"));
+    }
+
+    @Test
+    void testSeparateCurrencies_NeverAddedUp() {
+        PivotQuery query = query(0, PivotMeasure.SUM, false, 100).separateCurrencies(TransactionsFilter.EMPTY);
+
+        assertTrue(query.groupsBy(PivotDimension.CURRENCY));
+        assertSame(query, query.separateCurrencies(TransactionsFilter.EMPTY));
+
+        PivotQuery pinned = query(0, PivotMeasure.SUM, false, 100);
+        assertSame(pinned, pinned.separateCurrencies(TransactionsFilter.EMPTY.setCurrenciesIds(List.of(1L))));
+
+        // 2 in currency 1 is -30, 4 in currency 2 is -50, 2 in currency 2 is -40
+        List<PivotRow> rows = List.of(
+                new PivotRow(0, 2, 1, null, new BigDecimal("-30"), 3, null, null),
+                new PivotRow(0, 4, 2, null, new BigDecimal("-50"), 2, null, null),
+                new PivotRow(0, 3, 2, null, new BigDecimal("-40"), 1, null, null)
+        );
+
+        PivotResult result = PivotResult.of(rows, query, TREE);
+
+        assertEquals(List.of("category", "currency"), result.dimensions);
+        assertArrayEquals(new long[] {4, 1, 1}, (long[]) result.columns.get("category"));
+        assertArrayEquals(new long[] {2, 2, 1}, (long[]) result.columns.get("currency"));
+        assertArrayEquals(new BigDecimal[] {new BigDecimal("-50"), new BigDecimal("-40"), new BigDecimal("-30")}, (BigDecimal[]) result.columns.get("sum"));
+    }
+}
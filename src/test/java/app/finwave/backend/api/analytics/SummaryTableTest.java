@@ -0,0 +1,104 @@
+package app.finwave.backend.api.analytics;
+
+import app.finwave.backend.api.ApiResponse;
+import app.finwave.backend.api.analytics.result.AnalyticsByDays;
+import app.finwave.backend.api.analytics.result.AnalyticsByMonths;
+import app.finwave.backend.api.analytics.result.CategorySummary;
+import app.finwave.backend.api.analytics.result.SummaryTable;
+import app.finwave.backend.api.currency.excange.ExchangeRates;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SummaryTableTest {
+    static final LocalDate DAY = LocalDate.of(2024, 5, 10);
+
+    @Test
+    void testBuild_SortsAndSumsDuplicates() {
+        SummaryTable table = new SummaryTable.Builder()
+                .add(DAY.plusDays(1), 1, 1, new BigDecimal("1"))
+                .add(DAY, 2, 1, new BigDecimal("2.5"))
+                .add(DAY, 1, 3, new BigDecimal("-4"))
+                .add(DAY, 2, 1, new BigDecimal("0.5"))
+                .build();
+
+        assertEquals(3, table.size());
+        assertEquals(2, table.daysCount());
+        assertEquals(List.of(new CategorySummary(1, 3, new BigDecimal("-4")), new CategorySummary(2, 1, new BigDecimal("3.0"))), table.get(DAY));
+        assertNull(table.get(DAY.minusDays(1)));
+    }
+
+    @Test
+    void testDelta_OverflowKeepsExactValue() {
+        BigDecimal huge = new BigDecimal("123456789012345678901234567890.12");
+
+        SummaryTable table = new SummaryTable.Builder()
+                .add(DAY, 1, 1, huge)
+                .add(DAY, 1, 2, new BigDecimal("1.50"))
+                .build();
+
+        assertEquals(huge, table.delta(0));
+        assertEquals(new BigDecimal("1.50"), table.delta(1));
+    }
+
+    @Test
+    void testMergeAll_AcrossMonths() {
+        AnalyticsByMonths months = new AnalyticsByMonths(Map.of(
+                DAY.withDayOfMonth(1), List.of(new CategorySummary(1, 1, new BigDecimal("5")), new CategorySummary(1, 2, new BigDecimal("1"))),
+                DAY.plusMonths(1).withDayOfMonth(1), List.of(new CategorySummary(1, 1, new BigDecimal("-2")))));
+
+        List<CategorySummary> merged = months.mergeAll();
+
+        assertEquals(2, merged.size());
+        assertTrue(merged.contains(new CategorySummary(1, 1, new BigDecimal("3"))));
+        assertTrue(merged.contains(new CategorySummary(1, 2, new BigDecimal("1"))));
+    }
+
+    @Test
+    void testMergeAll_MixedScalesAndOverflow() {
+        SummaryTable table = new SummaryTable.Builder()
+                .add(DAY, 1, 1, new BigDecimal("1.5"))
+                .add(DAY.plusDays(1), 1, 1, new BigDecimal("0.125"))
+                .add(DAY.plusDays(2), 1, 1, new BigDecimal("-2"))
+                .add(DAY, 1, 2, new BigDecimal(Long.MAX_VALUE))
+                .add(DAY.plusDays(1), 1, 2, new BigDecimal(Long.MAX_VALUE))
+                .add(DAY.plusDays(2), 1, 2, new BigDecimal("0.01"))
+                .build();
+
+        List<CategorySummary> merged = table.mergeAll();
+
+        assertEquals(new BigDecimal("-0.375"), merged.get(0).delta());
+        assertEquals(new BigDecimal(Long.MAX_VALUE).multiply(BigDecimal.valueOf(2)).add(new BigDecimal("0.01")), merged.get(1).delta());
+    }
+
+    @Test
+    void testJson_KeepsShape() {
+        AnalyticsByDays days = new AnalyticsByDays(Map.of(DAY, List.of(new CategorySummary(1, 2, new BigDecimal("-10.00")))));
+
+        String json = ApiResponse.GSON.toJson(days);
+
+        assertEquals("{\"total\":{\"2024-05-10\":[{\"currencyId\":1,\"categoryId\":2,\"delta\":-10.00}]}}", json);
+        assertTrue(days.sameAs(ApiResponse.GSON.fromJson(json, AnalyticsByDays.class)));
+        assertEquals("{\"total\":{}}", ApiResponse.GSON.toJson(AnalyticsByDays.EMPTY));
+    }
+
+    @Test
+    void testConvert_MergesIntoTargetAndKeepsUnknown() {
+        // 1 of currency #1 buys 2 of #2, #3 has no rate
+        ExchangeRates rates = new ExchangeRates(1, 2, Map.of(2L, new BigDecimal("2")));
+
+        SummaryTable table = new SummaryTable.Builder()
+                .add(DAY, 1, 5, new BigDecimal("-10.00"))
+                .add(DAY, 2, 5, new BigDecimal("-5"))
+                .add(DAY, 3, 5, new BigDecimal("-7"))
+                .build()
+                .convert(rates);
+
+        assertEquals(List.of(new CategorySummary(1, 5, new BigDecimal("-12.50")), new CategorySummary(3, 5, new BigDecimal("-7"))), table.get(DAY));
+    }
+}
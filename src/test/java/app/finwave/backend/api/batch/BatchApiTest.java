@@ -0,0 +1,83 @@
+package app.finwave.backend.api.batch;
+
+import app.finwave.backend.api.ai.tools.FakeRequest;
+import app.finwave.backend.api.ai.tools.FakeResponse;
+import app.finwave.backend.config.general.HttpConfig;
+import app.finwave.backend.utils.params.InvalidParameterException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spark.Spark.halt;
+
+public class BatchApiTest {
+    static BatchApi.BatchResponse batch(BatchApi api, String body) {
+        FakeRequest request = new FakeRequest(Map.of()) {
+            @Override
+            public String body() {
+                return body;
+            }
+        };
+
+        return (BatchApi.BatchResponse) api.batch(request, new FakeResponse());
+    }
+
+    @Test
+    void testBatch_ResultsInOrderWithStatuses() {
+        BatchApi api = new BatchApi(new HttpConfig.BatchConfig());
+
+        api.register("/user/echo", (request, response) -> request.queryParams("value"));
+        api.register("/user/invalid", (request, response) -> {
+            throw new InvalidParameterException("value");
+        });
+        api.register("/user/halted", (request, response) -> halt(403));
+
+        List<BatchApi.Result> results = batch(api, """
+                {"requests": [
+                    {"route": "/user/echo", "params": {"value": "a"}},
+                    {"route": "/user/invalid"},
+                    {"route": "/user/halted"},
+                    {"route": "/user/missing"},
+                    {"route": "/user/echo", "params": {"value": "b"}}
+                ]}
+                """).results;
+
+        assertEquals(List.of(200, 400, 403, 404, 200), results.stream().map((r) -> r.status).toList());
+        assertEquals("a", results.get(0).body);
+        assertEquals("b", results.get(4).body);
+    }
+
+    @Test
+    void testBatch_SubRequestsRunConcurrently() {
+        BatchApi api = new BatchApi(new HttpConfig.BatchConfig());
+        CountDownLatch latch = new CountDownLatch(3);
+
+        // each one only finishes once all three have started
+        api.register("/user/wait", (request, response) -> {
+            latch.countDown();
+
+            return latch.await(10, TimeUnit.SECONDS);
+        });
+
+        List<BatchApi.Result> results = batch(api, """
+                {"requests": [{"route": "/user/wait"}, {"route": "/user/wait"}, {"route": "/user/wait"}]}
+                """).results;
+
+        assertTrue(results.stream().allMatch((r) -> Boolean.TRUE.equals(r.body)));
+    }
+
+    @Test
+    void testBatch_TooManyRequests() {
+        HttpConfig.BatchConfig config = new HttpConfig.BatchConfig();
+        config.maxRequests = 1;
+
+        BatchApi api = new BatchApi(config);
+
+        assertThrows(InvalidParameterException.class, () -> batch(api, "{\"requests\": [{\"route\": \"/a\"}, {\"route\": \"/b\"}]}"));
+        assertThrows(InvalidParameterException.class, () -> batch(api, "{\"requests\": []}"));
+    }
+}
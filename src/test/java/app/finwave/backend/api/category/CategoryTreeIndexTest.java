@@ -0,0 +1,65 @@
+package app.finwave.backend.api.category;
+
+import app.finwave.backend.jooq.tables.records.CategoriesRecord;
+import org.jooq.postgres.extensions.types.Ltree;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CategoryTreeIndexTest {
+    static CategoriesRecord category(long id, String parents, String name) {
+        return new CategoriesRecord()
+                .setId(id)
+                .setParentsTree(Ltree.ltree(parents))
+                .setName(name);
+    }
+
+    // 1 Food
+    // ├─ 2 Groceries
+    // │  └─ 4 Vegetables
+    // └─ 3 Cafe
+    // 5 Transport
+    static final CategoryTreeIndex TREE = new CategoryTreeIndex(List.of(
+            category(4, "1.2", "Vegetables"),
+            category(1, "", "Food"),
+            category(5, "", "Transport"),
+            category(2, "1", "Groceries"),
+            category(3, "1", "Cafe")
+    ));
+
+    @Test
+    void testInSubtree_DescendantsAndSelf() {
+        assertTrue(TREE.inSubtree(4, 1));
+        assertTrue(TREE.inSubtree(4, 2));
+        assertTrue(TREE.inSubtree(1, 1));
+        assertFalse(TREE.inSubtree(3, 2));
+        assertFalse(TREE.inSubtree(5, 1));
+        assertFalse(TREE.inSubtree(1, 4));
+        assertFalse(TREE.inSubtree(42, 1));
+    }
+
+    @Test
+    void testSubtree_DescendantsAndAncestors() {
+        assertEquals(List.of(1L, 2L, 4L, 3L), TREE.subtree(1));
+        assertEquals(List.of(4L), TREE.descendants(2));
+        assertEquals(List.of(), TREE.descendants(5));
+        assertEquals(List.of(1L, 2L), TREE.ancestors(4));
+    }
+
+    @Test
+    void testFullPath_NamesFromRoot() {
+        assertEquals("Food > Groceries > Vegetables", TREE.fullPath(4).orElseThrow());
+        assertEquals("Transport", TREE.fullPath(5).orElseThrow());
+        assertTrue(TREE.fullPath(42).isEmpty());
+    }
+
+    @Test
+    void testBuild_MissingParentBecomesRoot() {
+        CategoryTreeIndex tree = new CategoryTreeIndex(List.of(category(7, "6", "Orphan")));
+
+        assertEquals(List.of(7L), tree.subtree(7));
+        assertEquals("Orphan", tree.fullPath(7).orElseThrow());
+    }
+}
@@ -0,0 +1,38 @@
+package app.finwave.backend.api.transaction;
+
+import app.finwave.backend.api.transaction.filter.TransactionsCursor;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionsCursorTest {
+
+    @Test
+    void testEncodeDecode_RoundTrip() {
+        OffsetDateTime created = OffsetDateTime.of(2024, 3, 15, 10, 20, 30, 123456000, ZoneOffset.ofHours(3));
+        TransactionsCursor cursor = new TransactionsCursor(created, 42L);
+
+        Optional<TransactionsCursor> decoded = TransactionsCursor.decode(cursor.encode());
+
+        assertTrue(decoded.isPresent());
+        assertEquals(42L, decoded.get().id());
+        assertTrue(created.isEqual(decoded.get().createdAt()));
+    }
+
+    @Test
+    void testDecode_InvalidInput() {
+        assertTrue(TransactionsCursor.decode("not a cursor").isEmpty());
+        assertTrue(TransactionsCursor.decode("").isEmpty());
+    }
+
+    @Test
+    void testDecode_WrongPartsCount() {
+        String raw = java.util.Base64.getUrlEncoder().encodeToString("1:2".getBytes());
+
+        assertTrue(TransactionsCursor.decode(raw).isEmpty());
+    }
+}
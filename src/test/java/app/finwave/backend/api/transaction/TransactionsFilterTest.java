@@ -0,0 +1,54 @@
+package app.finwave.backend.api.transaction;
+
+import app.finwave.backend.api.transaction.filter.TransactionsFilter;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionsFilterTest {
+    static final OffsetDateTime FROM = OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    static final OffsetDateTime TO = OffsetDateTime.of(2024, 1, 31, 23, 59, 59, 0, ZoneOffset.UTC);
+
+    @Test
+    void testCanonical_EquivalentFiltersAreEqual() {
+        TransactionsFilter a = new TransactionsFilter(List.of(3L, 1L, 3L), List.of(), null,
+                FROM, TO, null);
+        TransactionsFilter b = new TransactionsFilter(List.of(1L, 3L), null, List.of(),
+                FROM.withOffsetSameInstant(ZoneOffset.ofHours(5)), TO.withOffsetSameInstant(ZoneOffset.ofHours(-2)), null);
+
+        assertNotEquals(a, b);
+        assertEquals(a.canonical(), b.canonical());
+        assertEquals(a.canonical().hashCode(), b.canonical().hashCode());
+    }
+
+    @Test
+    void testMayMatch_TimeBoundsInclusive() {
+        TransactionsFilter filter = new TransactionsFilter(null, null, null, FROM, TO, null);
+
+        assertTrue(filter.mayMatch(1, 1, 1, FROM));
+        assertTrue(filter.mayMatch(1, 1, 1, TO));
+        assertFalse(filter.mayMatch(1, 1, 1, FROM.minusNanos(1)));
+        assertFalse(filter.mayMatch(1, 1, 1, TO.plusSeconds(1)));
+        assertTrue(filter.mayMatch(1, 1, 1, FROM.withOffsetSameInstant(ZoneOffset.ofHours(3))));
+    }
+
+    @Test
+    void testMayMatch_Ids() {
+        TransactionsFilter filter = new TransactionsFilter(List.of(5L, 2L), List.of(7L), List.of(), null, null, null);
+
+        assertTrue(filter.mayMatch(2, 7, 100, FROM));
+        assertFalse(filter.mayMatch(3, 7, 100, FROM));
+        assertFalse(filter.mayMatch(5, 8, 100, FROM));
+    }
+
+    @Test
+    void testMayMatch_DescriptionIgnored() {
+        TransactionsFilter filter = new TransactionsFilter(null, null, null, null, null, "coffee");
+
+        assertTrue(filter.mayMatch(1, 1, 1, FROM));
+    }
+}
@@ -0,0 +1,162 @@
+package app.finwave.backend.api.transaction;
+
+import app.finwave.backend.api.analytics.AnalyticsDatabase;
+import app.finwave.backend.api.transaction.filter.TransactionsCursor;
+import app.finwave.backend.api.transaction.filter.TransactionsFilter;
+import org.jooq.*;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.jooq.impl.DefaultExecuteListener;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Needs a migrated database, e.g. the one from localhost-utils:
+// FINWAVE_TEST_DB_URL=jdbc:postgresql://localhost:5432/finwave gradle test
+// Everything is seeded in one transaction that is rolled back at the end
+public class TransactionsQueryPlansTest {
+    static final int USERS = 50;
+    static final int TRANSACTIONS_PER_USER = 2000;
+    static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on transactions\\b");
+
+    static Connection connection;
+    static DSLContext context;
+    static final List<Query> executed = new ArrayList<>();
+
+    static TransactionDatabase transactionDatabase;
+    static AnalyticsDatabase analyticsDatabase;
+
+    static int userId;
+    static long categoryId;
+
+    @BeforeAll
+    static void seed() throws SQLException {
+        String url = System.getenv("FINWAVE_TEST_DB_URL");
+        assumeTrue(url != null, "FINWAVE_TEST_DB_URL is not set");
+
+        connection = DriverManager.getConnection(url,
+                System.getenv().getOrDefault("FINWAVE_TEST_DB_USER", "finwave"),
+                System.getenv().getOrDefault("FINWAVE_TEST_DB_PASSWORD", "change_me"));
+        connection.setAutoCommit(false);
+
+        context = DSL.using(new DefaultConfiguration()
+                .set(connection)
+                .set(SQLDialect.POSTGRES)
+                .set(new DefaultExecuteListenerProvider(new DefaultExecuteListener() {
+                    @Override
+                    public void executeStart(ExecuteContext ctx) {
+                        if (ctx.query() != null)
+                            executed.add(ctx.query());
+                    }
+                })));
+
+        userId = context.fetchOne("""
+                with u as (
+                    insert into users (username, password)
+                    select 'plans_test_' || g || '_' || md5(random()::text), '-' from generate_series(1, ?) g
+                    returning id
+                )
+                select min(id) from u""", USERS).get(0, Integer.class);
+
+        long currencyId = context.fetchOne("insert into currencies (owner_id, code, symbol, decimals, description) " +
+                "values (?, 'TST', '$', 2, '') returning id", userId).get(0, Long.class);
+
+        long folderId = context.fetchOne("insert into accounts_folders (owner_id, name) " +
+                "values (?, 'plans') returning id", userId).get(0, Long.class);
+
+        long accountId = context.fetchOne("insert into accounts (owner_id, folder_id, currency_id, amount, hidden, name) " +
+                "values (?, ?, ?, 0, false, 'plans') returning id", userId, folderId, currencyId).get(0, Long.class);
+
+        categoryId = context.fetchOne("""
+                with c as (
+                    insert into categories (owner_id, type, parents_tree, name)
+                    select ?, 0, '', 'plans ' || g from generate_series(1, 10) g
+                    returning id
+                )
+                select min(id) from c""", userId).get(0, Long.class);
+
+        // other users reference the same category and account, foreign keys do not check owners
+        context.execute("""
+                insert into transactions (owner_id, category_id, account_id, currency_id, created_at, delta, description)
+                select ? + g % ?, ? + g % 10, ?, ?, now() - g * interval '5 minutes', 1, 'plans ' || g
+                from generate_series(1, ?) g""",
+                userId, USERS, categoryId, accountId, currencyId, USERS * TRANSACTIONS_PER_USER);
+
+        context.execute("analyze transactions");
+
+        transactionDatabase = new TransactionDatabase(context);
+        analyticsDatabase = new AnalyticsDatabase(context);
+    }
+
+    @AfterAll
+    static void rollback() throws SQLException {
+        if (connection == null)
+            return;
+
+        connection.rollback();
+        connection.close();
+    }
+
+    static String planOf(Runnable call) {
+        executed.clear();
+        call.run();
+
+        assertFalse(executed.isEmpty());
+
+        return context.explain(executed.get(executed.size() - 1)).plan();
+    }
+
+    static void assertIndexed(String plan) {
+        assertFalse(SEQ_SCAN.matcher(plan).find(), plan);
+        assertTrue(plan.contains("idx_transactions_owner_"), plan);
+    }
+
+    static TransactionsFilter lastDays(int days) {
+        return TransactionsFilter.EMPTY
+                .setFromTime(OffsetDateTime.now().minusDays(days))
+                .setToTime(OffsetDateTime.now());
+    }
+
+    @Test
+    void testPlan_List() {
+        assertIndexed(planOf(() -> transactionDatabase.getTransactions(userId, 0, 50, TransactionsFilter.EMPTY)));
+        assertIndexed(planOf(() -> transactionDatabase.getTransactions(userId, (TransactionsCursor) null, 50, TransactionsFilter.EMPTY)));
+    }
+
+    @Test
+    void testPlan_ListByCategory() {
+        TransactionsFilter filter = TransactionsFilter.EMPTY.setCategoriesIds(List.of(categoryId, categoryId + 3));
+
+        assertIndexed(planOf(() -> transactionDatabase.getTransactions(userId, (TransactionsCursor) null, 50, filter)));
+    }
+
+    @Test
+    void testPlan_Count() {
+        assertIndexed(planOf(() -> transactionDatabase.getTransactionsCount(userId, TransactionsFilter.EMPTY)));
+    }
+
+    @Test
+    void testPlan_Analytics() {
+        assertIndexed(planOf(() -> analyticsDatabase.getAnalyticsByDays(userId, lastDays(30))));
+        assertIndexed(planOf(() -> analyticsDatabase.getAnalyticsByMonths(userId, lastDays(365))));
+    }
+
+    @Test
+    void testPlan_ReportScan() {
+        TransactionsCursor after = new TransactionsCursor(OffsetDateTime.now().minusDays(3), Long.MAX_VALUE);
+
+        assertIndexed(planOf(() -> transactionDatabase.getTransactions(userId, after, 500, lastDays(90))));
+    }
+}
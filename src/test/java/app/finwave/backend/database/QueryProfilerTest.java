@@ -0,0 +1,35 @@
+package app.finwave.backend.database;
+
+import app.finwave.backend.config.general.DatabaseConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryProfilerTest {
+    static final QueryProfiler PROFILER = new QueryProfiler(new DatabaseConfig.Profiler(), () -> null);
+
+    @Test
+    void testFingerprint_FoldsLiteralsAndLists() {
+        assertEquals("select \"t1\".\"id\" from \"transactions\" \"t1\" where (\"owner_id\" = ? and \"id\" in (?, ...) and \"description\" = ?)",
+                PROFILER.fingerprint("""
+                        select "t1"."id"
+                        from "transactions" "t1"
+                        where ("owner_id" = 42 and "id" in (?, ?, ?) and "description" = 'it''s 12.50')"""));
+
+        assertEquals(PROFILER.fingerprint("select * from t where id in (?, ?)"),
+                PROFILER.fingerprint("SELECT * FROM t WHERE id IN (?, ?, ?, ?)"));
+
+        assertEquals("select sum(?) from t2 limit ?", PROFILER.fingerprint("select sum(-1.5) from t2 limit 10"));
+    }
+
+    @Test
+    void testExplainable_OnlyPlainSelects() {
+        assertTrue(QueryProfiler.explainable(PROFILER.fingerprint("select * from t where note = 'delete me'")));
+        assertTrue(QueryProfiler.explainable(PROFILER.fingerprint("with x as (select 1) select * from x")));
+        assertTrue(QueryProfiler.explainable(PROFILER.fingerprint("select \"updated_at\" from t")));
+
+        assertFalse(QueryProfiler.explainable(PROFILER.fingerprint("insert into t values (1) returning id")));
+        assertFalse(QueryProfiler.explainable(PROFILER.fingerprint("with d as (delete from t returning id) select * from d")));
+        assertFalse(QueryProfiler.explainable(PROFILER.fingerprint("select * from t for update")));
+    }
+}
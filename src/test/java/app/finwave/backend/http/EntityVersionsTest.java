@@ -0,0 +1,56 @@
+package app.finwave.backend.http;
+
+import app.finwave.backend.config.general.HttpConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityVersionsTest {
+    @Test
+    void testTag_ChangesOnlyWithItsEntities() {
+        EntityVersions versions = new EntityVersions(new HttpConfig.ConditionalConfig());
+
+        String accounts = versions.tag(2, null, "accounts", "transactions");
+
+        versions.bump(2, "categories");
+        versions.bump(3, "accounts");
+        assertEquals(accounts, versions.tag(2, null, "accounts", "transactions"));
+
+        versions.bump(2, "transactions");
+        assertNotEquals(accounts, versions.tag(2, null, "accounts", "transactions"));
+
+        assertNotEquals(versions.tag(2, "offset=0", "accounts"), versions.tag(2, "offset=10", "accounts"));
+    }
+
+    @Test
+    void testTag_SharedEntitiesFollowRoot() {
+        EntityVersions versions = new EntityVersions(new HttpConfig.ConditionalConfig());
+
+        String currencies = versions.tag(2, null, "currencies");
+
+        versions.bump(1, "currencies");
+        assertNotEquals(currencies, versions.tag(2, null, "currencies"));
+    }
+
+    @Test
+    void testTag_EvictedUserNeverRepeats() {
+        EntityVersions versions = new EntityVersions(new HttpConfig.ConditionalConfig());
+
+        String before = versions.tag(2, null, "notes");
+
+        versions.versions.invalidateAll();
+        assertNotEquals(before, versions.tag(2, null, "notes"));
+    }
+
+    @Test
+    void testMatches_IfNoneMatchForms() {
+        String tag = "W/\"abc.1\"";
+
+        assertTrue(EntityVersions.matches("W/\"abc.1\"", tag));
+        assertTrue(EntityVersions.matches("\"abc.1\"", tag));
+        assertTrue(EntityVersions.matches("\"x\", W/\"abc.1\"", tag));
+        assertTrue(EntityVersions.matches("*", tag));
+        assertFalse(EntityVersions.matches("W/\"abc.2\"", tag));
+        assertFalse(EntityVersions.matches(null, tag));
+    }
+}
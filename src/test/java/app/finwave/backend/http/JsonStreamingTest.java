@@ -0,0 +1,38 @@
+package app.finwave.backend.http;
+
+import app.finwave.backend.api.ApiResponse;
+import app.finwave.backend.api.transaction.TransactionApi;
+import app.finwave.backend.api.transaction.manager.data.TransactionEntry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonStreamingTest {
+    static String streamed(ApiResponse response, int bufferSize) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        JsonStreaming.write(response, output, bufferSize);
+
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testStream_SameAsBuffered() throws IOException {
+        TransactionApi.GetTransactionsListResponse response = new TransactionApi.GetTransactionsListResponse(List.of(
+                new TransactionEntry<>(1, 2, 3, 4, OffsetDateTime.of(2024, 5, 10, 12, 0, 0, 0, ZoneOffset.UTC), new BigDecimal("-10.50"), "Кофе ☕"),
+                new TransactionEntry<>(2, 2, 3, 4, OffsetDateTime.of(2024, 5, 11, 12, 0, 0, 0, ZoneOffset.UTC), new BigDecimal("100"), null)
+        ));
+
+        // a buffer smaller than the output makes it flush midway
+        assertEquals(response.toString(), streamed(response, 16));
+        assertEquals(ApiMessage.of("ok").toString(), streamed(ApiMessage.of("ok"), 8192));
+    }
+}
@@ -0,0 +1,97 @@
+package app.finwave.backend.http;
+
+import app.finwave.backend.config.general.HttpConfig;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCompressionTest {
+    // just enough of a response to see the headers and the body
+    static HttpServletResponse response(HashMap<String, String> headers, ByteArrayOutputStream body) {
+        ServletOutputStream output = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        };
+
+        return (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(),
+                new Class[] {HttpServletResponse.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getOutputStream" -> output;
+                    case "setHeader", "addHeader" -> headers.put((String) args[0], (String) args[1]);
+                    case "setContentLength" -> headers.put("Content-Length", String.valueOf(args[0]));
+                    default -> null;
+                });
+    }
+
+    static void write(ResponseCompression compression, String acceptEncoding, HttpServletResponse raw, String body) throws IOException {
+        try (OutputStream output = compression.output(acceptEncoding, raw)) {
+            output.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testAccepts_EncodingHeader() {
+        assertTrue(ResponseCompression.accepts("gzip, deflate, br", "gzip"));
+        assertTrue(ResponseCompression.accepts("br;q=1.0, GZIP;q=0.5", "gzip"));
+        assertTrue(ResponseCompression.accepts("*", "gzip"));
+        assertFalse(ResponseCompression.accepts("gzip;q=0, *", "gzip"));
+        assertFalse(ResponseCompression.accepts("deflate", "gzip"));
+        assertFalse(ResponseCompression.accepts(null, "gzip"));
+    }
+
+    @Test
+    void testCompress_OnlyAboveThreshold() throws IOException {
+        ResponseCompression compression = new ResponseCompression(new HttpConfig.CompressionConfig());
+        String large = "{\"delta\": 10.00}, ".repeat(1000);
+
+        HashMap<String, String> headers = new HashMap<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        write(compression, "gzip", response(headers, body), large);
+
+        assertEquals("gzip", headers.get("Content-Encoding"));
+        assertTrue(body.size() < large.length() / 10);
+        assertEquals(large, new String(new GZIPInputStream(new ByteArrayInputStream(body.toByteArray())).readAllBytes(), StandardCharsets.UTF_8));
+
+        int compressedSize = body.size();
+
+        headers.clear();
+        body.reset();
+
+        write(compression, "gzip", response(headers, body), "{}");
+
+        assertNull(headers.get("Content-Encoding"));
+        assertEquals("2", headers.get("Content-Length"));
+        assertEquals("{}", body.toString(StandardCharsets.UTF_8));
+
+        ResponseCompression.CompressionStats stats = compression.stats();
+
+        assertEquals(1, stats.compressed());
+        assertEquals(1, stats.uncompressed());
+        assertEquals(large.length(), stats.bytesIn());
+        assertEquals(large.length() - compressedSize, stats.bytesSaved());
+    }
+}
@@ -0,0 +1,41 @@
+package app.finwave.backend.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+    @Test
+    void testIndex_EveryValueFitsItsBucket() {
+        for (long micros = 0; micros < 1_000_000; micros += 1 + micros / 7) {
+            int index = LatencyHistogram.index(micros);
+            long upper = LatencyHistogram.upperBound(index);
+            long lower = index == 0 ? 0 : LatencyHistogram.upperBound(index - 1);
+
+            assertTrue(lower <= micros && micros < upper, micros + " not in [" + lower + ", " + upper + ")");
+            assertTrue(upper - lower <= Math.max(1, lower / 4), "bucket of " + micros + " is too wide");
+        }
+
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.index(Long.MAX_VALUE));
+    }
+
+    @Test
+    void testRecord_CountsAndQuantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int i = 0; i < 99; i++)
+            histogram.record(1_000_000); // 1ms
+
+        histogram.record(500_000_000); // 500ms
+
+        long[] snapshot = histogram.snapshot();
+
+        assertEquals(100, LatencyHistogram.count(snapshot));
+        assertEquals(99, LatencyHistogram.countBelow(snapshot, 1 << 12));
+        assertEquals(0, LatencyHistogram.countBelow(snapshot, 1 << 9));
+
+        assertEquals(0.001, LatencyHistogram.quantileSeconds(snapshot, 0.5), 0.001 / 4);
+        assertEquals(0.5, LatencyHistogram.quantileSeconds(snapshot, 1), 0.5 / 4);
+        assertEquals(0.599, histogram.sumSeconds(), 1e-9);
+    }
+}
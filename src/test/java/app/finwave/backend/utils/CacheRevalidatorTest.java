@@ -0,0 +1,106 @@
+package app.finwave.backend.utils;
+
+import com.google.common.cache.LoadingCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheRevalidatorTest {
+    private AtomicInteger source;
+    private AtomicInteger loads;
+    private ArrayDeque<Runnable> queued;
+
+    private LoadingCache<String, Integer> cache;
+    private CacheRevalidator<String, Integer> revalidator;
+
+    @BeforeEach
+    void setUp() {
+        source = new AtomicInteger(1);
+        loads = new AtomicInteger();
+        queued = new ArrayDeque<>();
+
+        cache = CacheHandyBuilder.loading((k) -> source.get());
+        revalidator = new CacheRevalidator<>(cache, (k) -> {
+            loads.incrementAndGet();
+
+            return source.get();
+        }, queued::add);
+    }
+
+    @Test
+    void testRevalidate_ServesStaleUntilRecomputed() throws ExecutionException {
+        cache.get("a");
+        source.set(2);
+
+        assertTrue(revalidator.revalidate("a"));
+        assertTrue(revalidator.isStale("a"));
+        assertEquals(1, cache.get("a"));
+
+        queued.poll().run();
+
+        assertFalse(revalidator.isStale("a"));
+        assertEquals(2, cache.get("a"));
+    }
+
+    @Test
+    void testRevalidate_SingleComputationPerKey() throws ExecutionException {
+        cache.get("a");
+
+        revalidator.revalidate("a");
+        revalidator.revalidate("a");
+        revalidator.revalidate("a");
+
+        assertEquals(1, queued.size());
+
+        queued.poll().run();
+
+        assertEquals(1, loads.get());
+        assertFalse(revalidator.isStale("a"));
+    }
+
+    @Test
+    void testRevalidate_MarkedWhileLoadingRunsAgain() throws ExecutionException {
+        CacheRevalidator<String, Integer>[] holder = new CacheRevalidator[1];
+
+        holder[0] = new CacheRevalidator<>(cache, (k) -> {
+            // a change lands while the first load is running
+            if (loads.incrementAndGet() == 1) {
+                source.set(3);
+                holder[0].revalidate(k);
+            }
+
+            return source.get();
+        }, queued::add);
+
+        cache.get("a");
+
+        holder[0].revalidate("a");
+        queued.poll().run();
+
+        assertEquals(2, loads.get());
+        assertTrue(queued.isEmpty());
+        assertEquals(3, cache.get("a"));
+    }
+
+    @Test
+    void testRevalidate_MissingOrRejectedEntryIsDropped() throws ExecutionException {
+        assertFalse(revalidator.revalidate("missing"));
+        assertTrue(queued.isEmpty());
+
+        CacheRevalidator<String, Integer> rejecting = new CacheRevalidator<>(cache, (k) -> source.get(), (r) -> {
+            throw new RejectedExecutionException();
+        });
+
+        cache.get("a");
+
+        assertFalse(rejecting.revalidate("a"));
+        assertFalse(rejecting.isStale("a"));
+        assertNull(cache.getIfPresent("a"));
+    }
+}
@@ -0,0 +1,34 @@
+package app.finwave.backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexSortTest {
+    @Test
+    void testOrder_SortedAndStable() {
+        Random random = new Random(42);
+        int[] keys = new int[1000];
+
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = random.nextInt(10);
+
+        int[] order = IndexSort.order(keys.length, (a, b) -> Integer.compare(keys[a], keys[b]));
+
+        for (int i = 1; i < order.length; i++) {
+            assertTrue(keys[order[i - 1]] <= keys[order[i]]);
+
+            if (keys[order[i - 1]] == keys[order[i]])
+                assertTrue(order[i - 1] < order[i]);
+        }
+    }
+
+    @Test
+    void testOrder_Small() {
+        assertArrayEquals(new int[0], IndexSort.order(0, (a, b) -> 0));
+        assertArrayEquals(new int[] {0}, IndexSort.order(1, (a, b) -> 0));
+        assertArrayEquals(new int[] {2, 1, 0}, IndexSort.order(3, (a, b) -> Integer.compare(b, a)));
+    }
+}